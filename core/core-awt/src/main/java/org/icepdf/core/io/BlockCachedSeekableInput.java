@@ -0,0 +1,307 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.io;
+
+import org.icepdf.core.util.Defs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SeekableInput wrapper that caches fixed size, block aligned sections of
+ * the underlying input.  Blocks are read from the wrapped input with
+ * positional reads and the least recently used block is evicted once the
+ * capacity is reached.  Parsing the same objects a second time, page tree
+ * and resources for example, is then served from memory.
+ * <br>
+ * The defaults can be configured with the system properties
+ * org.icepdf.core.io.blockCache.blockSize (bytes, rounded up to a power of
+ * two, default 4096) and org.icepdf.core.io.blockCache.capacity (number of
+ * blocks, default 2048).
+ *
+ * @since 6.3.3
+ */
+public class BlockCachedSeekableInput extends InputStream implements SeekableInput {
+
+    private static final int defaultBlockSize;
+    private static final int defaultCapacity;
+
+    static {
+        defaultBlockSize = Defs.intProperty("org.icepdf.core.io.blockCache.blockSize", 4096);
+        defaultCapacity = Defs.intProperty("org.icepdf.core.io.blockCache.capacity", 2048);
+    }
+
+    private SeekableInput source;
+    private final long length;
+
+    private final int blockShift;
+    private final int blockSize;
+    private final LinkedHashMap<Long, byte[]> blocks;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    // shared position used by the InputStream methods.
+    private long position;
+    private long markPosition;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public BlockCachedSeekableInput(SeekableInput source) throws IOException {
+        this(source, defaultBlockSize, defaultCapacity);
+    }
+
+    /**
+     * Creates a new block cache over the given input.
+     *
+     * @param source    input to cache, closed when this input is closed.
+     * @param blockSize size of a block in bytes, rounded up to a power of two.
+     * @param capacity  maximum number of blocks to keep.
+     * @throws IOException if the length of the source can't be determined.
+     */
+    public BlockCachedSeekableInput(SeekableInput source, int blockSize, final int capacity) throws IOException {
+        this.source = source;
+        length = source.getLength();
+        blockShift = 32 - Integer.numberOfLeadingZeros(Math.max(blockSize, 512) - 1);
+        this.blockSize = 1 << blockShift;
+        final int maxBlocks = Math.max(capacity, 1);
+        blocks = new LinkedHashMap<Long, byte[]>(Math.min(maxBlocks, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > maxBlocks;
+            }
+        };
+    }
+
+    /**
+     * Gets the block with the given index, reading it from the source on a miss.
+     * The source is read outside of the cache lock so a slow read doesn't block
+     * hits on other threads.
+     */
+    private byte[] getBlock(long blockIndex) throws IOException {
+        byte[] block;
+        synchronized (blocks) {
+            block = blocks.get(blockIndex);
+        }
+        if (block != null) {
+            hitCount.incrementAndGet();
+            return block;
+        }
+        missCount.incrementAndGet();
+        long start = blockIndex << blockShift;
+        int size = (int) Math.min(blockSize, length - start);
+        block = new byte[size];
+        int read = 0;
+        while (read < size) {
+            int count = source.read(start + read, block, read, size - read);
+            if (count <= 0) {
+                break;
+            }
+            read += count;
+        }
+        if (read < size) {
+            // a short read, don't cache a partial block.
+            byte[] partial = new byte[read];
+            System.arraycopy(block, 0, partial, 0, read);
+            return partial;
+        }
+        synchronized (blocks) {
+            blocks.put(blockIndex, block);
+        }
+        return block;
+    }
+
+    /**
+     * Number of reads that were served from a cached block.
+     *
+     * @return cache hit count.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Number of reads that required a block to be read from the underlying input.
+     *
+     * @return cache miss count.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Number of blocks currently held by the cache.
+     *
+     * @return cached block count.
+     */
+    public int getCachedBlockCount() {
+        synchronized (blocks) {
+            return blocks.size();
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        if (position < 0 || position >= this.length) {
+            return -1;
+        }
+        length = (int) Math.min(length, this.length - position);
+        int read = 0;
+        while (read < length) {
+            byte[] block = getBlock(position >> blockShift);
+            int blockOffset = (int) (position & (blockSize - 1));
+            int count = Math.min(length - read, block.length - blockOffset);
+            if (count <= 0) {
+                break;
+            }
+            System.arraycopy(block, blockOffset, buffer, offset + read, count);
+            read += count;
+            position += count;
+        }
+        return read > 0 ? read : -1;
+    }
+
+    /**
+     * Large views, image and font streams for example, are read directly from
+     * the source so they don't evict the blocks holding object data.
+     */
+    public ByteBuffer getByteBuffer(long position, int length) throws IOException {
+        if (length > blockSize * 8) {
+            return source.getByteBuffer(position, length);
+        }
+        return SeekableInput.super.getByteBuffer(position, length);
+    }
+
+    //
+    // InputStream overrides
+    //
+
+    public int read() throws IOException {
+        if (position >= length) {
+            return -1;
+        }
+        byte[] block = getBlock(position >> blockShift);
+        int blockOffset = (int) (position & (blockSize - 1));
+        if (blockOffset >= block.length) {
+            return -1;
+        }
+        position++;
+        return block[blockOffset] & 0xFF;
+    }
+
+    public int read(byte[] buffer) throws IOException {
+        return read(buffer, 0, buffer.length);
+    }
+
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int read = read(position, buffer, offset, length);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    public void close() throws IOException {
+        synchronized (blocks) {
+            blocks.clear();
+        }
+        source.close();
+    }
+
+    public int available() {
+        return (int) Math.max(0, Math.min(length - position, Integer.MAX_VALUE));
+    }
+
+    public void mark(int readLimit) {
+        markPosition = position;
+    }
+
+    public boolean markSupported() {
+        return true;
+    }
+
+    public void reset() throws IOException {
+        position = markPosition;
+    }
+
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(n, Math.max(0, length - position));
+        position += skipped;
+        return skipped;
+    }
+
+    //
+    // SeekableInput implementation
+    //  (which are not already covered by InputStream overrides)
+    //
+
+    public void seekAbsolute(long absolutePosition) throws IOException {
+        if (absolutePosition < 0L) {
+            throw new IOException("Attempt to absolutely seek to negative location: " + absolutePosition);
+        }
+        position = absolutePosition;
+    }
+
+    public void seekRelative(long relativeOffset) throws IOException {
+        long pos = position + relativeOffset;
+        if (pos < 0L)
+            pos = 0L;
+        position = pos;
+    }
+
+    public void seekEnd() throws IOException {
+        position = length;
+    }
+
+    public long getAbsolutePosition() throws IOException {
+        return position;
+    }
+
+    public long getLength() throws IOException {
+        return length;
+    }
+
+    public InputStream getInputStream() {
+        return this;
+    }
+
+    public void beginThreadAccess() {
+        lock.lock();
+    }
+
+    public void endThreadAccess() {
+        lock.unlock();
+    }
+
+    public String toString() {
+        return super.toString() + " ( blockSize=" + blockSize + ", hits=" + hitCount.get() +
+                ", misses=" + missCount.get() + " ) : " + source;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.io;
+
+import org.icepdf.core.util.Defs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A concurrent pool of byte arrays used as working buffers while decoding
+ * streams.  Buffers are grouped in power of two size classes from 512 bytes
+ * to 64KB, each class holds a bounded number of free buffers.  Requests
+ * outside of the size classes are simply allocated and are never pooled.
+ * <br>
+ * A buffer must not be used after it has been released.  Buffers that are
+ * never released are garbage collected as usual, they just don't get reused.
+ * <br>
+ * The pool can be configured with the system properties
+ * org.icepdf.core.io.bufferPool.enabled (default true) and
+ * org.icepdf.core.io.bufferPool.size, the number of free buffers kept per
+ * size class (default 32).
+ *
+ * @since 6.3.3
+ */
+public final class BufferPool {
+
+    private static final int MIN_SHIFT = 9;
+    private static final int MAX_SHIFT = 16;
+
+    private static final boolean enabled;
+    private static final List<ArrayBlockingQueue<byte[]>> pools;
+
+    private static final AtomicLong acquireCount = new AtomicLong();
+    private static final AtomicLong reuseCount = new AtomicLong();
+    private static final AtomicLong allocationCount = new AtomicLong();
+    private static final AtomicLong allocatedBytes = new AtomicLong();
+    private static final AtomicLong releaseCount = new AtomicLong();
+
+    static {
+        enabled = Defs.sysPropertyBoolean("org.icepdf.core.io.bufferPool.enabled", true);
+        int size = Math.max(1, Defs.intProperty("org.icepdf.core.io.bufferPool.size", 32));
+        List<ArrayBlockingQueue<byte[]>> queues = new ArrayList<>(MAX_SHIFT - MIN_SHIFT + 1);
+        for (int shift = MIN_SHIFT; shift <= MAX_SHIFT; shift++) {
+            queues.add(new ArrayBlockingQueue<>(size));
+        }
+        pools = queues;
+    }
+
+    private BufferPool() {
+    }
+
+    /**
+     * Gets the index of the size class that exactly matches size, or -1 if
+     * size isn't one of the pooled sizes.
+     */
+    private static int getSizeClass(int size) {
+        if (size < (1 << MIN_SHIFT) || size > (1 << MAX_SHIFT) || Integer.bitCount(size) != 1) {
+            return -1;
+        }
+        return Integer.numberOfTrailingZeros(size) - MIN_SHIFT;
+    }
+
+    /**
+     * Rounds size up to the size class used to serve it.
+     *
+     * @param size requested size.
+     * @return size of the buffer acquire(size) would return.
+     */
+    public static int getPooledSize(int size) {
+        if (size <= (1 << MIN_SHIFT)) {
+            return 1 << MIN_SHIFT;
+        }
+        if (size > (1 << MAX_SHIFT)) {
+            return size;
+        }
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+    /**
+     * Gets a buffer that is at least size bytes long.  The content of the
+     * buffer is undefined.
+     *
+     * @param size minimum size of the buffer.
+     * @return a pooled buffer, or a newly allocated one if none is free.
+     */
+    public static byte[] acquire(int size) {
+        acquireCount.incrementAndGet();
+        int pooledSize = getPooledSize(size);
+        int sizeClass = getSizeClass(pooledSize);
+        if (enabled && sizeClass >= 0) {
+            byte[] buffer = pools.get(sizeClass).poll();
+            if (buffer != null) {
+                reuseCount.incrementAndGet();
+                return buffer;
+            }
+        }
+        allocationCount.incrementAndGet();
+        allocatedBytes.addAndGet(pooledSize);
+        return new byte[pooledSize];
+    }
+
+    /**
+     * Gets a buffer of exactly size bytes, from the pool if size is one of the
+     * pooled sizes.  Used where the length of the buffer is significant.
+     *
+     * @param size size of the buffer.
+     * @return buffer of the given size.
+     */
+    public static byte[] acquireExact(int size) {
+        if (getSizeClass(size) >= 0) {
+            return acquire(size);
+        }
+        acquireCount.incrementAndGet();
+        allocationCount.incrementAndGet();
+        allocatedBytes.addAndGet(size);
+        return new byte[size];
+    }
+
+    /**
+     * Returns a buffer to the pool.  Buffers that aren't one of the pooled sizes,
+     * or that don't fit in a full pool, are left for the garbage collector.
+     *
+     * @param buffer buffer to release, may be null.
+     */
+    public static void release(byte[] buffer) {
+        if (!enabled || buffer == null) {
+            return;
+        }
+        int sizeClass = getSizeClass(buffer.length);
+        if (sizeClass >= 0 && pools.get(sizeClass).offer(buffer)) {
+            releaseCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Number of buffers that have been requested.
+     *
+     * @return acquire count.
+     */
+    public static long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    /**
+     * Number of requests served by a pooled buffer.
+     *
+     * @return reuse count.
+     */
+    public static long getReuseCount() {
+        return reuseCount.get();
+    }
+
+    /**
+     * Number of requests that had to allocate a new buffer.
+     *
+     * @return allocation count.
+     */
+    public static long getAllocationCount() {
+        return allocationCount.get();
+    }
+
+    /**
+     * Total number of bytes allocated for requests that couldn't be served by
+     * the pool.
+     *
+     * @return allocated bytes.
+     */
+    public static long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /**
+     * Number of buffers that have been returned to the pool.
+     *
+     * @return release count.
+     */
+    public static long getReleaseCount() {
+        return releaseCount.get();
+    }
+
+    /**
+     * Number of bytes currently held by free buffers in the pool.
+     *
+     * @return pooled bytes.
+     */
+    public static long getPooledBytes() {
+        long bytes = 0;
+        for (int i = 0; i < pools.size(); i++) {
+            bytes += (long) pools.get(i).size() << (i + MIN_SHIFT);
+        }
+        return bytes;
+    }
+
+    public static String getStatistics() {
+        return "BufferPool ( acquired=" + acquireCount.get() + ", reused=" + reuseCount.get() +
+                ", allocated=" + allocationCount.get() + ", allocatedBytes=" + allocatedBytes.get() +
+                ", released=" + releaseCount.get() + ", pooledBytes=" + getPooledBytes() + " )";
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.io;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least recently used cache of byte content held in direct, off heap,
+ * ByteBuffers.  The total size of the cached buffers is kept under a fixed
+ * budget, the least recently used entries are evicted to make room for new
+ * ones.  Content larger than the whole budget is not cached.
+ * <br>
+ * Evicted buffers are only dropped from the cache, their memory is freed
+ * once any readers still holding them are done and the buffer is garbage
+ * collected.  Cached buffers are read-only.
+ *
+ * @since 6.3.3
+ */
+public class DirectBufferCache<K> {
+
+    private final long budget;
+    private final LinkedHashMap<K, ByteBuffer> buffers;
+    private long usedBytes;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param budget maximum number of bytes held by the cache.
+     */
+    public DirectBufferCache(long budget) {
+        this.budget = budget;
+        buffers = new LinkedHashMap<>(64, 0.75f, true);
+    }
+
+    /**
+     * Gets the buffer cached for key.
+     *
+     * @param key cache key.
+     * @return read-only buffer positioned at zero, or null if not cached.
+     */
+    public ByteBuffer get(K key) {
+        ByteBuffer buffer;
+        synchronized (buffers) {
+            buffer = buffers.get(key);
+        }
+        if (buffer == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return buffer.duplicate();
+    }
+
+    /**
+     * Copies length bytes of data into a direct buffer and caches it for key,
+     * evicting least recently used entries as needed.
+     *
+     * @param key    cache key.
+     * @param data   content to cache.
+     * @param offset offset of the content in data.
+     * @param length length of the content.
+     * @return read-only buffer over the cached copy, or null if the content
+     * is larger than the budget.
+     */
+    public ByteBuffer put(K key, byte[] data, int offset, int length) {
+        if (length > budget) {
+            return null;
+        }
+        synchronized (buffers) {
+            ByteBuffer previous = buffers.remove(key);
+            if (previous != null) {
+                usedBytes -= previous.capacity();
+            }
+            evict(budget - length);
+        }
+        // copy outside of the lock, allocating direct memory isn't cheap.
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+        buffer.put(data, offset, length);
+        buffer.flip();
+        buffer = buffer.asReadOnlyBuffer();
+        synchronized (buffers) {
+            ByteBuffer previous = buffers.put(key, buffer);
+            if (previous != null) {
+                usedBytes -= previous.capacity();
+            }
+            usedBytes += length;
+            evict(budget);
+        }
+        return buffer.duplicate();
+    }
+
+    /**
+     * Evicts least recently used entries until no more than limit bytes are
+     * used.  Must be called with the buffers lock held.
+     */
+    private void evict(long limit) {
+        Iterator<Map.Entry<K, ByteBuffer>> iterator = buffers.entrySet().iterator();
+        while (usedBytes > limit && iterator.hasNext()) {
+            usedBytes -= iterator.next().getValue().capacity();
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes the buffer cached for key.
+     *
+     * @param key cache key.
+     */
+    public void remove(K key) {
+        synchronized (buffers) {
+            ByteBuffer previous = buffers.remove(key);
+            if (previous != null) {
+                usedBytes -= previous.capacity();
+            }
+        }
+    }
+
+    /**
+     * Drops all cached buffers.
+     */
+    public void clear() {
+        synchronized (buffers) {
+            buffers.clear();
+            usedBytes = 0;
+        }
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public long getUsedBytes() {
+        synchronized (buffers) {
+            return usedBytes;
+        }
+    }
+
+    public int getEntryCount() {
+        synchronized (buffers) {
+            return buffers.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public String toString() {
+        return "entries=" + getEntryCount() + ", used=" + getUsedBytes() + "/" + budget +
+                " bytes, hits=" + hitCount.get() + ", misses=" + missCount.get() +
+                ", evictions=" + evictionCount.get();
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.io;
+
+import org.icepdf.core.util.Defs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SeekableInput implementation backed by one or more memory mapped segments
+ * of a file.  Reads are served directly from the mapped pages so no system
+ * call is made per byte, and because the file is split into segments the
+ * 2GB limit of a single ByteBuffer doesn't apply.  Segments are mapped
+ * lazily on first access.
+ * <br>
+ * The segment size can be configured with the system property
+ * org.icepdf.core.io.mappedSegmentSize, the default is 1GB.
+ *
+ * @since 6.3.3
+ */
+public class MemoryMappedFileInputStream extends InputStream implements SeekableInput {
+
+    private static final int segmentSize;
+
+    static {
+        int size = Defs.intProperty("org.icepdf.core.io.mappedSegmentSize", 1 << 30);
+        // keep the segments a sane size, a single mapping can't exceed Integer.MAX_VALUE.
+        if (size < 4096) {
+            size = 1 << 30;
+        }
+        segmentSize = size;
+    }
+
+    private FileChannel fileChannel;
+    private MappedByteBuffer[] segments;
+    private final long length;
+
+    private long position;
+    private long markPosition;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public static MemoryMappedFileInputStream build(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        return new MemoryMappedFileInputStream(channel);
+    }
+
+    protected MemoryMappedFileInputStream(FileChannel channel) throws IOException {
+        super();
+        fileChannel = channel;
+        length = channel.size();
+        int segmentCount = (int) ((length + segmentSize - 1) / segmentSize);
+        segments = new MappedByteBuffer[segmentCount];
+    }
+
+    /**
+     * Gets the mapped segment with the given index, mapping it if this is
+     * the first access.
+     *
+     * @param index segment index.
+     * @return mapped segment.
+     * @throws IOException if the stream has been closed or the mapping failed.
+     */
+    private MappedByteBuffer getSegment(int index) throws IOException {
+        MappedByteBuffer[] segments = this.segments;
+        if (segments == null) {
+            throw new IOException("Stream closed");
+        }
+        MappedByteBuffer segment = segments[index];
+        if (segment == null) {
+            synchronized (segments) {
+                segment = segments[index];
+                if (segment == null) {
+                    long start = (long) index * segmentSize;
+                    long size = Math.min(segmentSize, length - start);
+                    segment = fileChannel.map(FileChannel.MapMode.READ_ONLY, start, size);
+                    segments[index] = segment;
+                }
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * Copies bytes at the given absolute position in to buffer, crossing
+     * segment boundaries as needed.  The mapped buffers are only accessed
+     * through duplicates so their state is never modified and no locking is
+     * needed.
+     */
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        if (position < 0 || position >= this.length) {
+            return -1;
+        }
+        length = (int) Math.min(length, this.length - position);
+        int read = 0;
+        while (read < length) {
+            int index = (int) (position / segmentSize);
+            int segmentOffset = (int) (position % segmentSize);
+            ByteBuffer segment = getSegment(index).duplicate();
+            int count = Math.min(length - read, segment.capacity() - segmentOffset);
+            segment.position(segmentOffset);
+            segment.get(buffer, offset + read, count);
+            read += count;
+            position += count;
+        }
+        return read;
+    }
+
+    /**
+     * Slices the mapped segment directly when the requested bytes don't cross
+     * a segment boundary, otherwise the bytes are copied.
+     */
+    public ByteBuffer getByteBuffer(long position, int length) throws IOException {
+        if (position < 0 || position >= this.length) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        length = (int) Math.min(length, this.length - position);
+        int index = (int) (position / segmentSize);
+        int segmentOffset = (int) (position % segmentSize);
+        ByteBuffer segment = getSegment(index).duplicate();
+        if (segmentOffset + length > segment.capacity()) {
+            return SeekableInput.super.getByteBuffer(position, length);
+        }
+        segment.position(segmentOffset);
+        segment.limit(segmentOffset + length);
+        return segment.slice().asReadOnlyBuffer();
+    }
+
+    //
+    // InputStream overrides
+    //
+
+    public int read() throws IOException {
+        if (position >= length) {
+            return -1;
+        }
+        MappedByteBuffer segment = getSegment((int) (position / segmentSize));
+        int b = segment.get((int) (position % segmentSize)) & 0xFF;
+        position++;
+        return b;
+    }
+
+    public int read(byte[] buffer) throws IOException {
+        return read(buffer, 0, buffer.length);
+    }
+
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int read = read(position, buffer, offset, length);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    public void close() throws IOException {
+        // the mappings stay valid until they are garbage collected, dropping
+        // our references is all we can do to release them.
+        segments = null;
+        if (fileChannel != null) {
+            fileChannel.close();
+        }
+    }
+
+    public int available() {
+        return (int) Math.max(0, Math.min(length - position, Integer.MAX_VALUE));
+    }
+
+    public void mark(int readLimit) {
+        markPosition = position;
+    }
+
+    public boolean markSupported() {
+        return true;
+    }
+
+    public void reset() throws IOException {
+        position = markPosition;
+    }
+
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(n, Math.max(0, length - position));
+        position += skipped;
+        return skipped;
+    }
+
+    //
+    // SeekableInput implementation
+    //  (which are not already covered by InputStream overrides)
+    //
+
+    public void seekAbsolute(long absolutePosition) throws IOException {
+        if (absolutePosition < 0L) {
+            throw new IOException("Attempt to absolutely seek to negative location: " + absolutePosition);
+        }
+        position = absolutePosition;
+    }
+
+    public void seekRelative(long relativeOffset) throws IOException {
+        long pos = position + relativeOffset;
+        if (pos < 0L)
+            pos = 0L;
+        position = pos;
+    }
+
+    public void seekEnd() throws IOException {
+        position = length;
+    }
+
+    public long getAbsolutePosition() throws IOException {
+        return position;
+    }
+
+    public long getLength() throws IOException {
+        return length;
+    }
+
+    public InputStream getInputStream() {
+        return this;
+    }
+
+    public void beginThreadAccess() {
+        lock.lock();
+    }
+
+    public void endThreadAccess() {
+        lock.unlock();
+    }
+}
@@ -16,6 +16,10 @@
 package org.icepdf.core.io;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -32,11 +36,18 @@ public class RandomAccessFileInputStream extends InputStream implements Seekable
     private long m_lMarkPosition;
     private RandomAccessFile m_RandomAccessFile;
 
+    // separate channel used for positional reads, only available if we know the file.
+    private File file;
+    private FileChannel positionalChannel;
+    private volatile boolean closed;
+
     private final ReentrantLock lock = new ReentrantLock();
 
     public static RandomAccessFileInputStream build(File file) throws FileNotFoundException {
         RandomAccessFile raf = new RandomAccessFile(file, "r");
-        return new RandomAccessFileInputStream(raf);
+        RandomAccessFileInputStream rafis = new RandomAccessFileInputStream(raf);
+        rafis.file = file;
+        return rafis;
     }
 
     protected RandomAccessFileInputStream(RandomAccessFile raf) {
@@ -63,7 +74,14 @@ public class RandomAccessFileInputStream extends InputStream implements Seekable
     }
 
     public void close() throws IOException {
+        closed = true;
         m_RandomAccessFile.close();
+        synchronized (this) {
+            if (positionalChannel != null) {
+                positionalChannel.close();
+                positionalChannel = null;
+            }
+        }
     }
 
     public int available() {
@@ -133,6 +151,50 @@ public class RandomAccessFileInputStream extends InputStream implements Seekable
         return this;
     }
 
+    /**
+     * Positional read using FileChannel.read(ByteBuffer, long), which doesn't
+     * need the lock or the shared file pointer.  The channel is kept separate
+     * from the RandomAccessFile as an interrupt closes a FileChannel, in which
+     * case it is reopened and the read falls back to the locked seek and read.
+     */
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        if (file == null || Thread.currentThread().isInterrupted()) {
+            return SeekableInput.super.read(position, buffer, offset, length);
+        }
+        FileChannel channel = getPositionalChannel();
+        try {
+            return channel.read(ByteBuffer.wrap(buffer, offset, length), position);
+        } catch (ClosedChannelException e) {
+            if (closed) {
+                throw e;
+            }
+            // closed by an interrupt, likely on another thread.
+            closePositionalChannel(channel);
+            return SeekableInput.super.read(position, buffer, offset, length);
+        }
+    }
+
+    private synchronized FileChannel getPositionalChannel() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (positionalChannel == null || !positionalChannel.isOpen()) {
+            positionalChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+        return positionalChannel;
+    }
+
+    private synchronized void closePositionalChannel(FileChannel channel) {
+        if (positionalChannel == channel) {
+            positionalChannel = null;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error closing positional channel", e);
+        }
+    }
+
     public void beginThreadAccess() {
         lock.lock();
 
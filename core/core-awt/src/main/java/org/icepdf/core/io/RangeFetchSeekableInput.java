@@ -0,0 +1,376 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.io;
+
+import org.icepdf.core.util.Defs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SeekableInput that fetches the document in fixed size chunks, on demand,
+ * from a {@link RangeFetcher}.  Only the sections of the document that are
+ * actually parsed are transferred, fetched chunks are kept for the life of
+ * the input.
+ * <br>
+ * If the document is linearized the first page section, as given by the /E
+ * entry of the linearization dictionary, is fetched with a single request
+ * when the input is created.  Together with the first page cross reference
+ * table this is everything needed to display the first page.
+ * <br>
+ * The chunk size can be configured with the system property
+ * org.icepdf.core.io.rangeFetch.chunkSize, the default is 64KB.
+ *
+ * @since 6.3.3
+ */
+public class RangeFetchSeekableInput extends InputStream implements SeekableInput {
+
+    private static final Logger logger =
+            Logger.getLogger(RangeFetchSeekableInput.class.toString());
+
+    private static final int defaultChunkSize;
+
+    // the linearization dictionary must be within the first 1024 bytes.
+    private static final int LINEARIZATION_SEARCH_LENGTH = 1024;
+    private static final String LINEARIZED_KEY = "/Linearized";
+
+    static {
+        defaultChunkSize = Defs.intProperty("org.icepdf.core.io.rangeFetch.chunkSize", 64 * 1024);
+    }
+
+    private RangeFetcher fetcher;
+    private final long length;
+    private final int chunkSize;
+    private final ConcurrentHashMap<Long, byte[]> chunks;
+    private final Object fetchLock = new Object();
+
+    private final AtomicLong fetchCount = new AtomicLong();
+    private final AtomicLong fetchedBytes = new AtomicLong();
+
+    private boolean linearized;
+    private long firstPageEnd;
+
+    private long position;
+    private long markPosition;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public RangeFetchSeekableInput(RangeFetcher fetcher) throws IOException {
+        this(fetcher, defaultChunkSize);
+    }
+
+    public RangeFetchSeekableInput(RangeFetcher fetcher, int chunkSize) throws IOException {
+        this.fetcher = fetcher;
+        this.chunkSize = Math.max(chunkSize, 1024);
+        length = fetcher.getLength();
+        chunks = new ConcurrentHashMap<>();
+        detectLinearization();
+    }
+
+    /**
+     * Looks for the linearization dictionary at the start of the document
+     * and fetches the first page section if it is found.
+     */
+    private void detectLinearization() throws IOException {
+        byte[] head = new byte[(int) Math.min(LINEARIZATION_SEARCH_LENGTH, length)];
+        int read = read(0, head, 0, head.length);
+        if (read <= 0) {
+            return;
+        }
+        String header = new String(head, 0, read, StandardCharsets.ISO_8859_1);
+        int start = header.indexOf(LINEARIZED_KEY);
+        if (start < 0) {
+            return;
+        }
+        int end = header.indexOf(">>", start);
+        String dictionary = end > 0 ? header.substring(start, end) : header.substring(start);
+        long fileLength = getLinearizationValue(dictionary, "L");
+        long endOfFirstPage = getLinearizationValue(dictionary, "E");
+        // a file that has been updated since it was linearized no longer matches /L.
+        if (fileLength != length || endOfFirstPage <= 0 || endOfFirstPage > length) {
+            return;
+        }
+        linearized = true;
+        firstPageEnd = endOfFirstPage;
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Linearized document, fetching first page section of " + firstPageEnd + " bytes.");
+        }
+        prefetch(0, firstPageEnd);
+    }
+
+    private static long getLinearizationValue(String dictionary, String key) {
+        Matcher matcher = Pattern.compile("/" + key + "\\s+(\\d+)").matcher(dictionary);
+        if (matcher.find()) {
+            try {
+                return Long.parseLong(matcher.group(1));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Fetches any chunks in the given range that haven't been fetched yet.
+     * Consecutive missing chunks are fetched with a single request.
+     *
+     * @param position start of the range.
+     * @param length   length of the range.
+     * @throws IOException if the range couldn't be fetched.
+     */
+    public void prefetch(long position, long length) throws IOException {
+        if (position < 0 || position >= this.length || length <= 0) {
+            return;
+        }
+        long first = position / chunkSize;
+        long last = (Math.min(position + length, this.length) - 1) / chunkSize;
+        synchronized (fetchLock) {
+            long index = first;
+            while (index <= last) {
+                if (chunks.containsKey(index)) {
+                    index++;
+                    continue;
+                }
+                long runEnd = index;
+                while (runEnd + 1 <= last && !chunks.containsKey(runEnd + 1)) {
+                    runEnd++;
+                }
+                fetchChunks(index, runEnd);
+                index = runEnd + 1;
+            }
+        }
+    }
+
+    /**
+     * Fetches the chunks first to last, inclusive, with one request.  Must be
+     * called with the fetch lock held.
+     */
+    private void fetchChunks(long first, long last) throws IOException {
+        long start = first * chunkSize;
+        int size = (int) Math.min((last - first + 1) * chunkSize, length - start);
+        byte[] data = new byte[size];
+        int total = 0;
+        while (total < size) {
+            int read = fetcher.fetch(start + total, data, total, size - total);
+            if (read <= 0) {
+                break;
+            }
+            total += read;
+        }
+        fetchCount.incrementAndGet();
+        fetchedBytes.addAndGet(total);
+        if (total < size) {
+            throw new IOException("Short fetch of " + total + " bytes, expected " + size + " at " + start);
+        }
+        for (long index = first; index <= last; index++) {
+            int offset = (int) ((index - first) * chunkSize);
+            int chunkLength = Math.min(chunkSize, size - offset);
+            byte[] chunk;
+            if (first == last) {
+                chunk = data;
+            } else {
+                chunk = new byte[chunkLength];
+                System.arraycopy(data, offset, chunk, 0, chunkLength);
+            }
+            chunks.put(index, chunk);
+        }
+    }
+
+    private byte[] getChunk(long index) throws IOException {
+        byte[] chunk = chunks.get(index);
+        if (chunk == null) {
+            synchronized (fetchLock) {
+                chunk = chunks.get(index);
+                if (chunk == null) {
+                    fetchChunks(index, index);
+                    chunk = chunks.get(index);
+                }
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Indicates the document has a valid linearization dictionary.
+     *
+     * @return true if linearized, otherwise false.
+     */
+    public boolean isLinearized() {
+        return linearized;
+    }
+
+    /**
+     * Gets the offset of the end of the first page section of a linearized
+     * document.
+     *
+     * @return end of first page, 0 if the document isn't linearized.
+     */
+    public long getFirstPageEnd() {
+        return firstPageEnd;
+    }
+
+    /**
+     * Number of requests made to the fetcher.
+     *
+     * @return fetch count.
+     */
+    public long getFetchCount() {
+        return fetchCount.get();
+    }
+
+    /**
+     * Number of bytes received from the fetcher.
+     *
+     * @return fetched bytes.
+     */
+    public long getFetchedBytes() {
+        return fetchedBytes.get();
+    }
+
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        if (position < 0 || position >= this.length) {
+            return -1;
+        }
+        length = (int) Math.min(length, this.length - position);
+        int read = 0;
+        while (read < length) {
+            byte[] chunk = getChunk(position / chunkSize);
+            int chunkOffset = (int) (position % chunkSize);
+            int count = Math.min(length - read, chunk.length - chunkOffset);
+            System.arraycopy(chunk, chunkOffset, buffer, offset + read, count);
+            read += count;
+            position += count;
+        }
+        return read;
+    }
+
+    //
+    // InputStream overrides
+    //
+
+    public int read() throws IOException {
+        if (position >= length) {
+            return -1;
+        }
+        byte[] chunk = getChunk(position / chunkSize);
+        int b = chunk[(int) (position % chunkSize)] & 0xFF;
+        position++;
+        return b;
+    }
+
+    public int read(byte[] buffer) throws IOException {
+        return read(buffer, 0, buffer.length);
+    }
+
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int read = read(position, buffer, offset, length);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    public void close() throws IOException {
+        chunks.clear();
+        if (fetcher != null) {
+            fetcher.close();
+        }
+    }
+
+    public int available() {
+        return (int) Math.max(0, Math.min(length - position, Integer.MAX_VALUE));
+    }
+
+    public void mark(int readLimit) {
+        markPosition = position;
+    }
+
+    public boolean markSupported() {
+        return true;
+    }
+
+    public void reset() throws IOException {
+        position = markPosition;
+    }
+
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(n, Math.max(0, length - position));
+        position += skipped;
+        return skipped;
+    }
+
+    //
+    // SeekableInput implementation
+    //  (which are not already covered by InputStream overrides)
+    //
+
+    public void seekAbsolute(long absolutePosition) throws IOException {
+        if (absolutePosition < 0L) {
+            throw new IOException("Attempt to absolutely seek to negative location: " + absolutePosition);
+        }
+        position = absolutePosition;
+    }
+
+    public void seekRelative(long relativeOffset) throws IOException {
+        long pos = position + relativeOffset;
+        if (pos < 0L)
+            pos = 0L;
+        position = pos;
+    }
+
+    public void seekEnd() throws IOException {
+        position = length;
+    }
+
+    public long getAbsolutePosition() throws IOException {
+        return position;
+    }
+
+    public long getLength() throws IOException {
+        return length;
+    }
+
+    public InputStream getInputStream() {
+        return this;
+    }
+
+    public void beginThreadAccess() {
+        lock.lock();
+    }
+
+    public void endThreadAccess() {
+        lock.unlock();
+    }
+
+    public String toString() {
+        return super.toString() + " ( linearized=" + linearized + ", fetches=" + fetchCount.get() +
+                ", fetchedBytes=" + fetchedBytes.get() + " ) : " + fetcher;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.io;
+
+import java.io.IOException;
+
+/**
+ * Source of byte ranges for a {@link RangeFetchSeekableInput}.  An
+ * implementation could use HTTP range requests, see {@link UrlRangeFetcher},
+ * a remote object store or anything else that can serve a section of a
+ * document without transferring all of it.
+ * <br>
+ * Fetches are made from the threads that parse the document, implementations
+ * must be thread safe.
+ *
+ * @since 6.3.3
+ */
+public interface RangeFetcher {
+
+    /**
+     * Gets the total length of the document.
+     *
+     * @return document length in bytes.
+     * @throws IOException if the length can't be determined.
+     */
+    long getLength() throws IOException;
+
+    /**
+     * Fetches up to length bytes starting at position.
+     *
+     * @param position absolute position of the first byte.
+     * @param buffer   buffer to copy the bytes to.
+     * @param offset   offset in buffer.
+     * @param length   number of bytes requested.
+     * @return number of bytes fetched, or -1 if position is past the end.
+     * @throws IOException if the range couldn't be fetched.
+     */
+    int fetch(long position, byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * Releases any resources held by the fetcher.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    void close() throws IOException;
+}
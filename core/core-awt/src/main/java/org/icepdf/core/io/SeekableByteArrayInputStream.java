@@ -17,6 +17,7 @@ package org.icepdf.core.io;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
@@ -79,6 +80,25 @@ public class SeekableByteArrayInputStream extends ByteArrayInputStream implement
         return this;
     }
 
+    public int read(long position, byte[] buffer, int offset, int length) {
+        long start = m_iBeginningOffset + position;
+        if (position < 0 || start >= count) {
+            return -1;
+        }
+        int read = (int) Math.min(length, count - start);
+        System.arraycopy(buf, (int) start, buffer, offset, read);
+        return read;
+    }
+
+    public ByteBuffer getByteBuffer(long position, int length) {
+        long start = m_iBeginningOffset + position;
+        if (position < 0 || start >= count) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        int size = (int) Math.min(length, count - start);
+        return ByteBuffer.wrap(buf, (int) start, size).slice().asReadOnlyBuffer();
+    }
+
 
     public void beginThreadAccess() {
         lock.lock();
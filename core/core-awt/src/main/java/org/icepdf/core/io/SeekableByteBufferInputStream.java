@@ -0,0 +1,142 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.io;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SeekableInput over the remaining bytes of a ByteBuffer, which can be a
+ * direct buffer.  The buffer is duplicated so the caller's buffer state is
+ * left untouched, positional reads work on their own duplicate and can be
+ * made concurrently.
+ *
+ * @since 6.3.3
+ */
+public class SeekableByteBufferInputStream extends InputStream implements SeekableInput {
+
+    private final ByteBuffer buffer;
+    private int markPosition;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public SeekableByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+    }
+
+    public int read() {
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    public int read(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        length = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, length);
+        return length;
+    }
+
+    public long skip(long n) {
+        if (n <= 0) {
+            return 0;
+        }
+        int skipped = (int) Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    public int available() {
+        return buffer.remaining();
+    }
+
+    public boolean markSupported() {
+        return true;
+    }
+
+    public void mark(int readLimit) {
+        markPosition = buffer.position();
+    }
+
+    public void reset() {
+        buffer.position(markPosition);
+    }
+
+    //
+    // SeekableInput implementation
+    //  (which are not already covered by InputStream overrides)
+    //
+
+    public void seekAbsolute(long absolutePosition) {
+        buffer.position((int) Math.max(0, Math.min(absolutePosition, buffer.limit())));
+    }
+
+    public void seekRelative(long relativeOffset) {
+        seekAbsolute(buffer.position() + relativeOffset);
+    }
+
+    public void seekEnd() {
+        buffer.position(buffer.limit());
+    }
+
+    public long getAbsolutePosition() {
+        return buffer.position();
+    }
+
+    public long getLength() {
+        return buffer.limit();
+    }
+
+    public InputStream getInputStream() {
+        return this;
+    }
+
+    public int read(long position, byte[] bytes, int offset, int length) {
+        if (position < 0 || position >= buffer.limit()) {
+            return -1;
+        }
+        int read = (int) Math.min(length, buffer.limit() - position);
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) position);
+        view.get(bytes, offset, read);
+        return read;
+    }
+
+    public ByteBuffer getByteBuffer(long position, int length) {
+        if (position < 0 || position >= buffer.limit()) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) position);
+        view.limit((int) Math.min(buffer.limit(), position + length));
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    public void beginThreadAccess() {
+        lock.lock();
+    }
+
+    public void endThreadAccess() {
+        lock.unlock();
+    }
+}
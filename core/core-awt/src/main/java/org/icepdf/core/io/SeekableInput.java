@@ -17,6 +17,7 @@ package org.icepdf.core.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * @author Mark Collette
@@ -66,6 +67,66 @@ public interface SeekableInput {
     InputStream getInputStream();
 
 
+    //
+    // Positional reads, which don't use or move the shared position
+    //
+
+    /**
+     * Reads up to length bytes starting at the given absolute position into
+     * buffer.  The current position of this input is not used or changed, so
+     * any number of threads can read concurrently as long as each keeps track
+     * of its own position, see {@link SeekableInputCursor}.
+     * <br>
+     * The default implementation seeks the shared position under
+     * {@link #beginThreadAccess()} and restores it afterwards. Implementations
+     * that can read without touching the shared position should override it.
+     *
+     * @param position absolute position to start reading from.
+     * @param buffer   buffer to read into.
+     * @param offset   offset into buffer.
+     * @param length   maximum number of bytes to read.
+     * @return number of bytes read, or -1 if position is at or past the end of input.
+     * @throws IOException if an I/O error occurs.
+     */
+    default int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        beginThreadAccess();
+        try {
+            long savedPosition = getAbsolutePosition();
+            seekAbsolute(position);
+            int read = read(buffer, offset, length);
+            seekAbsolute(savedPosition);
+            return read;
+        } finally {
+            endThreadAccess();
+        }
+    }
+
+    /**
+     * Gets a read-only view of length bytes starting at the given absolute
+     * position.  Inputs that already hold their content in memory return a
+     * slice of it without copying, the default implementation copies the
+     * bytes with {@link #read(long, byte[], int, int)}.  The returned buffer's
+     * remaining bytes can be fewer then length if the end of input is reached.
+     *
+     * @param position absolute position of the first byte.
+     * @param length   number of bytes to view.
+     * @return read-only buffer positioned at the first byte.
+     * @throws IOException if an I/O error occurs.
+     */
+    default ByteBuffer getByteBuffer(long position, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int total = 0;
+        while (total < length) {
+            int read = read(position + total, bytes, total, length - total);
+            if (read <= 0) {
+                break;
+            }
+            total += read;
+        }
+        return ByteBuffer.wrap(bytes, 0, total).asReadOnlyBuffer();
+    }
+
+
     //
     // For regulating competing Threads' access to our state and I/O
     //
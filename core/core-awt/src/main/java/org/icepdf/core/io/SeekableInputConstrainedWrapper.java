@@ -17,8 +17,14 @@ package org.icepdf.core.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
+ * Constrains reads to a section of a SeekableInput, in the coordinate system
+ * of the section where its beginning is location 0.  The wrapper keeps its
+ * own position and uses positional reads, so the shared position of the
+ * underlying input is never moved.
+ *
  * @author Mark Collette
  * @since 2.0
  */
@@ -26,33 +32,19 @@ public class SeekableInputConstrainedWrapper extends InputStream {
     private SeekableInput streamDataInput;
     private long filePositionOfStreamData;
     private long lengthOfStreamData;
-    private long filePositionBeforeUse;
-    private boolean usedYet;
+    // position relative to filePositionOfStreamData
+    private long position;
+    private byte[] singleByte;
 
     public SeekableInputConstrainedWrapper(
             SeekableInput in, long offset, long length) {
         streamDataInput = in;
         filePositionOfStreamData = offset;
         lengthOfStreamData = length;
-        filePositionBeforeUse = 0L;
-        usedYet = false;
-    }
-
-
-    private void ensureReadyOnFirstUse() throws IOException {
-        if (usedYet)
-            return;
-        usedYet = true;
-        filePositionBeforeUse = streamDataInput.getAbsolutePosition();
-        streamDataInput.seekAbsolute(filePositionOfStreamData);
     }
 
-    private long getBytesRemaining() throws IOException {
-        long absPos = streamDataInput.getAbsolutePosition();
-        if (absPos < filePositionOfStreamData)
-            return -1;
-        long end = filePositionOfStreamData + lengthOfStreamData;
-        return end - absPos;
+    private long getBytesRemaining() {
+        return lengthOfStreamData - position;
     }
 
 
@@ -62,11 +54,15 @@ public class SeekableInputConstrainedWrapper extends InputStream {
     //  explicitly expose InputStream's methods as part of our interface
     //
     public int read() throws IOException {
-        ensureReadyOnFirstUse();
-        long remain = getBytesRemaining();
-        if (remain <= 0)
+        if (getBytesRemaining() <= 0)
+            return -1;
+        if (singleByte == null)
+            singleByte = new byte[1];
+        int read = streamDataInput.read(filePositionOfStreamData + position, singleByte, 0, 1);
+        if (read <= 0)
             return -1;
-        return streamDataInput.read();
+        position++;
+        return singleByte[0] & 0xFF;
     }
 
     public int read(byte[] buffer) throws IOException {
@@ -74,13 +70,14 @@ public class SeekableInputConstrainedWrapper extends InputStream {
     }
 
     public int read(byte[] buffer, int offset, int length) throws IOException {
-        ensureReadyOnFirstUse();
         long remain = getBytesRemaining();
-
         if (remain <= 0)
             return -1;
-        length = (int) Math.min(Math.min(remain, (long) length), (long) Integer.MAX_VALUE);
-        return streamDataInput.read(buffer, offset, length);
+        length = (int) Math.min(remain, (long) length);
+        int read = streamDataInput.read(filePositionOfStreamData + position, buffer, offset, length);
+        if (read > 0)
+            position += read;
+        return read;
     }
 
     public int available() {
@@ -98,12 +95,12 @@ public class SeekableInputConstrainedWrapper extends InputStream {
     }
 
     public long skip(long n) throws IOException {
-        ensureReadyOnFirstUse();
         long remain = getBytesRemaining();
         if (remain <= 0)
             return -1;
-        n = (int) Math.min(Math.min(remain, n), (long) Integer.MAX_VALUE);
-        return streamDataInput.skip(n);
+        n = Math.min(remain, n);
+        position += n;
+        return n;
     }
 
 
@@ -112,42 +109,44 @@ public class SeekableInputConstrainedWrapper extends InputStream {
     //
 
     public void seekAbsolute(long absolutePosition) throws IOException {
-        ensureReadyOnFirstUse();
-        // The wrapper exists in a different coordinate system,
-        //   where its beginning is location 0
         if (absolutePosition < 0L)
             throw new IOException("Attempt to absolutely seek to negative location: " + absolutePosition);
         // It's alright to seek beyond the end, it's just that read operations will fail
-        absolutePosition += filePositionOfStreamData;
-        streamDataInput.seekAbsolute(absolutePosition);
+        position = absolutePosition;
     }
 
     public void seekRelative(long relativeOffset) throws IOException {
-        ensureReadyOnFirstUse();
-        long pos = streamDataInput.getAbsolutePosition();
-        pos += relativeOffset;
-        if (pos < filePositionOfStreamData)
-            pos = filePositionOfStreamData;
+        long pos = position + relativeOffset;
+        if (pos < 0L)
+            pos = 0L;
         // It's alright to seek beyond the end, it's just that read operations will fail
-        streamDataInput.seekAbsolute(pos);
+        position = pos;
     }
 
     public void seekEnd() throws IOException {
-        ensureReadyOnFirstUse();
-        streamDataInput.seekAbsolute(filePositionOfStreamData + lengthOfStreamData);
+        position = lengthOfStreamData;
     }
 
     public long getAbsolutePosition() throws IOException {
-        ensureReadyOnFirstUse();
-        long absolutePosition = getAbsolutePosition();
-        absolutePosition -= filePositionOfStreamData;
-        return absolutePosition;
+        return position;
     }
 
     public long getLength() {
         return lengthOfStreamData;
     }
 
+    /**
+     * Gets a read-only view of the whole section, see
+     * {@link SeekableInput#getByteBuffer(long, int)}.  The position of this
+     * wrapper is not used or changed.
+     *
+     * @return read-only buffer of the section's bytes.
+     * @throws IOException if an I/O error occurs.
+     */
+    public ByteBuffer getByteBuffer() throws IOException {
+        return streamDataInput.getByteBuffer(filePositionOfStreamData, (int) lengthOfStreamData);
+    }
+
     // To access InputStream methods, call this instead of casting
     // This InputStream has to support mark(), reset(), and obviously markSupported()
     public InputStream getInputStream() {
@@ -160,7 +159,7 @@ public class SeekableInputConstrainedWrapper extends InputStream {
         sb.append(" ( ");
         sb.append("pos=").append(filePositionOfStreamData).append(", ");
         sb.append("len=").append(lengthOfStreamData).append(", ");
-        sb.append("posToRestore=").append(filePositionBeforeUse).append(", ");
+        sb.append("readPos=").append(position).append(", ");
         sb.append(" ) ");
         sb.append(": ");
         if (streamDataInput == null)
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A private, buffered read position over a shared SeekableInput.  All reads
+ * are made with {@link SeekableInput#read(long, byte[], int, int)} so the
+ * shared position of the underlying input is never used, which allows each
+ * thread to parse objects from the same document without locking.
+ * <br>
+ * A cursor is intended to be used by one thread at a time, closing it does
+ * not close the underlying input.
+ *
+ * @since 6.3.3
+ */
+public class SeekableInputCursor extends InputStream implements SeekableInput {
+
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    private SeekableInput source;
+
+    private byte[] buffer;
+    // absolute position of buffer[0] and number of valid bytes in buffer.
+    private long bufferPosition;
+    private int bufferLength;
+
+    private long position;
+    private long markPosition;
+
+    public SeekableInputCursor(SeekableInput source, long position) {
+        this(source, position, DEFAULT_BUFFER_SIZE);
+    }
+
+    public SeekableInputCursor(SeekableInput source, long position, int bufferSize) {
+        this.source = source;
+        this.position = position;
+        buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Gets the shared input this cursor reads from.
+     *
+     * @return underlying input.
+     */
+    public SeekableInput getSource() {
+        return source;
+    }
+
+    private boolean fill() throws IOException {
+        int read = source.read(position, buffer, 0, buffer.length);
+        bufferPosition = position;
+        bufferLength = read > 0 ? read : 0;
+        return read > 0;
+    }
+
+    //
+    // InputStream overrides
+    //
+
+    public int read() throws IOException {
+        long index = position - bufferPosition;
+        if (index < 0 || index >= bufferLength) {
+            if (!fill()) {
+                return -1;
+            }
+            index = 0;
+        }
+        position++;
+        return buffer[(int) index] & 0xFF;
+    }
+
+    public int read(byte[] buffer) throws IOException {
+        return read(buffer, 0, buffer.length);
+    }
+
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        long index = position - bufferPosition;
+        if (index < 0 || index >= bufferLength) {
+            // large reads go straight to the source.
+            if (length >= this.buffer.length) {
+                int read = source.read(position, buffer, offset, length);
+                if (read > 0) {
+                    position += read;
+                }
+                return read;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            index = 0;
+        }
+        int count = Math.min(length, bufferLength - (int) index);
+        System.arraycopy(this.buffer, (int) index, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    public void close() throws IOException {
+        bufferLength = 0;
+    }
+
+    public int available() {
+        try {
+            return (int) Math.max(0, Math.min(source.getLength() - position, Integer.MAX_VALUE));
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public void mark(int readLimit) {
+        markPosition = position;
+    }
+
+    public boolean markSupported() {
+        return true;
+    }
+
+    public void reset() throws IOException {
+        position = markPosition;
+    }
+
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(n, Math.max(0, source.getLength() - position));
+        position += skipped;
+        return skipped;
+    }
+
+    //
+    // SeekableInput implementation
+    //  (which are not already covered by InputStream overrides)
+    //
+
+    public void seekAbsolute(long absolutePosition) throws IOException {
+        if (absolutePosition < 0L) {
+            throw new IOException("Attempt to absolutely seek to negative location: " + absolutePosition);
+        }
+        position = absolutePosition;
+    }
+
+    public void seekRelative(long relativeOffset) throws IOException {
+        long pos = position + relativeOffset;
+        if (pos < 0L)
+            pos = 0L;
+        position = pos;
+    }
+
+    public void seekEnd() throws IOException {
+        position = source.getLength();
+    }
+
+    public long getAbsolutePosition() {
+        return position;
+    }
+
+    public long getLength() throws IOException {
+        return source.getLength();
+    }
+
+    public InputStream getInputStream() {
+        return this;
+    }
+
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        return source.read(position, buffer, offset, length);
+    }
+
+    public ByteBuffer getByteBuffer(long position, int length) throws IOException {
+        return source.getByteBuffer(position, length);
+    }
+
+    // a cursor is confined to one thread, so there is nothing to regulate.
+    public void beginThreadAccess() {
+    }
+
+    public void endThreadAccess() {
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * SeekableInput over an InputStream that is transferred on a background
+ * thread.  The first memoryLimit bytes are kept in memory, anything after
+ * that is spilled to a temporary file, so heap use is bounded no matter how
+ * large the document is.
+ * <br>
+ * Parsing can start as soon as the input is created, reads of bytes that
+ * haven't arrived yet block until they do.  If the length of the stream is
+ * known up front, a Content-Length for example, getLength() answers it right
+ * away, otherwise it blocks until the whole stream has been transferred.
+ *
+ * @since 6.3.3
+ */
+public class SpillingSeekableInput extends InputStream implements SeekableInput {
+
+    private static final Logger logger =
+            Logger.getLogger(SpillingSeekableInput.class.toString());
+
+    private static final int TRANSFER_BUFFER_SIZE = 8192;
+
+    private InputStream source;
+    private final int memoryLimit;
+    // declared length of the source, -1 if unknown.
+    private final long expectedLength;
+    private final Thread transfer;
+
+    // first memoryLimit bytes, grown as data arrives.
+    private volatile byte[] memory;
+    // everything past memoryLimit.
+    private File spillFile;
+    private RandomAccessFile spillAccess;
+    private FileChannel spillChannel;
+
+    // state shared with the transfer thread, guarded by this.
+    private long received;
+    private boolean complete;
+    private IOException failure;
+    private volatile boolean closed;
+
+    private long position;
+    private long markPosition;
+    private final byte[] single = new byte[1];
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Creates a new input and starts transferring the source on a background
+     * thread.  The source must not be closed until {@link #awaitTransfer()}
+     * returns.
+     *
+     * @param source      stream to transfer.
+     * @param memoryLimit number of bytes to keep in memory before spilling to disk.
+     */
+    public SpillingSeekableInput(InputStream source, int memoryLimit) {
+        this(source, memoryLimit, -1);
+    }
+
+    /**
+     * Creates a new input of a known length and starts transferring the
+     * source on a background thread.
+     *
+     * @param source      stream to transfer.
+     * @param memoryLimit number of bytes to keep in memory before spilling to disk.
+     * @param length      number of bytes the source will deliver, -1 if unknown.
+     */
+    public SpillingSeekableInput(InputStream source, int memoryLimit, long length) {
+        this.source = source;
+        this.memoryLimit = Math.max(memoryLimit, TRANSFER_BUFFER_SIZE);
+        expectedLength = length;
+        memory = new byte[(int) Math.min(this.memoryLimit, length > 0 ? length : 64 * 1024)];
+        transfer = new Thread(this::transfer, "ICEpdf-spilling-input");
+        transfer.setDaemon(true);
+        transfer.start();
+    }
+
+    private void transfer() {
+        byte[] buffer = new byte[TRANSFER_BUFFER_SIZE];
+        try {
+            int read;
+            while (!closed && (read = source.read(buffer, 0, buffer.length)) >= 0) {
+                if (read > 0) {
+                    append(buffer, read);
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+            }
+            logger.log(Level.FINE, "Error transferring document stream.", e);
+        } finally {
+            synchronized (this) {
+                // drop any unused capacity if everything fit in memory.
+                if (failure == null && spillFile == null && memory.length > received) {
+                    byte[] trimmed = new byte[(int) received];
+                    System.arraycopy(memory, 0, trimmed, 0, trimmed.length);
+                    memory = trimmed;
+                }
+                complete = true;
+                notifyAll();
+            }
+        }
+    }
+
+    private void append(byte[] buffer, int length) throws IOException {
+        long start;
+        synchronized (this) {
+            start = received;
+        }
+        int offset = 0;
+        if (start < memoryLimit) {
+            int count = (int) Math.min(length, memoryLimit - start);
+            byte[] memory = this.memory;
+            if (start + count > memory.length) {
+                long size = Math.max(memory.length * 2L, start + count);
+                byte[] grown = new byte[(int) Math.min(size, memoryLimit)];
+                System.arraycopy(memory, 0, grown, 0, (int) start);
+                memory = grown;
+                this.memory = grown;
+            }
+            System.arraycopy(buffer, 0, memory, (int) start, count);
+            offset = count;
+        }
+        if (offset < length) {
+            // checked under the lock, close() must not leave a spill file behind.
+            synchronized (this) {
+                if (closed) {
+                    throw new IOException("Stream closed");
+                }
+                if (spillChannel == null) {
+                    spillFile = File.createTempFile("ICEpdfSpill", ".tmp");
+                    spillAccess = new RandomAccessFile(spillFile, "rw");
+                    spillChannel = spillAccess.getChannel();
+                }
+                ByteBuffer data = ByteBuffer.wrap(buffer, offset, length - offset);
+                long filePosition = start + offset - memoryLimit;
+                while (data.hasRemaining()) {
+                    filePosition += spillChannel.write(data, filePosition);
+                }
+            }
+        }
+        synchronized (this) {
+            received = start + length;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until at least end bytes have arrived or the transfer is over.
+     *
+     * @return number of bytes received.
+     */
+    private synchronized long awaitAvailable(long end) throws IOException {
+        try {
+            while (received < end && !complete) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for document data");
+        }
+        if (failure != null && received < end) {
+            throw failure;
+        }
+        return received;
+    }
+
+    /**
+     * Blocks until the whole source has been transferred.  The source stream
+     * can be closed once this returns.
+     *
+     * @throws IOException if the transfer failed.
+     */
+    public void awaitTransfer() throws IOException {
+        awaitAvailable(Long.MAX_VALUE);
+    }
+
+    /**
+     * Indicates part of the stream was spilled to disk.
+     *
+     * @return true if a temporary file is in use.
+     */
+    public synchronized boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        if (position < 0) {
+            return -1;
+        }
+        long available = awaitAvailable(position + length);
+        if (position >= available) {
+            return -1;
+        }
+        length = (int) Math.min(length, available - position);
+        int read = 0;
+        if (position < memoryLimit) {
+            int count = (int) Math.min(length, memoryLimit - position);
+            System.arraycopy(memory, (int) position, buffer, offset, count);
+            read = count;
+        }
+        if (read < length) {
+            FileChannel channel;
+            synchronized (this) {
+                channel = spillChannel;
+            }
+            if (channel == null) {
+                throw new IOException("Stream closed");
+            }
+            ByteBuffer data = ByteBuffer.wrap(buffer, offset + read, length - read);
+            long filePosition = position + read - memoryLimit;
+            while (data.hasRemaining()) {
+                int count = channel.read(data, filePosition);
+                if (count < 0) {
+                    break;
+                }
+                filePosition += count;
+            }
+            read = length - data.remaining();
+        }
+        return read;
+    }
+
+    //
+    // InputStream overrides
+    //
+
+    public int read() throws IOException {
+        int read = read(position, single, 0, 1);
+        if (read <= 0) {
+            return -1;
+        }
+        position++;
+        return single[0] & 0xFF;
+    }
+
+    public int read(byte[] buffer) throws IOException {
+        return read(buffer, 0, buffer.length);
+    }
+
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int read = read(position, buffer, offset, length);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    public void close() throws IOException {
+        FileChannel channel;
+        synchronized (this) {
+            closed = true;
+            channel = spillChannel;
+            spillChannel = null;
+        }
+        // stop a transfer blocked on the source.
+        transfer.interrupt();
+        if (channel != null) {
+            spillAccess.close();
+            if (!spillFile.delete()) {
+                logger.fine("Could not delete spill file " + spillFile);
+            }
+        }
+    }
+
+    public synchronized int available() {
+        return (int) Math.max(0, Math.min(received - position, Integer.MAX_VALUE));
+    }
+
+    public void mark(int readLimit) {
+        markPosition = position;
+    }
+
+    public boolean markSupported() {
+        return true;
+    }
+
+    public void reset() throws IOException {
+        position = markPosition;
+    }
+
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long available = awaitAvailable(position + n);
+        long skipped = Math.min(n, Math.max(0, available - position));
+        position += skipped;
+        return skipped;
+    }
+
+    //
+    // SeekableInput implementation
+    //  (which are not already covered by InputStream overrides)
+    //
+
+    public void seekAbsolute(long absolutePosition) throws IOException {
+        if (absolutePosition < 0L) {
+            throw new IOException("Attempt to absolutely seek to negative location: " + absolutePosition);
+        }
+        position = absolutePosition;
+    }
+
+    public void seekRelative(long relativeOffset) throws IOException {
+        long pos = position + relativeOffset;
+        if (pos < 0L)
+            pos = 0L;
+        position = pos;
+    }
+
+    public void seekEnd() throws IOException {
+        position = getLength();
+    }
+
+    public long getAbsolutePosition() throws IOException {
+        return position;
+    }
+
+    public long getLength() throws IOException {
+        synchronized (this) {
+            if (!complete && expectedLength >= 0) {
+                return expectedLength;
+            }
+        }
+        awaitTransfer();
+        synchronized (this) {
+            return received;
+        }
+    }
+
+    public InputStream getInputStream() {
+        return this;
+    }
+
+    public void beginThreadAccess() {
+        lock.lock();
+    }
+
+    public void endThreadAccess() {
+        lock.unlock();
+    }
+
+    public String toString() {
+        synchronized (this) {
+            return super.toString() + " ( received=" + received + ", complete=" + complete +
+                    ", spilled=" + (spillFile != null) + " ) ";
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * RangeFetcher that uses HTTP range requests.  The server must report the
+ * content length and accept byte ranges, otherwise the constructor fails
+ * and the document should be loaded as a whole.
+ *
+ * @since 6.3.3
+ */
+public class UrlRangeFetcher implements RangeFetcher {
+
+    private final URL url;
+    private final long length;
+
+    /**
+     * Creates a new fetcher for the given url, a HEAD request is made to
+     * check that ranges are supported.
+     *
+     * @param url location of the document.
+     * @throws IOException if the server doesn't support byte ranges or the
+     *                     length of the document is unknown.
+     */
+    public UrlRangeFetcher(URL url) throws IOException {
+        this.url = url;
+        URLConnection connection = url.openConnection();
+        if (!(connection instanceof HttpURLConnection)) {
+            throw new IOException("Range requests are not supported by " + url);
+        }
+        HttpURLConnection httpConnection = (HttpURLConnection) connection;
+        try {
+            httpConnection.setRequestMethod("HEAD");
+            if (httpConnection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected response " + httpConnection.getResponseCode() + " for " + url);
+            }
+            if (!"bytes".equalsIgnoreCase(httpConnection.getHeaderField("Accept-Ranges"))) {
+                throw new IOException("Byte ranges are not accepted for " + url);
+            }
+            length = httpConnection.getContentLengthLong();
+            if (length <= 0) {
+                throw new IOException("Unknown content length for " + url);
+            }
+        } finally {
+            httpConnection.disconnect();
+        }
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public int fetch(long position, byte[] buffer, int offset, int length) throws IOException {
+        if (position >= this.length) {
+            return -1;
+        }
+        length = (int) Math.min(length, this.length - position);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty("Range", "bytes=" + position + "-" + (position + length - 1));
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                throw new IOException("Range request failed with " + connection.getResponseCode() + " for " + url);
+            }
+            InputStream in = connection.getInputStream();
+            try {
+                int total = 0;
+                while (total < length) {
+                    int read = in.read(buffer, offset + total, length - total);
+                    if (read < 0) {
+                        break;
+                    }
+                    total += read;
+                }
+                return total;
+            } finally {
+                in.close();
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    public void close() {
+    }
+
+    public String toString() {
+        return super.toString() + " : " + url;
+    }
+}
@@ -27,6 +27,13 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * Cross reference entries are stored in parallel primitive arrays indexed by
+ * object number, the entry type, the file offset or object stream number and
+ * the generation number or index within the object stream.  Entry objects are
+ * only created as a view when an entry is looked up.  Object numbers far past
+ * the end of the dense range, as found in some malformed files, are kept in a
+ * map instead so they can't blow up the size of the arrays.
+ *
  * @author Mark Collette
  * @since 2.0
  */
@@ -40,11 +47,27 @@ public class CrossReference {
     public static final Name INDEX_KEY = new Name("Index");
     public static final Name W_KEY = new Name("W");
 
+    // dense range grows to cover object numbers up to this far past twice the entry count.
+    private static final int DENSE_SLACK = 64 * 1024;
+
     /**
-     * Map of all the objects in reference by the CrossReference table.  Ojbects
-     * are retrieved by object number.
+     * Entries of the objects referenced by the CrossReference table, indexed
+     * by object number.  A type of zero marks a missing entry, free entries
+     * aren't stored.  Writes are guarded by this, readers see all writes that
+     * happened before the last update of modCount.
      */
-    private ConcurrentHashMap<Integer, Entry> hObjectNumber2Entry;
+    private byte[] entryTypes;
+    // file position of used entries, object stream number of compressed entries.
+    private long[] entryFirstFields;
+    // generation number of used entries, index within the object stream of compressed entries.
+    private int[] entrySecondFields;
+    private int entryCount;
+    // entries with object numbers outside of the dense range.
+    private ConcurrentHashMap<Integer, Entry> sparseEntries;
+    private int maxObjectNumber;
+    // highest object number held in the dense entry arrays.
+    private int maxDenseObjectNumber;
+    private volatile int modCount;
     /**
      * In a Linearized PDF, we don't want to load all Trailers and their XRefs
      * upfront, but would rather load the first upfront, and then lazily load
@@ -67,17 +90,38 @@ public class CrossReference {
     protected int offset;
 
     public CrossReference() {
-        hObjectNumber2Entry = new ConcurrentHashMap<Integer, Entry>(4096);
+        entryTypes = new byte[1024];
+        entryFirstFields = new long[1024];
+        entrySecondFields = new int[1024];
+        sparseEntries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates a cross reference from entry arrays indexed by object number,
+     * as returned by {@link #getEntryTypes()}, {@link #getEntryFirstFields()}
+     * and {@link #getEntrySecondFields()}.  The arrays are used as is.
+     */
+    CrossReference(byte[] types, long[] firstFields, int[] secondFields) {
+        entryTypes = types;
+        entryFirstFields = firstFields;
+        entrySecondFields = secondFields;
+        sparseEntries = new ConcurrentHashMap<>();
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] != 0) {
+                entryCount++;
+                maxObjectNumber = i;
+                maxDenseObjectNumber = i;
+            }
+        }
+        modCount = entryCount;
     }
 
     public void setTrailer(PTrailer trailer) {
         pTrailer = trailer;
     }
 
-    public int getNextAvailableReferenceNumber() {
-        List<Integer> objectNumbers = Collections.list(hObjectNumber2Entry.keys());
-        Collections.sort(objectNumbers);
-        return objectNumbers.get(objectNumbers.size() - 1) + 1;
+    public synchronized int getNextAvailableReferenceNumber() {
+        return maxObjectNumber + 1;
     }
 
     /**
@@ -213,10 +257,31 @@ public class CrossReference {
     }
 
     public Entry getEntryForObject(Integer objectNumber) {
-        Entry entry = hObjectNumber2Entry.get(objectNumber);
+        return getEntryForObject(objectNumber.intValue());
+    }
+
+    public Entry getEntryForObject(int objectNumber) {
+        Entry entry = getLocalEntry(objectNumber);
         if (entry != null)
             return entry;
         /// fall back code to look for another xref table.
+        loadPeer();
+        if (xrefPeer != null) {
+            entry = xrefPeer.getEntryForObject(objectNumber);
+            if (entry != null)
+                return entry;
+        }
+
+        loadPrevious();
+        if (xrefPrevious != null) {
+            entry = xrefPrevious.getEntryForObject(objectNumber);
+            if (entry != null)
+                return entry;
+        }
+        return entry;
+    }
+
+    private void loadPeer() {
         if (bIsCrossReferenceTable && !bHaveTriedLoadingPeer &&
                 xrefPeer == null && pTrailer != null) {
             // Lazily load xrefPeer, using pTrailer
@@ -224,24 +289,138 @@ public class CrossReference {
             xrefPeer = pTrailer.getCrossReferenceStream();
             bHaveTriedLoadingPeer = true;
         }
-        if (xrefPeer != null) {
-            entry = xrefPeer.getEntryForObject(objectNumber);
-            if (entry != null)
-                return entry;
-        }
+    }
 
+    private void loadPrevious() {
         if (!bHaveTriedLoadingPrevious &&
                 xrefPrevious == null && pTrailer != null) {
             // Lazily load xrefPrevious, using pTrailer
             pTrailer.onDemandLoadAndSetupPreviousTrailer();
             bHaveTriedLoadingPrevious = true;
         }
+    }
+
+    /**
+     * Builds a single table holding the entries this table resolves, its own
+     * and those of the peer and previous tables it falls back to, which are
+     * loaded if they haven't been already.  Entries of the merged table are
+     * corrected for any offset and it has no fallbacks of its own.
+     *
+     * @return merged cross reference.
+     */
+    public CrossReference getMergedCrossReference() {
+        // lookup order, the first table with an entry wins.
+        List<CrossReference> chain = new ArrayList<>();
+        Set<CrossReference> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        collectChain(chain, visited);
+        CrossReference merged = new CrossReference();
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            merged.putAll(chain.get(i));
+        }
+        return merged;
+    }
+
+    private void collectChain(List<CrossReference> chain, Set<CrossReference> visited) {
+        // guard against Prev entries pointing back into the chain.
+        if (!visited.add(this)) {
+            return;
+        }
+        chain.add(this);
+        loadPeer();
+        if (xrefPeer != null) {
+            xrefPeer.collectChain(chain, visited);
+        }
+        loadPrevious();
         if (xrefPrevious != null) {
-            entry = xrefPrevious.getEntryForObject(objectNumber);
-            if (entry != null)
-                return entry;
+            xrefPrevious.collectChain(chain, visited);
         }
-        return entry;
+    }
+
+    /**
+     * Checks if the table {@link #getMergedCrossReference()} builds would hold
+     * entries outside of its dense entry arrays, going by the highest object
+     * number and the entry count of the whole chain.  The fallbacks are
+     * loaded as for a merge, but no entries are copied.
+     */
+    boolean isMergedSparse() {
+        List<CrossReference> chain = new ArrayList<>();
+        collectChain(chain, Collections.newSetFromMap(new IdentityHashMap<>()));
+        long entries = 0;
+        int max = 0;
+        for (CrossReference crossReference : chain) {
+            synchronized (crossReference) {
+                entries += crossReference.entryCount + crossReference.sparseEntries.size();
+                max = Math.max(max, crossReference.maxObjectNumber);
+            }
+        }
+        return max >= 2 * entries + DENSE_SLACK;
+    }
+
+    private void putAll(CrossReference other) {
+        byte[] types;
+        long[] firstFields;
+        int[] secondFields;
+        List<Entry> otherSparseEntries;
+        synchronized (other) {
+            types = other.getEntryTypes();
+            firstFields = other.getEntryFirstFields();
+            secondFields = other.getEntrySecondFields();
+            otherSparseEntries = new ArrayList<>(other.sparseEntries.values());
+        }
+        for (int objectNumber = 0; objectNumber < types.length; objectNumber++) {
+            if (types[objectNumber] == Entry.TYPE_USED) {
+                addUsedEntry(objectNumber, firstFields[objectNumber] + other.offset, secondFields[objectNumber]);
+            } else if (types[objectNumber] == Entry.TYPE_COMPRESSED) {
+                addCompressedEntry(objectNumber, (int) firstFields[objectNumber], secondFields[objectNumber]);
+            }
+        }
+        for (Entry entry : otherSparseEntries) {
+            if (entry instanceof UsedEntry) {
+                UsedEntry usedEntry = (UsedEntry) entry;
+                addUsedEntry(entry.getObjectNumber(), usedEntry.getFilePositionOfObject(),
+                        usedEntry.getGenerationNumber());
+            } else if (entry instanceof CompressedEntry) {
+                CompressedEntry compressedEntry = (CompressedEntry) entry;
+                addCompressedEntry(entry.getObjectNumber(), compressedEntry.getObjectNumberOfContainingObjectStream(),
+                        compressedEntry.getIndexWithinObjectStream());
+            }
+        }
+    }
+
+    /**
+     * Checks if any entries are held outside of the dense entry arrays, such
+     * entries aren't returned by {@link #getEntryTypes()}.
+     */
+    synchronized boolean hasSparseEntries() {
+        return !sparseEntries.isEmpty();
+    }
+
+    private int denseSize() {
+        return entryCount == 0 ? 0 : Math.min(maxDenseObjectNumber + 1, entryTypes.length);
+    }
+
+    /**
+     * Copy of the entry types of this table, indexed by object number up to
+     * the highest object number held in the dense entry arrays.
+     */
+    synchronized byte[] getEntryTypes() {
+        return Arrays.copyOf(entryTypes, denseSize());
+    }
+
+    /**
+     * Copy of the file positions, or object stream numbers, of the entries
+     * of this table, without any offset correction.
+     */
+    synchronized long[] getEntryFirstFields() {
+        return Arrays.copyOf(entryFirstFields, denseSize());
+    }
+
+    /**
+     * Copy of the generation numbers, or indexes within the object stream,
+     * of the entries of this table.
+     */
+    synchronized int[] getEntrySecondFields() {
+        return Arrays.copyOf(entrySecondFields, denseSize());
     }
 
     public void addToEndOfChainOfPreviousXRefs(CrossReference prev) {
@@ -257,13 +436,70 @@ public class CrossReference {
     }
 
     protected void addUsedEntry(int objectNumber, long filePositionOfObject, int generationNumber) {
-        UsedEntry entry = new UsedEntry(objectNumber, filePositionOfObject, generationNumber);
-        hObjectNumber2Entry.put(objectNumber, entry);
+        putEntry(Entry.TYPE_USED, objectNumber, filePositionOfObject, generationNumber);
     }
 
     protected void addCompressedEntry(int objectNumber, int objectNumberOfContainingObjectStream, int indexWithinObjectStream) {
-        CompressedEntry entry = new CompressedEntry(objectNumber, objectNumberOfContainingObjectStream, indexWithinObjectStream);
-        hObjectNumber2Entry.put(objectNumber, entry);
+        putEntry(Entry.TYPE_COMPRESSED, objectNumber, objectNumberOfContainingObjectStream, indexWithinObjectStream);
+    }
+
+    private synchronized void putEntry(int type, int objectNumber, long firstField, int secondField) {
+        if (objectNumber < 0) {
+            return;
+        }
+        if (objectNumber >= entryTypes.length &&
+                objectNumber < 2L * entryCount + DENSE_SLACK) {
+            int capacity = Math.max(entryTypes.length, 1024);
+            while (capacity <= objectNumber) {
+                capacity = capacity < Integer.MAX_VALUE / 2 ? capacity * 2 : Integer.MAX_VALUE - 8;
+            }
+            entryTypes = Arrays.copyOf(entryTypes, capacity);
+            entryFirstFields = Arrays.copyOf(entryFirstFields, capacity);
+            entrySecondFields = Arrays.copyOf(entrySecondFields, capacity);
+        }
+        if (objectNumber < entryTypes.length) {
+            if (entryTypes[objectNumber] == 0) {
+                entryCount++;
+                if (!sparseEntries.isEmpty()) {
+                    sparseEntries.remove(objectNumber);
+                }
+            }
+            entryTypes[objectNumber] = (byte) type;
+            entryFirstFields[objectNumber] = firstField;
+            entrySecondFields[objectNumber] = secondField;
+            maxDenseObjectNumber = Math.max(maxDenseObjectNumber, objectNumber);
+        } else if (type == Entry.TYPE_USED) {
+            sparseEntries.put(objectNumber, new UsedEntry(objectNumber, firstField, secondField));
+        } else {
+            sparseEntries.put(objectNumber, new CompressedEntry(objectNumber, (int) firstField, secondField));
+        }
+        maxObjectNumber = Math.max(maxObjectNumber, objectNumber);
+        modCount++;
+    }
+
+    /**
+     * Gets a view of the entry for the object number from this table only.
+     */
+    private Entry getLocalEntry(int objectNumber) {
+        if (modCount == 0 || objectNumber < 0) {
+            return null;
+        }
+        byte[] types = entryTypes;
+        long[] firstFields = entryFirstFields;
+        int[] secondFields = entrySecondFields;
+        // arrays are only replaced by larger copies, check all three in case a grow is in progress.
+        if (objectNumber < types.length && objectNumber < firstFields.length &&
+                objectNumber < secondFields.length) {
+            int type = types[objectNumber];
+            if (type == Entry.TYPE_USED) {
+                return new UsedEntry(objectNumber, firstFields[objectNumber], secondFields[objectNumber]);
+            } else if (type == Entry.TYPE_COMPRESSED) {
+                return new CompressedEntry(objectNumber, (int) firstFields[objectNumber],
+                        secondFields[objectNumber]);
+            }
+        }
+        // entries added before the dense range grew to cover them stay in the map.
+        return sparseEntries.isEmpty() ? null : sparseEntries.get(objectNumber);
     }
 
 
@@ -328,6 +564,8 @@ public class CrossReference {
 
         public void setFilePositionOfObject(long filePositionOfObject) {
             this.filePositionOfObject = filePositionOfObject;
+            // write through to the table this entry is a view of.
+            putEntry(TYPE_USED, getObjectNumber(), filePositionOfObject, generationNumber);
         }
     }
 
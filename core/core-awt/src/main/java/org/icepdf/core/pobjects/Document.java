@@ -30,6 +30,8 @@ import org.icepdf.core.pobjects.security.SecurityManager;
 import org.icepdf.core.util.Defs;
 import org.icepdf.core.util.LazyObjectLoader;
 import org.icepdf.core.util.Library;
+import org.icepdf.core.util.MemoryBudget;
+import org.icepdf.core.util.ParallelObjectScanner;
 import org.icepdf.core.util.Parser;
 import org.icepdf.core.util.updater.IncrementalUpdater;
 
@@ -42,6 +44,7 @@ import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -110,14 +113,33 @@ public class Document {
     // callback for password dialogs, or command line access.
     private SecurityCallback securityCallback;
 
+    // limits the memory held by the document's caches, defaults to the global budget.
+    private MemoryBudget memoryBudget = MemoryBudget.getGlobal();
+
     // disable/enable file caching, overrides fileCachingSize.
     private static boolean isCachingEnabled;
     private static boolean isFileCachingEnabled;
     private static int fileCacheMaxSize;
+    // memory map files opened with setFile, overrides file caching.
+    private static boolean isMemoryMappingEnabled;
+    // cache blocks of files read via a RandomAccessFile.
+    private static boolean isBlockCacheEnabled;
+    // fetch byte ranges of documents opened with setUrl on demand.
+    private static boolean isRangeLoadingEnabled;
+    // bytes of an uncached input stream kept in memory before spilling to disk.
+    private static int streamMemoryLimit;
+    // rebuild the cross reference of damaged files with a parallel scan.
+    private static boolean isParallelRepairEnabled;
+    private static long parallelRepairMinSize;
+
+    private static boolean isSidecarEnabled;
+    private static File sidecarDirectory;
 
     // repository of all PDF object associated with this document.
     private Library library = null;
     private SeekableInput documentSeekableInput;
+    // file whose cross reference sidecar is used, set while a file is loaded.
+    private File sidecarSource;
 
     static {
         // sets if file caching is enabled or disabled.
@@ -128,6 +150,26 @@ public class Document {
         isFileCachingEnabled = Defs.sysPropertyBoolean("org.icepdf.core.filecache.enabled",
                 true);
         fileCacheMaxSize = Defs.intProperty("org.icepdf.core.filecache.size", 200000000);
+
+        isMemoryMappingEnabled = Defs.sysPropertyBoolean("org.icepdf.core.memorymapping.enabled",
+                false);
+
+        isBlockCacheEnabled = Defs.sysPropertyBoolean("org.icepdf.core.io.blockCache.enabled",
+                false);
+
+        isRangeLoadingEnabled = Defs.sysPropertyBoolean("org.icepdf.core.rangeLoading.enabled",
+                false);
+
+        streamMemoryLimit = Defs.intProperty("org.icepdf.core.streamcache.memoryLimit", 64 * 1024 * 1024);
+
+        isParallelRepairEnabled = Defs.sysPropertyBoolean("org.icepdf.core.parallelRepair.enabled",
+                false);
+        parallelRepairMinSize = Defs.intProperty("org.icepdf.core.parallelRepair.minSize", 16 * 1024 * 1024);
+
+        isSidecarEnabled = Defs.sysPropertyBoolean("org.icepdf.core.sidecar.enabled",
+                false);
+        sidecarDirectory = new File(Defs.sysProperty("org.icepdf.core.sidecar.directory",
+                new File(System.getProperty("java.io.tmpdir"), "icepdf-sidecar").getPath()));
     }
 
     /**
@@ -185,6 +227,9 @@ public class Document {
 
     /**
      * Load a PDF file from the given path and initiates the document's Catalog.
+     * If the system property org.icepdf.core.memorymapping.enabled=true, the
+     * file is memory mapped in segments rather then being copied into memory
+     * or read via a RandomAccessFile, which also allows files larger then 2GB.
      *
      * @param filepath path of PDF document.
      * @throws PDFException         if an invalid file encoding.
@@ -196,20 +241,27 @@ public class Document {
             throws PDFException, PDFSecurityException, IOException {
         setDocumentOrigin(filepath);
         File file = new File(filepath);
-        FileInputStream inputStream = new FileInputStream(file);
-        int fileLength = inputStream.available();
-        if (isFileCachingEnabled && file.length() > 0 && fileLength <= fileCacheMaxSize) {
-            // copy the file contents into byte[], for direct memory mapping.
-            byte[] data = new byte[fileLength];
-            inputStream.read(data);
-            setByteArray(data, 0, fileLength, filepath);
-        } else {
-            RandomAccessFileInputStream rafis =
-                    RandomAccessFileInputStream.build(new File(filepath));
-            setInputStream(rafis);
-        }
-        if (inputStream != null) {
-            inputStream.close();
+        sidecarSource = isSidecarEnabled ? file : null;
+        try {
+            if (isMemoryMappingEnabled) {
+                setInputStream(MemoryMappedFileInputStream.build(file));
+                return;
+            }
+            FileInputStream inputStream = new FileInputStream(file);
+            int fileLength = inputStream.available();
+            if (isFileCachingEnabled && file.length() > 0 && fileLength <= fileCacheMaxSize) {
+                // copy the file contents into byte[], for direct memory mapping.
+                byte[] data = new byte[fileLength];
+                inputStream.read(data);
+                setByteArray(data, 0, fileLength, filepath);
+            } else {
+                setInputStream(buildFileInput(file));
+            }
+            if (inputStream != null) {
+                inputStream.close();
+            }
+        } finally {
+            sidecarSource = null;
         }
     }
 
@@ -218,6 +270,10 @@ public class Document {
      * If the system property org.icepdf.core.streamcache.enabled=true, the file
      * will be cached to a temp file; otherwise, the complete document stream will
      * be stored in memory.
+     * <br>
+     * If the system property org.icepdf.core.rangeLoading.enabled=true and the
+     * server accepts HTTP range requests, only the sections of the file that are
+     * needed are downloaded, see {@link #setRangeFetcher(RangeFetcher, String)}.
      *
      * @param url location of file.
      * @throws PDFException         an invalid file encoding.
@@ -227,6 +283,18 @@ public class Document {
      */
     public void setUrl(URL url)
             throws PDFException, PDFSecurityException, IOException {
+        if (isRangeLoadingEnabled) {
+            RangeFetcher fetcher = null;
+            try {
+                fetcher = new UrlRangeFetcher(url);
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Range requests not available, downloading complete file.", e);
+            }
+            if (fetcher != null) {
+                setRangeFetcher(fetcher, url.toString());
+                return;
+            }
+        }
         InputStream in = null;
         try {
             // make a connection
@@ -237,7 +305,8 @@ public class Document {
 
             String pathOrURL = url.toString();
 
-            setInputStream(in, pathOrURL);
+            // a known length lets parsing start on the trailer before the whole file arrives.
+            setInputStream(in, urlConnection.getContentLengthLong(), pathOrURL);
         } finally {
             if (in != null) {
                 in.close();
@@ -245,11 +314,34 @@ public class Document {
         }
     }
 
+    /**
+     * Load a PDF file whose bytes are fetched on demand, in ranges, from the
+     * given fetcher and initiates the document's Catalog.  Parsing starts right
+     * away and only the sections of the file that are parsed are fetched.  If the
+     * file is linearized the first page section is fetched with one request so
+     * the first page can be shown before the rest of the file is transferred.
+     *
+     * @param fetcher   source of the document's byte ranges.
+     * @param pathOrURL value assigned to document origin
+     * @throws PDFException         an invalid stream or file encoding
+     * @throws PDFSecurityException if a security provider can not be found
+     *                              or there is an error decrypting the file.
+     * @throws IOException          if a problem fetching, setting up, or parsing the file.
+     */
+    public void setRangeFetcher(RangeFetcher fetcher, String pathOrURL)
+            throws PDFException, PDFSecurityException, IOException {
+        setDocumentOrigin(pathOrURL);
+        setInputStream(new RangeFetchSeekableInput(fetcher));
+    }
+
     /**
      * Load a PDF file from the given input stream and initiates the document's Catalog.
      * If the system property org.icepdf.core.streamcache.enabled=true, the file
-     * will be cached to a temp file; otherwise, the complete document stream will
-     * be stored in memory.
+     * will be cached to a temp file; otherwise, the document stream will be
+     * stored in memory up to org.icepdf.core.streamcache.memoryLimit bytes (default
+     * 64MB) and any remaining bytes spilled to a temp file.  Parsing starts while
+     * the stream is still being read.  A memory limit of zero or less keeps the
+     * complete document stream in memory.
      *
      * @param in        input stream containing PDF data
      * @param pathOrURL value assigned to document origin
@@ -260,9 +352,27 @@ public class Document {
      */
     public void setInputStream(InputStream in, String pathOrURL)
             throws PDFException, PDFSecurityException, IOException {
+        setInputStream(in, -1, pathOrURL);
+    }
+
+    private void setInputStream(InputStream in, long streamLength, String pathOrURL)
+            throws PDFException, PDFSecurityException, IOException {
         setDocumentOrigin(pathOrURL);
 
-        if (!isCachingEnabled) {
+        if (!isCachingEnabled && streamMemoryLimit > 0) {
+            SpillingSeekableInput spillingInput = new SpillingSeekableInput(in, streamMemoryLimit, streamLength);
+            boolean loaded = false;
+            try {
+                setInputStream(spillingInput);
+                // the caller owns the stream, don't return until it's no longer needed.
+                spillingInput.awaitTransfer();
+                loaded = true;
+            } finally {
+                if (!loaded) {
+                    spillingInput.close();
+                }
+            }
+        } else if (!isCachingEnabled) {
 //System.out.println("Started  downloading PDF to memory : " + (new java.util.Date()));
             // read into memory first
             ConservativeSizingByteArrayOutputStream byteArrayOutputStream =
@@ -318,9 +428,7 @@ public class Document {
             setDocumentCachedFilePath(tempFile.getAbsolutePath());
 
             // finally read the cached file
-            RandomAccessFileInputStream rafis =
-                    RandomAccessFileInputStream.build(tempFile);
-            setInputStream(rafis);
+            setInputStream(buildFileInput(tempFile));
         }
     }
 
@@ -376,10 +484,24 @@ public class Document {
             setDocumentCachedFilePath(tempFile.getAbsolutePath());
 
             // finally read the cached file
-            RandomAccessFileInputStream rafis =
-                    RandomAccessFileInputStream.build(tempFile);
-            setInputStream(rafis);
+            setInputStream(buildFileInput(tempFile));
+        }
+    }
+
+    /**
+     * Opens the given file with a RandomAccessFile, wrapped in a block cache
+     * if the cache has been enabled.
+     *
+     * @param file file to open.
+     * @return seekable input for the file.
+     * @throws IOException if the file can't be opened.
+     */
+    private SeekableInput buildFileInput(File file) throws IOException {
+        RandomAccessFileInputStream rafis = RandomAccessFileInputStream.build(file);
+        if (isBlockCacheEnabled) {
+            return new BlockCachedSeekableInput(rafis);
         }
+        return rafis;
     }
 
     /**
@@ -422,17 +544,34 @@ public class Document {
             //ProgressMonitorInputStream monitor = null;
 
             boolean loaded = false;
+            XRefSidecar sidecar = null;
+            long startXRef = -1;
             try {
-                loadDocumentViaXRefs(in);
+                if (sidecarSource != null) {
+                    startXRef = readStartXRef(in);
+                    sidecar = loadDocumentViaSidecar(in, startXRef);
+                }
+                if (sidecar == null) {
+                    loadDocumentViaXRefs(in);
+                }
 
                 // initiate the catalog, build the outline for the document
                 // this is the best test to see if everything is in order.
                 if (catalog != null) {
                     catalog.init();
+                    if (sidecar != null) {
+                        catalog.getPageTree().setPageIndex(
+                                sidecar.getPageObjectNumbers(), sidecar.getPageGenerations());
+                    }
                     // check to see if we can locate the first level of pages,  to check offset validity
                     // as sometimes xref 'drift' will still allow the catalog to be parsed but error out later.
                     HashMap entries = catalog.getPageTree().entries;
                     List<Reference> kidsReferences = (List<Reference>) library.getObject(entries, PageTree.KIDS_KEY);
+                    // only check the first kid of a range fetched document, visiting all of
+                    // them would fetch most of the file before the first page can be shown.
+                    if (in instanceof RangeFetchSeekableInput && kidsReferences.size() > 1) {
+                        kidsReferences = kidsReferences.subList(0, 1);
+                    }
                     kidsReferences.forEach(item -> {
                         Object page = library.getObject(item);
                         if (!(page instanceof Page || page instanceof PageTree || page instanceof Reference)) {
@@ -442,6 +581,9 @@ public class Document {
                 }
 
                 loaded = true;
+                if (sidecarSource != null && sidecar == null) {
+                    writeSidecarInBackground(startXRef);
+                }
             } catch (PDFException | PDFSecurityException e) {
                 throw e;
             } catch (Exception e) {
@@ -462,7 +604,21 @@ public class Document {
                 pTrailer = null;
 
                 in.seekAbsolute(0L);
-                loadDocumentViaLinearTraversal(in);
+                boolean repaired = false;
+                if (isParallelRepairEnabled && in.getLength() >= parallelRepairMinSize) {
+                    repaired = loadDocumentViaParallelScan(in);
+                    if (!repaired) {
+                        library = new Library();
+                        pTrailer = null;
+                        catalog = null;
+                        in.seekAbsolute(0L);
+                    }
+                }
+                if (!repaired) {
+                    loadDocumentViaLinearTraversal(in);
+                } else if (sidecarSource != null) {
+                    writeSidecarInBackground(startXRef);
+                }
 
                 // initiate the catalog, build the outline for the document
                 if (catalog != null) {
@@ -473,6 +629,7 @@ public class Document {
             // create new instance of state manager and add it to the library
             stateManager = new StateManager(pTrailer);
             library.setStateManager(stateManager);
+            library.setMemoryBudget(memoryBudget);
         } catch (PDFException e) {
             logger.log(Level.FINE, "Error loading PDF file during linear parse.", e);
             dispose();
@@ -487,6 +644,199 @@ public class Document {
         }
     }
 
+    /**
+     * Rebuilds the cross reference of a damaged document from the object
+     * markers found by a {@link ParallelObjectScanner}.  Unlike the linear
+     * traversal nothing is parsed up front, objects are loaded lazily from
+     * the rebuilt table, compressed objects are found through any cross
+     * reference streams that could be parsed.
+     *
+     * @param in input stream to parse
+     * @return true if a catalog was found, false if the document should be
+     * loaded via linear traversal instead.
+     * @throws PDFException         an invalid stream or file encoding
+     * @throws PDFSecurityException if a security provider can not be found
+     *                              or there is an error decrypting the file.
+     */
+    private boolean loadDocumentViaParallelScan(SeekableInput in)
+            throws PDFException, PDFSecurityException, InterruptedException, IOException {
+        ParallelObjectScanner.Result scan = new ParallelObjectScanner(in).scan();
+        if (scan.getObjectCount() == 0) {
+            return false;
+        }
+
+        // objects in file order, so later revisions replace earlier ones.
+        CrossReference crossReference = new CrossReference();
+        for (int i = 0, max = scan.getObjectCount(); i < max; i++) {
+            crossReference.addUsedEntry(scan.getObjectNumber(i), scan.getObjectOffset(i), scan.getGeneration(i));
+        }
+
+        // merge the trailer dictionaries, the last revision wins.
+        HashMap<Object, Object> trailerDictionary = new HashMap<>();
+        for (Long trailerOffset : scan.getTrailerOffsets()) {
+            Object trailer = parseObjectAt(in, trailerOffset);
+            if (trailer instanceof PTrailer) {
+                trailerDictionary.putAll(((PTrailer) trailer).getEntries());
+            }
+        }
+        // cross reference streams hold the entries of compressed objects, most recent first.
+        List<Long> xrefObjectOffsets = scan.getXRefObjectOffsets();
+        for (int i = xrefObjectOffsets.size() - 1; i >= 0; i--) {
+            Object trailer = parseObjectAt(in, xrefObjectOffsets.get(i));
+            if (trailer instanceof PTrailer) {
+                PTrailer xrefStreamTrailer = (PTrailer) trailer;
+                for (Map.Entry<Object, Object> entry : xrefStreamTrailer.getEntries().entrySet()) {
+                    trailerDictionary.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+                crossReference.addToEndOfChainOfPreviousXRefs(xrefStreamTrailer.getPrimaryCrossReference());
+            }
+        }
+        // the offsets of the old sections can't be trusted.
+        trailerDictionary.remove(PTrailer.PREV_KEY);
+        trailerDictionary.remove(PTrailer.XREFSTM_KEY);
+        PTrailer documentTrailer = new PTrailer(library, trailerDictionary, crossReference, null);
+
+        LazyObjectLoader lol = new LazyObjectLoader(library, in, crossReference);
+        library.setLazyObjectLoader(lol);
+
+        catalog = documentTrailer.getRootCatalog();
+        List<Long> catalogObjectOffsets = scan.getCatalogObjectOffsets();
+        for (int i = catalogObjectOffsets.size() - 1; i >= 0 && catalog == null; i--) {
+            Object object = parseObjectAt(in, catalogObjectOffsets.get(i));
+            if (object instanceof Catalog) {
+                catalog = (Catalog) object;
+            }
+        }
+        if (catalog == null) {
+            return false;
+        }
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Rebuilt cross reference from scan: " + scan);
+        }
+
+        pTrailer = documentTrailer;
+        library.setCatalog(catalog);
+
+        boolean madeSecurityManager = makeSecurityManager(documentTrailer);
+        if (madeSecurityManager) {
+            attemptAuthorizeSecurityManager();
+        }
+        // setup a signature handler
+        configurePermissions();
+        return true;
+    }
+
+    /**
+     * Loads the document from its cross reference sidecar, if there is an up
+     * to date one.
+     *
+     * @param in        input stream to parse
+     * @param startXRef startxref offset of the document
+     * @return sidecar the document was loaded from, null if it should be
+     * loaded via its cross references instead.
+     * @throws PDFException         an invalid stream or file encoding
+     * @throws PDFSecurityException if a security provider can not be found
+     */
+    private XRefSidecar loadDocumentViaSidecar(SeekableInput in, long startXRef)
+            throws PDFException, PDFSecurityException {
+        File sidecarFile = XRefSidecar.getSidecarFile(sidecarDirectory, sidecarSource);
+        XRefSidecar sidecar = XRefSidecar.read(sidecarFile, sidecarSource, startXRef);
+        if (sidecar == null) {
+            return null;
+        }
+        PTrailer documentTrailer = new PTrailer(
+                library, sidecar.getTrailerDictionary(), sidecar.getCrossReference(), null);
+        documentTrailer.setPosition(sidecar.getTrailerPosition());
+
+        LazyObjectLoader lol = new LazyObjectLoader(library, in, sidecar.getCrossReference());
+        library.setLazyObjectLoader(lol);
+
+        catalog = documentTrailer.getRootCatalog();
+        if (catalog == null) {
+            logger.warning("Ignoring cross reference sidecar without a catalog " + sidecarFile);
+            library = new Library();
+            library.setDocumentInput(in);
+            return null;
+        }
+        pTrailer = documentTrailer;
+        library.setCatalog(catalog);
+        // sidecars aren't written for encrypted documents.
+        configurePermissions();
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Loaded cross reference from sidecar " + sidecarFile);
+        }
+        return sidecar;
+    }
+
+    /**
+     * Writes the cross reference sidecar of the document being loaded on a
+     * library thread, walking the page tree for the page index can take a
+     * while for large documents.
+     *
+     * @param startXRef startxref offset of the document
+     */
+    private void writeSidecarInBackground(final long startXRef) {
+        final File document = sidecarSource;
+        final PTrailer trailer = pTrailer;
+        final Catalog documentCatalog = catalog;
+        if (trailer == null || trailer.getPrimaryCrossReference() == null || documentCatalog == null) {
+            return;
+        }
+        Library.execute(() -> {
+            File sidecarFile = XRefSidecar.getSidecarFile(sidecarDirectory, document);
+            try {
+                // entries outside of the dense range can't be written, don't bother merging.
+                if (trailer.getPrimaryCrossReference().isMergedSparse()) {
+                    return;
+                }
+                CrossReference crossReference = trailer.getPrimaryCrossReference().getMergedCrossReference();
+                List<Reference> pageReferences = documentCatalog.getPageTree().getPageReferences();
+                if (XRefSidecar.write(sidecarFile, document, startXRef, trailer, crossReference, pageReferences) &&
+                        logger.isLoggable(Level.FINE)) {
+                    logger.fine("Wrote cross reference sidecar " + sidecarFile);
+                }
+            } catch (Exception e) {
+                logger.log(Level.FINE, "Error writing cross reference sidecar " + sidecarFile, e);
+            }
+        });
+    }
+
+    /**
+     * Reads the startxref offset, corrected for any junk before the header.
+     *
+     * @return offset, -1 if it can't be read.
+     */
+    private long readStartXRef(SeekableInput in) {
+        try {
+            in.seekAbsolute(0L);
+            int offset = skipPastAnyPrefixJunk(in);
+            return getInitialCrossReferencePosition(in) + offset;
+        } catch (Exception e) {
+            return -1;
+        } finally {
+            try {
+                in.seekAbsolute(0L);
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Error resetting document input.", e);
+            }
+        }
+    }
+
+    private Object parseObjectAt(SeekableInput in, long position) {
+        try {
+            SeekableInput cursor = new SeekableInputCursor(in, position);
+            Parser parser = new Parser(cursor);
+            Object object = parser.getObject(library);
+            if (object instanceof PObject) {
+                object = ((PObject) object).getObject();
+            }
+            return object;
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Error parsing object at " + position, e);
+            return null;
+        }
+    }
+
     /**
      * Uitility method for loading the documents objects from the Xref table.
      *
@@ -986,6 +1336,50 @@ public class Document {
         return stateManager;
     }
 
+    /**
+     * Sets the memory budget the document's caches are held to, the decoded
+     * object streams, the image pool and the display lists of initialized
+     * pages.  Documents use the global budget, {@link MemoryBudget#getGlobal()},
+     * unless one is set.  A budget can be shared by several documents.
+     *
+     * @param memoryBudget memory budget, null for none.
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        if (library != null) {
+            library.setMemoryBudget(memoryBudget);
+        }
+    }
+
+    /**
+     * Gets the memory budget the document's caches are held to.
+     *
+     * @return memory budget, null if none.
+     */
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Gets the estimated memory currently held by the document's caches.
+     *
+     * @return estimated size in bytes, zero if no document is loaded.
+     */
+    public long getMemoryUsage() {
+        return library != null ? library.getMemoryUsage() : 0;
+    }
+
+    /**
+     * Gets the estimated memory currently held by one category of the
+     * document's caches.
+     *
+     * @param category cache category.
+     * @return estimated size in bytes, zero if no document is loaded.
+     */
+    public long getMemoryUsage(MemoryBudget.Category category) {
+        return library != null ? library.getMemoryUsage(category) : 0;
+    }
+
     /**
      * Returns the total number of pages in this document.
      *
@@ -1034,6 +1428,10 @@ public class Document {
      */
     public void dispose() {
 
+        if (library != null) {
+            library.dispose();
+        }
+
         if (documentSeekableInput != null) {
             try {
                 documentSeekableInput.close();
@@ -1326,4 +1724,83 @@ public class Document {
     public static void setCachingEnabled(boolean cachingEnabled) {
         isCachingEnabled = cachingEnabled;
     }
+
+    /**
+     * Sets the memory mapping mode used when opening a file by path.  If enabled
+     * the file is memory mapped, otherwise it is copied into memory or read
+     * via a RandomAccessFile depending on the file caching settings.  This
+     * method must be set before a call to setFile() is called.
+     *
+     * @param memoryMappingEnabled true to enable, otherwise false.
+     */
+    public static void setMemoryMappingEnabled(boolean memoryMappingEnabled) {
+        isMemoryMappingEnabled = memoryMappingEnabled;
+    }
+
+    /**
+     * Sets if documents opened with setUrl() are fetched in ranges, on demand,
+     * when the server supports it.  This method must be set before a call to
+     * setUrl() is called.
+     *
+     * @param rangeLoadingEnabled true to enable, otherwise false.
+     */
+    public static void setRangeLoadingEnabled(boolean rangeLoadingEnabled) {
+        isRangeLoadingEnabled = rangeLoadingEnabled;
+    }
+
+    /**
+     * Sets the number of bytes of a document loaded with setInputStream() or
+     * setUrl() that are kept in memory when caching is disabled, the rest of
+     * the document is spilled to a temp file.  Zero or less keeps the whole
+     * document in memory.  This method must be set before a call to
+     * setInputStream() is called.
+     *
+     * @param memoryLimit memory limit in bytes.
+     */
+    public static void setStreamMemoryLimit(int memoryLimit) {
+        streamMemoryLimit = memoryLimit;
+    }
+
+    /**
+     * Sets if files read via a RandomAccessFile are wrapped in a
+     * {@link BlockCachedSeekableInput}.  This method must be set before a call
+     * to setFile(), setUrl() or setInputStream() is called.  The block cache is
+     * disabled by default, its hit and miss counts are reported by
+     * {@link org.icepdf.core.util.Library#getStatistics()}.
+     *
+     * @param blockCacheEnabled true to enable, otherwise false.
+     */
+    public static void setBlockCacheEnabled(boolean blockCacheEnabled) {
+        isBlockCacheEnabled = blockCacheEnabled;
+    }
+
+    /**
+     * Sets if the cross reference of a damaged document is rebuilt with a
+     * parallel scan of the file rather than a linear traversal that parses
+     * every object.  Only documents of at least minSize bytes are scanned,
+     * smaller files are parsed quickly enough by the linear traversal.  The
+     * scan is disabled by default.
+     *
+     * @param parallelRepairEnabled true to enable, otherwise false.
+     * @param minSize               smallest document, in bytes, repaired with a scan.
+     */
+    public static void setParallelRepairEnabled(boolean parallelRepairEnabled, long minSize) {
+        isParallelRepairEnabled = parallelRepairEnabled;
+        parallelRepairMinSize = minSize;
+    }
+
+    /**
+     * Sets if documents opened with {@link #setFile(String)} keep a sidecar
+     * file with their merged cross reference and page index, so the next
+     * open of the same unchanged file skips parsing the cross reference
+     * sections and walking the page tree.  Sidecars are written in the
+     * background after the first open.  Encrypted documents don't get one.
+     *
+     * @param sidecarEnabled true to enable, otherwise false.
+     * @param directory      directory sidecar files are kept in.
+     */
+    public static void setSidecarEnabled(boolean sidecarEnabled, File directory) {
+        isSidecarEnabled = sidecarEnabled;
+        sidecarDirectory = directory;
+    }
 }
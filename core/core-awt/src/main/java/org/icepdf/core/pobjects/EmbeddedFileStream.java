@@ -3,9 +3,12 @@ package org.icepdf.core.pobjects;
 import org.icepdf.core.pobjects.security.SecurityManager;
 import org.icepdf.core.util.Library;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * If a PDF file contains file specifications that refer to an external file and the PDF file is archived or
@@ -18,6 +21,9 @@ import java.util.HashMap;
  */
 public class EmbeddedFileStream extends Dictionary {
 
+    private static final Logger logger =
+            Logger.getLogger(EmbeddedFileStream.class.toString());
+
     /**
      * An embedded file parameter dictionary that shall contain additional file-specific information.
      */
@@ -111,8 +117,21 @@ public class EmbeddedFileStream extends Dictionary {
      */
     public int getParamUncompressedSize() {
         int size = library.getInt(getParams(), PARAMS_SIZE_KEY);
-        if (size == 0){
-            size = fileStream.getDecodedStreamBytes().length;
+        if (size == 0) {
+            // count the decoded bytes rather then holding them all in memory.
+            InputStream input = fileStream.getDecodedInputStream();
+            if (input != null) {
+                try {
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while ((read = input.read(buffer)) > 0) {
+                        size += read;
+                    }
+                    input.close();
+                } catch (IOException e) {
+                    logger.log(Level.FINE, "Error decoding embedded file stream.", e);
+                }
+            }
         }
         return size;
     }
@@ -123,18 +142,19 @@ public class EmbeddedFileStream extends Dictionary {
      * @return number of bytes in compressed stream.
      */
     public int getCompressedSize() {
-        return fileStream.getRawBytes().length;
+        return fileStream.getRawLength();
     }
 
     /**
      * Gets the file streams decoded data stream which can be used to open or save the file given the appropriate
      * file handler.
      *
-     * @return decoded byte array input stream.
+     * @return decoded input stream, the data is decoded as it is read.
      * @throws IOException io exception during stream decoding.
      */
     public InputStream getDecodedStreamData() throws IOException {
-        return fileStream.getDecodedByteArrayInputStream();
+        InputStream input = fileStream.getDecodedInputStream();
+        return input != null ? input : new ByteArrayInputStream(new byte[0]);
     }
 
     /**
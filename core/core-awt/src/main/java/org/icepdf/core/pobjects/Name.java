@@ -15,6 +15,8 @@
  */
 package org.icepdf.core.pobjects;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Logger;
 
 /**
@@ -35,6 +37,11 @@ import java.util.logging.Logger;
  * <p>Names are similar to References in that objects in a PDF document can be
  * accessed by their use.  The Library class can result in any Name object and return
  * the corresponding PDF object.</p>
+ * <br>
+ * <p>Names created by the parsers are interned, see {@link #intern(String)},
+ * so the same name parsed any number of times is a single instance.  Name
+ * constants register themselves as the canonical instance so dictionary
+ * lookups with a constant key usually succeed on identity.</p>
  *
  * @since 1.1
  */
@@ -45,8 +52,19 @@ public class Name {
 
     private static final int HEX_CHAR = 0X23;
 
+    // canonical instances keyed by the name as it appears in the file, bounded
+    // so a document with an endless supply of distinct names can't grow it forever.
+    private static final int INTERN_LIMIT = 64 * 1024;
+    private static final ConcurrentHashMap<String, Name> interned = new ConcurrentHashMap<>(1024);
+
+    // direct mapped front of the intern table for names read from bytes,
+    // a hit doesn't allocate at all.
+    private static final int BYTE_CACHE_SIZE = 4096;
+    private static final AtomicReferenceArray<Name> byteCache = new AtomicReferenceArray<>(BYTE_CACHE_SIZE);
+
     // String representing the name of the name
     private String name;
+    private int hash;
 
     /**
      * Create a new instance of a Name object.
@@ -56,6 +74,8 @@ public class Name {
     public Name(String name) {
         if (name != null) {
             this.name = convertHexChars(new StringBuilder(name));
+            hash = this.name.hashCode();
+            register(name, this);
         }
     }
 
@@ -65,8 +85,79 @@ public class Name {
      * @param name the name value of the Name object
      */
     public Name(StringBuilder name) {
-
+        String raw = name.toString();
         this.name = convertHexChars(name);
+        hash = this.name.hashCode();
+        register(raw, this);
+    }
+
+    private static void register(String raw, Name name) {
+        if (interned.size() < INTERN_LIMIT) {
+            interned.putIfAbsent(raw, name);
+        }
+    }
+
+    /**
+     * Gets the canonical instance of the name with the given raw value, as
+     * it appears in the file without the leading slash and before any #xx
+     * escapes are converted.
+     *
+     * @param raw raw name value.
+     * @return canonical name instance.
+     */
+    public static Name intern(String raw) {
+        Name name = interned.get(raw);
+        if (name == null) {
+            name = new Name(raw);
+            // the constructor registers the new instance unless another thread got there first.
+            Name canonical = interned.get(raw);
+            if (canonical != null) {
+                name = canonical;
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Gets the canonical instance of the name stored in the given bytes, see
+     * {@link #intern(String)}.  Recently seen ASCII names are found without
+     * allocating.
+     *
+     * @param bytes  buffer containing the raw name.
+     * @param offset offset of the first character after the slash.
+     * @param length length of the name.
+     * @return canonical name instance.
+     */
+    public static Name intern(byte[] bytes, int offset, int length) {
+        int hash = 0;
+        for (int i = offset, max = offset + length; i < max; i++) {
+            int b = bytes[i];
+            if (b < 0 || b == HEX_CHAR) {
+                return intern(new String(bytes, offset, length));
+            }
+            hash = 31 * hash + b;
+        }
+        // for plain ascii names the hash matches the String hash of the name.
+        int slot = (hash ^ (hash >>> 16)) & (BYTE_CACHE_SIZE - 1);
+        Name cached = byteCache.get(slot);
+        if (cached != null && cached.hash == hash && cached.matches(bytes, offset, length)) {
+            return cached;
+        }
+        Name name = intern(new String(bytes, offset, length));
+        byteCache.set(slot, name);
+        return name;
+    }
+
+    private boolean matches(byte[] bytes, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -96,6 +187,9 @@ public class Name {
      *         false, otherwise.
      */
     public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof Name) {
             return equals((Name) obj);
         } else {
@@ -111,7 +205,8 @@ public class Name {
      *         false, otherwise.
      */
     public boolean equals(Name obj) {
-        return obj != null && name.equals(obj.getName());
+        return obj == this ||
+                obj != null && hash == obj.hash && name.equals(obj.getName());
     }
 
     /**
@@ -132,7 +227,7 @@ public class Name {
      * @return a hash code value for this object.
      */
     public int hashCode() {
-        return name.hashCode();
+        return hash;
     }
 
     /**
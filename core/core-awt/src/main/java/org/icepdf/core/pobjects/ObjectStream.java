@@ -15,12 +15,17 @@
  */
 package org.icepdf.core.pobjects;
 
+import org.icepdf.core.io.DirectBufferCache;
 import org.icepdf.core.io.SeekableByteArrayInputStream;
+import org.icepdf.core.io.SeekableByteBufferInputStream;
 import org.icepdf.core.io.SeekableInput;
 import org.icepdf.core.io.SeekableInputConstrainedWrapper;
+import org.icepdf.core.io.SeekableInputCursor;
 import org.icepdf.core.util.Library;
 import org.icepdf.core.util.Parser;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -39,6 +44,7 @@ public class ObjectStream extends Stream {
     public static final Name FIRST_KEY = new Name("First");
 
     private boolean init;
+    // decoded body when it isn't kept in the library's off heap cache.
     private SeekableInput decodedStream;
     private int[] objectNumbers;
     private long[] objectOffset;
@@ -61,11 +67,15 @@ public class ObjectStream extends Stream {
         int numObjects = library.getInt(entries, N_KEY);
         long firstObjectsOffset = library.getLong(entries, FIRST_KEY);
         // get the stream data
-        decodedStream = new SeekableByteArrayInputStream(getDecodedStreamBytes(0));
+        byte[] decoded = getDecodedStreamBytes(0);
+        if (decoded == null) {
+            decoded = new byte[0];
+        }
         objectNumbers = new int[numObjects];
         objectOffset = new long[numObjects];
         try {
-            Parser parser = new Parser(decodedStream);
+            SeekableInput header = new SeekableByteArrayInputStream(decoded);
+            Parser parser = new Parser(header);
             for (int i = 0; i < numObjects; i++) {
                 objectNumbers[i] = parser.getIntSurroundedByWhitespace();
                 objectOffset[i] = parser.getLongSurroundedByWhitespace() + firstObjectsOffset;
@@ -74,6 +84,67 @@ public class ObjectStream extends Stream {
             logger.log(Level.SEVERE,
                     "Error loading object stream instance: ", e);
         }
+        storeDecodedStream(decoded);
+    }
+
+    /**
+     * Moves the decoded body to the library's off heap cache if there is one,
+     * otherwise it's kept on the heap for the life of this object stream.
+     */
+    private ByteBuffer storeDecodedStream(byte[] decoded) {
+        DirectBufferCache<Reference> cache = library.getObjectStreamCache();
+        Reference reference = getPObjectReference();
+        if (cache != null && reference != null) {
+            ByteBuffer body = cache.put(reference, decoded, 0, decoded.length);
+            if (body != null) {
+                return body;
+            }
+        }
+        decodedStream = new SeekableByteArrayInputStream(decoded);
+        return null;
+    }
+
+    /**
+     * Gets the decoded body, decoding the stream again if it was evicted
+     * from the off heap cache.
+     */
+    private synchronized SeekableInput getDecodedStream() {
+        if (decodedStream != null) {
+            return decodedStream;
+        }
+        ByteBuffer body = library.getObjectStreamCache().get(getPObjectReference());
+        if (body == null) {
+            byte[] decoded = getDecodedStreamBytes(0);
+            body = storeDecodedStream(decoded != null ? decoded : new byte[0]);
+            if (body == null) {
+                return decodedStream;
+            }
+        }
+        return new SeekableByteBufferInputStream(body);
+    }
+
+    /**
+     * Gets the approximate heap used by the decoded stream; the body, unless
+     * it's kept off heap, and the object offset tables.
+     *
+     * @return size in bytes.
+     */
+    public synchronized long getMemorySize() {
+        long size = 64;
+        if (decodedStream != null) {
+            try {
+                size += decodedStream.getLength();
+            } catch (IOException e) {
+                // in memory stream, doesn't happen.
+            }
+        }
+        if (objectNumbers != null) {
+            size += objectNumbers.length * 4L;
+        }
+        if (objectOffset != null) {
+            size += objectOffset.length * 8L;
+        }
+        return size;
     }
 
     public Object loadObject(Library library, int objectIndex) {
@@ -86,12 +157,12 @@ public class ObjectStream extends Stream {
             return null;
         }
         try {
-            decodedStream.beginThreadAccess();
             int objectNumber = objectNumbers[objectIndex];
             long position = objectOffset[objectIndex];
-            long previousPosition = decodedStream.getAbsolutePosition();
-            decodedStream.seekAbsolute(position);
-            Parser parser = new Parser(decodedStream, Parser.PARSE_MODE_OBJECT_STREAM);
+            // parse with a private cursor so objects in the same stream can be
+            // loaded concurrently.
+            SeekableInput cursor = new SeekableInputCursor(getDecodedStream(), position);
+            Parser parser = new Parser(cursor, Parser.PARSE_MODE_OBJECT_STREAM);
             // Parser.getObject() either does 1 of 3 things:
             // 1. Gets a core object (Dictionary or Stream), adds it to Library
             //    by object Reference, returns PObject
@@ -111,15 +182,10 @@ public class ObjectStream extends Stream {
                 ((Dictionary) ob).setPObjectReference(
                         new Reference(objectNumber, 0));
             }
-            // put the cursor back in the original position just encase we are dealing
-            // with two object in the same stream.
-            decodedStream.seekAbsolute(previousPosition);
             return ob;
         } catch (Exception e) {
             logger.log(Level.FINE, "Error loading PDF object.", e);
             return null;
-        } finally {
-            decodedStream.endThreadAccess();
         }
     }
 }
@@ -16,11 +16,13 @@
 package org.icepdf.core.pobjects;
 
 import org.icepdf.core.events.*;
+import org.icepdf.core.io.SeekableByteArrayInputStream;
 import org.icepdf.core.io.SeekableInput;
 import org.icepdf.core.pobjects.annotations.Annotation;
 import org.icepdf.core.pobjects.annotations.FreeTextAnnotation;
 import org.icepdf.core.pobjects.annotations.MarkupAnnotation;
 import org.icepdf.core.pobjects.annotations.PopupAnnotation;
+import org.icepdf.core.pobjects.graphics.EncodedShapes;
 import org.icepdf.core.pobjects.graphics.Shapes;
 import org.icepdf.core.pobjects.graphics.WatermarkCallback;
 import org.icepdf.core.pobjects.graphics.text.GlyphText;
@@ -29,6 +31,7 @@ import org.icepdf.core.pobjects.graphics.text.PageText;
 import org.icepdf.core.pobjects.graphics.text.WordText;
 import org.icepdf.core.util.*;
 import org.icepdf.core.util.parser.content.ContentParser;
+import org.icepdf.core.util.parser.content.OperandStack;
 
 import java.awt.*;
 import java.awt.geom.*;
@@ -36,6 +39,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -172,12 +176,40 @@ public class Page extends Dictionary {
 
     // resources for page's parent pages, default fonts, etc.
     private Resources resources;
+    // load a page's object graph in file offset order before initializing.
+    private static boolean isPrefetchEnabled;
+
+    // paint the display list while the content parser is still building it.
+    private static boolean isProgressivePaintEnabled;
+    // longest wait, in ms, between checks that a background init is done.
+    private static final long PAINTABLE_WAIT = 50;
+    // keep a compact encoding of display lists released by the memory budget.
+    private static boolean isEncodedShapesEnabled;
+    // store the encodings in direct buffers, off of the Java heap.
+    private static boolean isEncodedShapesDirect;
+
+    static {
+        isPrefetchEnabled = Defs.sysPropertyBoolean("org.icepdf.core.page.prefetch.enabled",
+                false);
+        isProgressivePaintEnabled = Defs.sysPropertyBoolean(
+                "org.icepdf.core.page.progressivePaint.enabled", false);
+        isEncodedShapesEnabled = Defs.sysPropertyBoolean(
+                "org.icepdf.core.page.encodedShapes.enabled", false);
+        isEncodedShapesDirect = Defs.sysPropertyBoolean(
+                "org.icepdf.core.page.encodedShapes.direct", false);
+    }
+
     // Vector of annotations
     private List<Annotation> annotations;
     // Contents
     private List<Stream> contents;
     // Container for all shapes stored on page
-    private Shapes shapes = null;
+    private volatile Shapes shapes = null;
+    // display list the content parser is still adding to, if painted progressively.
+    private volatile Shapes parsingShapes;
+    private final Object paintableLock = new Object();
+    // compact copy of a display list released by the memory budget.
+    private volatile EncodedShapes encodedShapes;
 
     // the collection of objects listening for page paint events
     private final List<PaintPageListener> paintPageListeners = new ArrayList<>(8);
@@ -208,6 +240,9 @@ public class Page extends Dictionary {
 
     private WatermarkCallback watermarkCallback;
 
+    // strong references to prefetched objects, the library only holds weak ones.
+    private volatile List<Object> prefetchedObjects;
+
     /**
      * Create a new Page object.  A page object represents a PDF object that
      * has the name page associated with it.  It also conceptually represents
@@ -224,6 +259,137 @@ public class Page extends Dictionary {
         return inited;
     }
 
+    /**
+     * Loads the page's resources, annotations and content streams, along with
+     * everything they reference, in file offset order.  Sorting the loads
+     * turns what would otherwise be a series of random seeks into a single
+     * forward sweep over the file, which matters for documents read from
+     * network file systems or with range requests.  The loaded objects are
+     * held until the next call to init() completes.
+     * <br>
+     * Documents that are held in memory are skipped.
+     *
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public synchronized void prefetch() throws InterruptedException {
+        if (inited || prefetchedObjects != null ||
+                library.getDocumentInput() instanceof SeekableByteArrayInputStream) {
+            return;
+        }
+        Object resourceRoot = entries.get(RESOURCES_KEY);
+        if (resourceRoot == null) {
+            PageTree pageTree = getParent();
+            while (pageTree != null && resourceRoot == null) {
+                resourceRoot = pageTree.getEntries().get(RESOURCES_KEY);
+                pageTree = pageTree.getParent();
+            }
+        }
+        prefetchedObjects = new ObjectPrefetcher(library).prefetch(
+                resourceRoot, entries.get(ANNOTS_KEY), entries.get(CONTENTS_KEY));
+    }
+
+    /**
+     * Sets if init() prefetches the page's objects in file offset order.
+     * Prefetching is disabled by default.
+     *
+     * @param prefetchEnabled true to enable, otherwise false.
+     */
+    public static void setPrefetchEnabled(boolean prefetchEnabled) {
+        isPrefetchEnabled = prefetchEnabled;
+    }
+
+    /**
+     * Sets if init() builds the page's display list so it can be painted
+     * while the content streams are still being parsed.  Painting then starts
+     * as soon as the first draw commands are parsed, rather than after the
+     * whole page has been parsed, and paint page listeners are notified as
+     * the paint catches up with the parser.
+     *
+     * @param progressivePaintEnabled true to enable, otherwise false.
+     */
+    public static void setProgressivePaintEnabled(boolean progressivePaintEnabled) {
+        isProgressivePaintEnabled = progressivePaintEnabled;
+    }
+
+    public static boolean isProgressivePaintEnabled() {
+        return isProgressivePaintEnabled;
+    }
+
+    /**
+     * Sets if the display list of a page released by the memory budget is
+     * kept in a compact binary encoding.  The page can then be painted
+     * straight from the encoding, and init() decodes it rather than parsing
+     * the page's content streams again.
+     *
+     * @param encodedShapesEnabled true to keep an encoding of released pages.
+     * @param direct               true to store the encodings in direct
+     *                             buffers, off of the Java heap.
+     */
+    public static void setEncodedShapesEnabled(boolean encodedShapesEnabled, boolean direct) {
+        isEncodedShapesEnabled = encodedShapesEnabled;
+        isEncodedShapesDirect = direct;
+    }
+
+    /**
+     * Checks if the page can be painted, it has been initialized, its
+     * content is being parsed progressively or its released display list was
+     * encoded.
+     *
+     * @return true if paint() will paint the page's content.
+     */
+    public boolean isPaintable() {
+        return inited || parsingShapes != null || encodedShapes != null;
+    }
+
+    /**
+     * Initializes the page on the library's page init thread pool and waits
+     * until it can be painted, the calling thread may be a common pool
+     * worker.  With progressive painting enabled that's as
+     * soon as the content parser has started, so the calling thread can paint
+     * the page while it's still being parsed, otherwise it's once the page
+     * is initialized.
+     *
+     * @return the initialization, get() waits for it to complete and reports
+     * any errors.
+     * @throws InterruptedException if the calling thread is interrupted, the
+     *                              initialization is cancelled.
+     */
+    public FutureTask<Object> initInBackground() throws InterruptedException {
+        FutureTask<Object> initTask = new FutureTask<>(() -> {
+            init();
+            return null;
+        });
+        Library.executePageInit(initTask);
+        try {
+            synchronized (paintableLock) {
+                while (!isPaintable() && !initTask.isDone()) {
+                    paintableLock.wait(PAINTABLE_WAIT);
+                }
+            }
+        } catch (InterruptedException e) {
+            initTask.cancel(true);
+            throw e;
+        }
+        return initTask;
+    }
+
+    /**
+     * Queues a {@link #prefetch()} of this page on the library's common
+     * thread pool, so a page can be loaded while the previous one is still
+     * being painted.
+     */
+    public void prefetchInBackground() {
+        Library.execute(() -> {
+            try {
+                prefetch();
+            } catch (InterruptedException e) {
+                logger.finer("Page prefetch interrupted.");
+            } catch (Exception e) {
+                logger.log(Level.FINE, "Error prefetching page " + pageIndex, e);
+            }
+        });
+    }
+
     private void initPageContents() throws InterruptedException {
         Object pageContent = library.getObject(entries, CONTENTS_KEY);
 
@@ -249,7 +415,7 @@ public class Page extends Dictionary {
                 if (tmp instanceof Stream) {
                     Stream tmpStream = (Stream) tmp;
                     // prune any zero length streams,
-                    if (tmpStream != null && tmpStream.getRawBytes().length > 0) {
+                    if (tmpStream != null && tmpStream.getRawLength() > 0) {
                         tmpStream.setPObjectReference((Reference) cont);
                         contents.add(tmpStream);
                     }
@@ -378,6 +544,91 @@ public class Page extends Dictionary {
      */
     public void resetInitializedState() {
         inited = false;
+        // the content has to be parsed again.
+        if (encodedShapes != null) {
+            encodedShapes = null;
+            library.encodedContentReleased(this);
+        }
+    }
+
+    /**
+     * Drops the page's display list to free memory, the page is parsed again
+     * the next time it's initialized.  Called by the document's memory budget
+     * for pages that haven't been used recently.  Painting holds on to the
+     * display list it started with.  Pages with selected or highlighted text
+     * are kept, see {@link #isShapesReleasable()}.
+     * <br>
+     * If encoded shapes are enabled a compact encoding of the display list is
+     * kept, see {@link #setEncodedShapesEnabled(boolean, boolean)}.
+     *
+     * @return true if the page no longer holds a display list, false if it
+     * was kept.
+     */
+    public synchronized boolean releaseShapes() {
+        if (!inited) {
+            return true;
+        }
+        if (!isShapesReleasable()) {
+            return false;
+        }
+        Shapes releasedShapes = shapes;
+        if (isEncodedShapesEnabled && encodedShapes == null && releasedShapes != null) {
+            EncodedShapes encodedShapes = EncodedShapes.encode(releasedShapes, isEncodedShapesDirect);
+            this.encodedShapes = encodedShapes;
+            library.encodedContentLoaded(this, encodedShapes.getMemorySize());
+        }
+        inited = false;
+        pageInitialized = false;
+        shapes = null;
+        return true;
+    }
+
+    /**
+     * Checks if the page's display list can be released.  The selection and
+     * search highlight state lives in the page text, pages with selected or
+     * highlighted text are kept so that state isn't lost.
+     *
+     * @return true if the display list can be released.
+     */
+    public boolean isShapesReleasable() {
+        Shapes shapes = this.shapes;
+        PageText pageText = shapes != null ? shapes.getPageText() : null;
+        return pageText == null || !pageText.hasSelectedOrHighlighted();
+    }
+
+    /**
+     * Drops the encoding of a released display list, the page is parsed again
+     * the next time it's initialized.  Called by the document's memory budget
+     * for encodings that haven't been used recently.
+     *
+     * @return true if the page no longer holds an encoding, false if it was
+     * kept.
+     */
+    public synchronized boolean releaseEncodedShapes() {
+        if (encodedShapes == null) {
+            return true;
+        }
+        if (!isEncodedShapesReleasable()) {
+            return false;
+        }
+        encodedShapes = null;
+        return true;
+    }
+
+    /**
+     * Checks if the page's encoded display list can be released.  The page
+     * text of a page whose display list was released is held by the encoding,
+     * it's kept if the text is selected or highlighted.
+     *
+     * @return true if the encoding can be released.
+     */
+    public boolean isEncodedShapesReleasable() {
+        EncodedShapes encodedShapes = this.encodedShapes;
+        if (shapes != null || encodedShapes == null) {
+            return true;
+        }
+        PageText pageText = encodedShapes.getPageText();
+        return pageText == null || !pageText.hasSelectedOrHighlighted();
     }
 
     /**
@@ -392,6 +643,11 @@ public class Page extends Dictionary {
             }
             pageInitialized = false;
 
+            // load the page's objects in file order before walking them.
+            if (isPrefetchEnabled) {
+                prefetch();
+            }
+
             // get pages resources
             initPageResources();
 
@@ -412,22 +668,21 @@ public class Page extends Dictionary {
             }
 
             /*
-              Finally iterate through the contents vector and concat all of the
-              the resource streams together so that the content parser can
-              go to town and build all of the page's shapes.
+              Finally pass the contents streams to the content parser, which
+              decodes them as it reads them, so that it can go to town and
+              build all of the page's shapes.
              */
             notifyPageInitializationStarted();
-            if (contents != null) {
+            EncodedShapes encodedShapes = this.encodedShapes;
+            if (encodedShapes != null) {
+                // the display list was released but kept encoded, no need to
+                // parse the content again.
+                library.encodedContentUsed(this);
+                shapes = encodedShapes.decode();
+                inited = true;
+            } else if (contents != null) {
                 try {
                     ContentParser cp = new ContentParser(library, resources);
-                    byte[][] streams = new byte[contents.size()][];
-                    byte[] stream;
-                    for (int i = 0, max = contents.size(); i < max; i++) {
-                        stream = contents.get(i).getDecodedStreamBytes();
-                        if (stream != null) {
-                            streams[i] = stream;
-                        }
-                    }
                     // get any optional groups from the catalog, which control
                     // visibility
                     OptionalContent optionalContent =
@@ -436,9 +691,19 @@ public class Page extends Dictionary {
                         optionalContent.init();
                     }
 
-                    // pass in option group references into parse.
-                    if (streams.length > 0) {
-                        shapes = cp.parse(streams, this).getShapes();
+                    // pass in option group references into parse, the
+                    // streams are decoded as they are parsed.
+                    if (!contents.isEmpty()) {
+                        if (isProgressivePaintEnabled) {
+                            Shapes progressiveShapes = new Shapes();
+                            progressiveShapes.setProgressive(true);
+                            cp.setShapes(progressiveShapes);
+                            synchronized (paintableLock) {
+                                parsingShapes = progressiveShapes;
+                                paintableLock.notifyAll();
+                            }
+                        }
+                        shapes = cp.parse(contents, this).getShapes();
                     }
                     // set the initiated flag, first as there are couple corner
                     // cases where the content parsing can call page.init() again
@@ -463,6 +728,20 @@ public class Page extends Dictionary {
             // so we can try to re parse it later.
             inited = false;
             throw new InterruptedException(e.getMessage());
+        } finally {
+            prefetchedObjects = null;
+            // painters of the progressive display list finish with what was parsed.
+            Shapes progressiveShapes = parsingShapes;
+            if (progressiveShapes != null) {
+                progressiveShapes.setProgressive(false);
+            }
+            synchronized (paintableLock) {
+                parsingShapes = null;
+                paintableLock.notifyAll();
+            }
+        }
+        if (inited && shapes != null) {
+            library.pageContentLoaded(this, shapes.getMemorySize());
         }
         notifyPageInitializationEnded(inited);
     }
@@ -536,7 +815,7 @@ public class Page extends Dictionary {
     public void paint(Graphics g, int renderHintType, final int boundary,
                       float userRotation, float userZoom,
                       boolean paintAnnotations, boolean paintSearchHighlight) throws InterruptedException {
-        if (!inited) {
+        if (!isPaintable()) {
             // make sure we don't do a page init on the awt thread in the viewer
             // ri, let the
             return;
@@ -629,8 +908,16 @@ public class Page extends Dictionary {
 
     private void paintPageContent(Graphics2D g2, int renderHintType, float userRotation, float userZoom,
                                   boolean paintAnnotations, boolean paintSearchHighlight) throws InterruptedException {
-        // draw page content
+        // draw page content, shapes can be released by the memory budget while painting.
+        // A display list still being parsed is painted as it grows.
+        Shapes shapes = parsingShapes;
+        if (shapes == null) {
+            shapes = this.shapes;
+        }
+        // a released display list is painted from its encoding.
+        EncodedShapes encodedShapes = shapes == null ? this.encodedShapes : null;
         if (shapes != null) {
+            library.pageContentUsed(this);
             pagePainted = false;
             notifyPagePaintingStarted(shapes.getShapesCount());
             AffineTransform pageTransform = g2.getTransform();
@@ -640,6 +927,17 @@ public class Page extends Dictionary {
             shapes.paint(g2);
             shapes.setPageParent(null);
 
+            g2.setTransform(pageTransform);
+            g2.setClip(pageClip);
+        } else if (encodedShapes != null) {
+            pagePainted = false;
+            library.encodedContentUsed(this);
+            notifyPagePaintingStarted(encodedShapes.getShapesCount());
+            AffineTransform pageTransform = g2.getTransform();
+            Shape pageClip = g2.getClip();
+
+            encodedShapes.paint(g2, this);
+
             g2.setTransform(pageTransform);
             g2.setClip(pageClip);
         } else {
@@ -657,7 +955,7 @@ public class Page extends Dictionary {
         }
         // paint search highlight values
         if (paintSearchHighlight) {
-            PageText pageText = getViewText();
+            PageText pageText = encodedShapes != null ? encodedShapes.getPageText() : getViewText();
             if (pageText != null) {
                 //g2.setComposite(BlendComposite.getInstance(BlendComposite.BlendingMode.MULTIPLY, 1.0f));
                 g2.setComposite(AlphaComposite.getInstance(
@@ -1543,8 +1841,14 @@ public class Page extends Dictionary {
      * @throws InterruptedException thread interrupted.
      */
     public PageText getViewText() throws InterruptedException {
-        if (!inited) {
-            init();
+        // the memory budget can release the shapes at any time, work with a
+        // local copy and only initialize under the page lock.
+        Shapes shapes = this.shapes;
+        if (!inited || shapes == null) {
+            synchronized (this) {
+                init();
+                shapes = this.shapes;
+            }
         }
         if (shapes != null) {
             return shapes.getPageText();
@@ -1609,7 +1913,7 @@ public class Page extends Dictionary {
                 textBlockShapes = cp.parseTextBlocks(streams);
                 // print off any fuzz left on the stack
                 if (logger.isLoggable(Level.FINER)) {
-                    Stack<Object> stack = cp.getStack();
+                    OperandStack stack = cp.getStack();
                     while (!stack.isEmpty()) {
                         String tmp = stack.pop().toString();
                         if (logger.isLoggable(Level.FINE)) {
@@ -1685,7 +1989,8 @@ public class Page extends Dictionary {
         if (!inited) {
             init();
         }
-        return shapes.getImages();
+        Shapes shapes = this.shapes;
+        return shapes != null ? shapes.getImages() : new ArrayList<>();
     }
 
     public Resources getResources() {
@@ -15,12 +15,20 @@
  */
 package org.icepdf.core.pobjects;
 
+import org.icepdf.core.io.RangeFetchSeekableInput;
 import org.icepdf.core.pobjects.graphics.WatermarkCallback;
+import org.icepdf.core.util.Defs;
 import org.icepdf.core.util.Library;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * <p>This class represents a document's page tree which defines the ordering
@@ -49,6 +57,17 @@ public class PageTree extends Dictionary {
     public static final Name ROTATE_KEY = new Name("Rotate");
     public static final Name RESOURCES_KEY = new Name("Resources");
 
+    private static final Logger logger =
+            Logger.getLogger(PageTree.class.toString());
+
+    // build a flat page index for the root page tree.
+    private static boolean isPageIndexEnabled;
+
+    static {
+        isPageIndexEnabled = Defs.sysPropertyBoolean("org.icepdf.core.pageTree.index.enabled",
+                true);
+    }
+
     // Number of leaf nodes
     private int kidsCount = 0;
     // vector of references to leafs
@@ -68,6 +87,12 @@ public class PageTree extends Dictionary {
     // resources. 
     private boolean loadedResources;
     private WatermarkCallback watermarkCallback;
+    // page object and generation numbers by page number, once the index is built.
+    private volatile int[] pageObjectNumbers;
+    private int[] pageGenerations;
+    // sorted (object number << 32 | page number) pairs for reverse lookups.
+    private long[] pageNumbersByObjectNumber;
+    private volatile boolean pageIndexRequested;
 
     /**
      * Inheritable rotation factor by child pages.
@@ -222,6 +247,14 @@ public class PageTree extends Dictionary {
      * is returned.
      */
     public int getPageNumber(Reference r) {
+        if (r == null) {
+            return -1;
+        }
+        int pageNumber = getIndexedPageNumber(r.getObjectNumber());
+        if (pageNumber >= 0) {
+            return pageNumber;
+        }
+        requestPageIndex();
         Object obj = library.getObject(r);
         if (obj instanceof Page) {
             Page pg = (Page) library.getObject(r);
@@ -323,6 +356,157 @@ public class PageTree extends Dictionary {
         return null;
     }
 
+    /**
+     * Sets the object and generation numbers of all the pages under this page
+     * tree, in page order, such as a previous {@link #getPageReferences()}
+     * call found.  Pages are then looked up directly instead of by walking
+     * the tree.  An index that doesn't hold the same number of pages as
+     * the tree's /Count is ignored, so the page count never changes once a
+     * document is open.
+     *
+     * @param objectNumbers page object numbers by page number.
+     * @param generations   page generation numbers by page number.
+     */
+    public void setPageIndex(int[] objectNumbers, int[] generations) {
+        if (objectNumbers.length != generations.length) {
+            throw new IllegalArgumentException("Page index lengths differ");
+        }
+        init();
+        if (objectNumbers.length != kidsCount) {
+            logger.fine("Page index ignored, found " + objectNumbers.length +
+                    " pages but the tree counts " + kidsCount);
+            return;
+        }
+        long[] pageNumbers = new long[objectNumbers.length];
+        for (int i = 0; i < objectNumbers.length; i++) {
+            pageNumbers[i] = ((long) objectNumbers[i] << 32) | i;
+        }
+        Arrays.sort(pageNumbers);
+        pageGenerations = generations;
+        pageNumbersByObjectNumber = pageNumbers;
+        // written last, readers check it first.
+        pageObjectNumbers = objectNumbers;
+    }
+
+    /**
+     * Sets if the root page tree builds a flat index of its pages, on a
+     * library thread, the first time a page is asked for.  Once built, pages
+     * are looked up by number without walking the tree.
+     *
+     * @param pageIndexEnabled true to enable, otherwise false.
+     */
+    public static void setPageIndexEnabled(boolean pageIndexEnabled) {
+        isPageIndexEnabled = pageIndexEnabled;
+    }
+
+    /**
+     * Queues the building of the page index if this is the root of the page
+     * tree and there is no index yet.  Range fetched documents are skipped,
+     * the walk would download most of the file.
+     */
+    private void requestPageIndex() {
+        if (!isPageIndexEnabled || pageIndexRequested || pageObjectNumbers != null) {
+            return;
+        }
+        init();
+        if (parent != null || entries.get(PARENT_KEY) != null ||
+                library.getDocumentInput() instanceof RangeFetchSeekableInput) {
+            return;
+        }
+        pageIndexRequested = true;
+        Library.execute(() -> {
+            try {
+                List<Reference> pageReferences = getPageReferences();
+                int[] objectNumbers = new int[pageReferences.size()];
+                int[] generations = new int[pageReferences.size()];
+                for (int i = 0; i < objectNumbers.length; i++) {
+                    Reference pageReference = pageReferences.get(i);
+                    objectNumbers[i] = pageReference.getObjectNumber();
+                    generations[i] = pageReference.getGenerationNumber();
+                }
+                if (objectNumbers.length > 0 && pageObjectNumbers == null) {
+                    setPageIndex(objectNumbers, generations);
+                }
+            } catch (Exception e) {
+                logger.log(Level.FINE, "Error building page index.", e);
+            }
+        });
+    }
+
+    /**
+     * Gets the page looked up by the page index, if one was set and it
+     * still points at a page.
+     */
+    private Page getIndexedPage(int pageNumber) {
+        int[] objectNumbers = pageObjectNumbers;
+        if (objectNumbers == null || pageNumber >= objectNumbers.length) {
+            return null;
+        }
+        Object page = library.getObject(objectNumbers[pageNumber], pageGenerations[pageNumber]);
+        return page instanceof Page ? (Page) page : null;
+    }
+
+    /**
+     * Gets the page number of an object number from the page index.
+     *
+     * @return page number, -1 if there is no index or it isn't a page.
+     */
+    private int getIndexedPageNumber(int objectNumber) {
+        if (pageObjectNumbers == null) {
+            return -1;
+        }
+        long[] pageNumbers = pageNumbersByObjectNumber;
+        int low = 0;
+        int high = pageNumbers.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleObjectNumber = (int) (pageNumbers[middle] >>> 32);
+            if (middleObjectNumber < objectNumber) {
+                low = middle + 1;
+            } else if (middleObjectNumber > objectNumber) {
+                high = middle - 1;
+            } else {
+                return (int) pageNumbers[middle];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Walks the tree for the references of all its pages, in page order.
+     *
+     * @return page references.
+     */
+    public List<Reference> getPageReferences() {
+        List<Reference> pageReferences = new ArrayList<>(Math.max(kidsCount, 16));
+        Set<Reference> visited = new HashSet<>();
+        if (pObjectReference != null) {
+            visited.add(pObjectReference);
+        }
+        collectPageReferences(pageReferences, visited);
+        return pageReferences;
+    }
+
+    private void collectPageReferences(List<Reference> pageReferences, Set<Reference> visited) {
+        init();
+        for (Object kid : kidsReferences) {
+            // each node is walked once, kids that point back up the tree
+            // or at a node already seen are skipped.
+            if (!(kid instanceof Reference) || !visited.add((Reference) kid)) {
+                continue;
+            }
+            Object pageOrPages = library.getObject((Reference) kid);
+            if (pageOrPages instanceof Page) {
+                pageReferences.add((Reference) kid);
+            } else if (pageOrPages instanceof PageTree) {
+                ((PageTree) pageOrPages).collectPageReferences(pageReferences, visited);
+            } else if (pageOrPages instanceof HashMap &&
+                    ((HashMap) pageOrPages).containsKey(KIDS_KEY)) {
+                new PageTree(library, (HashMap) pageOrPages).collectPageReferences(pageReferences, visited);
+            }
+        }
+    }
+
     /**
      * Sets a page watermark implementation to be painted on top of the page
      * content.  Watermark can be specified for each page or once by calling
@@ -369,13 +553,17 @@ public class PageTree extends Dictionary {
     public Page getPage(int pageNumber) {
         if (pageNumber < 0)
             return null;
-        Page page = getPagePotentiallyNotInitedByRecursiveIndex(pageNumber);
+        Page page = getIndexedPage(pageNumber);
+        if (page == null) {
+            requestPageIndex();
+            page = getPagePotentiallyNotInitedByRecursiveIndex(pageNumber);
+        }
         // pass in the watermark, even null to wipe a previous watermark
         if (page != null) {
             page.setWatermarkCallback(watermarkCallback);
             page.setPageIndex(pageNumber);
         }
-        return getPagePotentiallyNotInitedByRecursiveIndex(pageNumber);
+        return page;
     }
 
     /**
@@ -387,6 +575,10 @@ public class PageTree extends Dictionary {
     public Reference getPageReference(int pageNumber) {
         if (pageNumber < 0)
             return null;
+        int[] objectNumbers = pageObjectNumbers;
+        if (objectNumbers != null && pageNumber < objectNumbers.length) {
+            return new Reference(objectNumbers[pageNumber], pageGenerations[pageNumber]);
+        }
         Page p = getPagePotentiallyNotInitedByRecursiveIndex(pageNumber);
         if (p != null) {
             return p.getPObjectReference();
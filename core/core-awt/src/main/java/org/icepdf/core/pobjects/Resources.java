@@ -75,6 +75,23 @@ public class Resources extends Dictionary {
         return fonts;
     }
 
+    /**
+     * Gets the definition a colour space name resolves to in these resources,
+     * its entry in the colour space or pattern dictionary.
+     *
+     * @param name colour space name.
+     * @return colour space definition, null if the resources don't define it.
+     */
+    public Object getColorSpaceDefinition(Object name) {
+        if (colorspaces != null && colorspaces.get(name) != null) {
+            return colorspaces.get(name);
+        }
+        if (patterns != null && patterns.get(name) != null) {
+            return patterns.get(name);
+        }
+        return null;
+    }
+
     public PColorSpace getColorSpace(Object o) {
 
         if (o == null) {
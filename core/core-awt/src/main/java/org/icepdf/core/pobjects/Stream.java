@@ -16,6 +16,8 @@
 package org.icepdf.core.pobjects;
 
 import org.icepdf.core.io.BitStream;
+import org.icepdf.core.io.BufferPool;
+import org.icepdf.core.io.ByteBufferInputStream;
 import org.icepdf.core.io.ConservativeSizingByteArrayOutputStream;
 import org.icepdf.core.io.SeekableInputConstrainedWrapper;
 import org.icepdf.core.pobjects.filters.*;
@@ -25,6 +27,9 @@ import org.icepdf.core.util.Library;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -57,8 +62,11 @@ public class Stream extends Dictionary {
     public static final Name FILTER_JBIG2_DECODE = new Name("JBIG2Decode");
     public static final Name FILTER_JPX_DECODE = new Name("JPXDecode");
 
-    // original byte stream that has not been decoded
+    // original byte stream that has not been decoded, only materialized
+    // on request when the stream was loaded from the document input.
     protected byte[] rawBytes;
+    // section of the document input holding the raw bytes, until rawBytes is needed.
+    private SeekableInputConstrainedWrapper rawInput;
 
     protected HashMap decodeParams;
 
@@ -75,10 +83,9 @@ public class Stream extends Dictionary {
      */
     public Stream(Library l, HashMap h, SeekableInputConstrainedWrapper streamInputWrapper) {
         super(l, h);
-        // capture raw bytes for later processing.
-        if (streamInputWrapper != null) {
-            this.rawBytes = getRawStreamBytes(streamInputWrapper);
-        }
+        // keep a reference to the raw bytes for later processing, they are
+        // only copied if getRawBytes() is called.
+        this.rawInput = streamInputWrapper;
         decodeParams = library.getDictionary(entries, DECODEPARAM_KEY);
     }
 
@@ -88,12 +95,63 @@ public class Stream extends Dictionary {
     }
 
 
-    public byte[] getRawBytes() {
+    /**
+     * Gets the raw, undecoded, bytes of the stream.  Streams loaded from a
+     * document input are copied to a byte array on the first call, use
+     * {@link #getRawBuffer()} or {@link #getRawLength()} where a copy isn't
+     * needed.
+     *
+     * @return raw stream bytes.
+     */
+    public synchronized byte[] getRawBytes() {
+        if (rawInput != null) {
+            rawBytes = getRawStreamBytes(rawInput);
+            rawInput = null;
+        }
         return rawBytes;
     }
 
-    public void setRawBytes(byte[] rawBytes) {
+    /**
+     * Gets a read-only view of the raw, undecoded, bytes of the stream.  When
+     * the document is held in memory, or memory mapped, the view is a slice
+     * of the document data and no bytes are copied.
+     *
+     * @return read-only view of the raw stream bytes, null if the stream has
+     * no data.
+     */
+    public ByteBuffer getRawBuffer() {
+        SeekableInputConstrainedWrapper rawInput;
+        byte[] rawBytes;
+        synchronized (this) {
+            rawInput = this.rawInput;
+            rawBytes = this.rawBytes;
+        }
+        if (rawInput != null) {
+            try {
+                return rawInput.getByteBuffer();
+            } catch (IOException e) {
+                logger.warning("IO Error getting stream bytes");
+                return null;
+            }
+        }
+        return rawBytes != null ? ByteBuffer.wrap(rawBytes).asReadOnlyBuffer() : null;
+    }
+
+    /**
+     * Gets the length of the raw, undecoded, stream bytes without copying them.
+     *
+     * @return raw stream length.
+     */
+    public synchronized int getRawLength() {
+        if (rawInput != null) {
+            return (int) rawInput.getLength();
+        }
+        return rawBytes != null ? rawBytes.length : 0;
+    }
+
+    public synchronized void setRawBytes(byte[] rawBytes) {
         this.rawBytes = rawBytes;
+        rawInput = null;
         compressed = false;
     }
 
@@ -111,7 +169,13 @@ public class Stream extends Dictionary {
         int length = (int) streamInputWrapper.getLength();
         byte[] rawBytes = new byte[length];
         try {
-            streamInputWrapper.read(rawBytes, 0, length);
+            int total = 0;
+            while (total < length) {
+                int read = streamInputWrapper.read(rawBytes, total, length - total);
+                if (read <= 0)
+                    break;
+                total += read;
+            }
         } catch (IOException e) {
             logger.warning("IO Error getting stream bytes");
         }
@@ -127,6 +191,39 @@ public class Stream extends Dictionary {
         return new ByteArrayInputStream(getDecodedStreamBytes(0));
     }
 
+    /**
+     * Gets an input stream that decodes the stream data as it is read.  Unlike
+     * {@link #getDecodedStreamBytes()} the decoded data is never held in memory
+     * as a whole, only the fixed size working buffers of the filters are
+     * used, so this is the preferred way to consume large streams.
+     * <br>
+     * The returned stream is independent of any other decoded stream of this
+     * object and should be closed by the caller.
+     *
+     * @return decoded input stream, null if the stream has no data.
+     */
+    public InputStream getDecodedInputStream() {
+        if (!compressed) {
+            byte[] rawBytes = getRawBytes();
+            return rawBytes != null ? new ByteArrayInputStream(rawBytes) : null;
+        }
+        ByteBuffer rawBuffer = getRawBuffer();
+        if (rawBuffer == null) {
+            return null;
+        }
+        return getDecodedInputStream(new ByteBufferInputStream(rawBuffer), rawBuffer.remaining());
+    }
+
+    /**
+     * Channel version of {@link #getDecodedInputStream()}.
+     *
+     * @return channel of decoded stream data, null if the stream has no data.
+     */
+    public ReadableByteChannel getDecodedChannel() {
+        InputStream input = getDecodedInputStream();
+        return input != null ? Channels.newChannel(input) : null;
+    }
+
     public byte[] getDecodedStreamBytes() {
         return getDecodedStreamBytes(8192);
     }
@@ -143,11 +240,9 @@ public class Stream extends Dictionary {
         // decompress the stream
         if (compressed) {
             try {
-                // todo, could nio all a little speed up here.
-                ByteArrayInputStream streamInput = new ByteArrayInputStream(rawBytes);
-                long rawStreamLength = rawBytes.length;
-                InputStream input = getDecodedInputStream(streamInput, rawStreamLength);
+                InputStream input = getDecodedInputStream();
                 if (input == null) return null;
+                long rawStreamLength = getRawLength();
                 int outLength;
                 if (presize > 0) {
                     outLength = presize;
@@ -156,14 +251,18 @@ public class Stream extends Dictionary {
                 }
                 ConservativeSizingByteArrayOutputStream out = new
                         ConservativeSizingByteArrayOutputStream(outLength);
-                byte[] buffer = new byte[(outLength > 4096) ? 4096 : 8192];
-                while (true) {
-                    int read = input.read(buffer);
-                    if (read <= 0)
-                        break;
-                    out.write(buffer, 0, read);
+                byte[] buffer = BufferPool.acquire((outLength > 4096) ? 4096 : 8192);
+                try {
+                    while (true) {
+                        int read = input.read(buffer);
+                        if (read <= 0)
+                            break;
+                        out.write(buffer, 0, read);
+                    }
+                } finally {
+                    input.close();
+                    BufferPool.release(buffer);
                 }
-                input.close();
                 out.flush();
                 out.close();
                 out.trim();
@@ -175,7 +274,7 @@ public class Stream extends Dictionary {
         // we have an edited stream which isn't compressed yet, so just return
         // the raw bytes.
         else {
-            return rawBytes;
+            return getRawBytes();
         }
         return null;
     }
@@ -198,11 +297,10 @@ public class Stream extends Dictionary {
             return null;
         }
 
+        // the raw bytes are already in memory, so unlike the filters the
+        // source doesn't need an extra buffer.
         InputStream input = streamInput;
 
-        int bufferSize = Math.min(Math.max((int) streamLength, 64), 16 * 1024);
-        input = new java.io.BufferedInputStream(input, bufferSize);
-
         // Search for crypt dictionary entry and decode params so that
         // named filters can be assigned correctly.
         SecurityManager securityManager = library.getSecurityManager();
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.pobjects;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sidecar file holding what is needed to reopen a document without parsing
+ * its cross reference sections or walking its page tree; the merged cross
+ * reference entries, the trailer's Size, Root, Info and ID entries and the
+ * page index, stored as big endian primitive arrays so the whole file can
+ * be read with one memory map.
+ * <br>
+ * A sidecar is tied to its document by the document's absolute path, length,
+ * modification time and startxref offset, it's ignored if any of them have
+ * changed.  Sidecars are never written for encrypted documents.
+ *
+ * @since 6.3.3
+ */
+final class XRefSidecar {
+
+    private static final Logger logger =
+            Logger.getLogger(XRefSidecar.class.toString());
+
+    private static final int MAGIC = 0x49435852;
+    private static final int VERSION = 1;
+
+    private final CrossReference crossReference;
+    private final HashMap<Object, Object> trailerDictionary;
+    private final long trailerPosition;
+    private final int[] pageObjectNumbers;
+    private final int[] pageGenerations;
+
+    private XRefSidecar(CrossReference crossReference, HashMap<Object, Object> trailerDictionary,
+                        long trailerPosition, int[] pageObjectNumbers, int[] pageGenerations) {
+        this.crossReference = crossReference;
+        this.trailerDictionary = trailerDictionary;
+        this.trailerPosition = trailerPosition;
+        this.pageObjectNumbers = pageObjectNumbers;
+        this.pageGenerations = pageGenerations;
+    }
+
+    CrossReference getCrossReference() {
+        return crossReference;
+    }
+
+    HashMap<Object, Object> getTrailerDictionary() {
+        return trailerDictionary;
+    }
+
+    long getTrailerPosition() {
+        return trailerPosition;
+    }
+
+    int[] getPageObjectNumbers() {
+        return pageObjectNumbers;
+    }
+
+    int[] getPageGenerations() {
+        return pageGenerations;
+    }
+
+    /**
+     * Gets the sidecar file used for a document, named after a digest of the
+     * document's absolute path.
+     *
+     * @param directory sidecar directory.
+     * @param document  document file.
+     * @return sidecar file, which may not exist.
+     */
+    static File getSidecarFile(File directory, File document) {
+        String path = document.getAbsolutePath();
+        StringBuilder name = new StringBuilder(48);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(path.getBytes(StandardCharsets.UTF_8));
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+        } catch (NoSuchAlgorithmException e) {
+            name.append(Integer.toHexString(path.hashCode()));
+        }
+        return new File(directory, name.append(".xref").toString());
+    }
+
+    /**
+     * Reads the sidecar of a document.
+     *
+     * @param sidecar   sidecar file.
+     * @param document  document file the sidecar should describe.
+     * @param startXRef startxref offset of the document as it is now.
+     * @return sidecar contents, null if there is no sidecar, or it is stale or
+     * unreadable.
+     */
+    static XRefSidecar read(File sidecar, File document, long startXRef) {
+        if (!sidecar.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(sidecar, "r");
+             FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            String path = new String(getBytes(buffer), StandardCharsets.UTF_8);
+            if (!path.equals(document.getAbsolutePath()) ||
+                    buffer.getLong() != document.length() ||
+                    buffer.getLong() != document.lastModified() ||
+                    buffer.getLong() != startXRef) {
+                return null;
+            }
+            long trailerPosition = buffer.getLong();
+
+            HashMap<Object, Object> trailerDictionary = new HashMap<>();
+            trailerDictionary.put(PTrailer.SIZE_KEY, buffer.getInt());
+            trailerDictionary.put(PTrailer.ROOT_KEY, new Reference(buffer.getInt(), buffer.getInt()));
+            int infoObjectNumber = buffer.getInt();
+            int infoGeneration = buffer.getInt();
+            if (infoObjectNumber >= 0) {
+                trailerDictionary.put(PTrailer.INFO_KEY, new Reference(infoObjectNumber, infoGeneration));
+            }
+            if (buffer.get() != 0) {
+                trailerDictionary.put(PTrailer.TYPE_KEY, new Name("XRef"));
+            }
+            int idCount = buffer.getInt();
+            if (idCount > 0) {
+                List<Object> id = new ArrayList<>(idCount);
+                for (int i = 0; i < idCount; i++) {
+                    id.add(new HexStringObject(new String(getBytes(buffer), StandardCharsets.US_ASCII)));
+                }
+                trailerDictionary.put(PTrailer.ID_KEY, id);
+            }
+
+            int entryCount = buffer.getInt();
+            byte[] types = new byte[entryCount];
+            long[] firstFields = new long[entryCount];
+            int[] secondFields = new int[entryCount];
+            buffer.get(types);
+            buffer.asLongBuffer().get(firstFields);
+            buffer.position(buffer.position() + entryCount * 8);
+            buffer.asIntBuffer().get(secondFields);
+            buffer.position(buffer.position() + entryCount * 4);
+
+            int pageCount = buffer.getInt();
+            int[] pageObjectNumbers = new int[pageCount];
+            int[] pageGenerations = new int[pageCount];
+            buffer.asIntBuffer().get(pageObjectNumbers);
+            buffer.position(buffer.position() + pageCount * 4);
+            buffer.asIntBuffer().get(pageGenerations);
+
+            return new XRefSidecar(new CrossReference(types, firstFields, secondFields), trailerDictionary,
+                    trailerPosition, pageObjectNumbers, pageGenerations);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Error reading cross reference sidecar " + sidecar, e);
+            return null;
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes the sidecar for a loaded document.  The sidecar is written to a
+     * temporary file first and then moved in place, so readers never see a
+     * partial file.
+     *
+     * @param sidecar        sidecar file.
+     * @param document       document file.
+     * @param startXRef      startxref offset of the document.
+     * @param trailer        document trailer.
+     * @param crossReference merged cross reference of the document.
+     * @param pageReferences references of the document's pages in page order.
+     * @return true if the sidecar was written, false if the document can't be
+     * described by one.
+     * @throws IOException if the sidecar can't be written.
+     */
+    static boolean write(File sidecar, File document, long startXRef, PTrailer trailer,
+                         CrossReference crossReference, List<Reference> pageReferences) throws IOException {
+        HashMap<Object, Object> entries = trailer.getEntries();
+        Object root = entries.get(PTrailer.ROOT_KEY);
+        Object info = entries.get(PTrailer.INFO_KEY);
+        if (entries.containsKey(PTrailer.ENCRYPT_KEY) || !(root instanceof Reference) ||
+                (info != null && !(info instanceof Reference)) ||
+                crossReference.hasSparseEntries()) {
+            return false;
+        }
+        byte[] types = crossReference.getEntryTypes();
+        long[] firstFields = crossReference.getEntryFirstFields();
+        int[] secondFields = crossReference.getEntrySecondFields();
+
+        File directory = sidecar.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create sidecar directory " + directory);
+        }
+        File temp = File.createTempFile("sidecar", ".tmp", directory);
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeBytes(out, document.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+                out.writeLong(document.length());
+                out.writeLong(document.lastModified());
+                out.writeLong(startXRef);
+                out.writeLong(trailer.getPosition());
+
+                out.writeInt(trailer.getNumberOfObjects());
+                Reference rootReference = (Reference) root;
+                out.writeInt(rootReference.getObjectNumber());
+                out.writeInt(rootReference.getGenerationNumber());
+                Reference infoReference = (Reference) info;
+                out.writeInt(infoReference != null ? infoReference.getObjectNumber() : -1);
+                out.writeInt(infoReference != null ? infoReference.getGenerationNumber() : 0);
+                out.writeByte(trailer.isCompressedXref() ? 1 : 0);
+                List<?> id = trailer.getID();
+                int idCount = 0;
+                if (id != null) {
+                    for (Object part : id) {
+                        if (part instanceof StringObject) {
+                            idCount++;
+                        }
+                    }
+                }
+                out.writeInt(idCount);
+                if (idCount > 0) {
+                    for (Object part : id) {
+                        if (part instanceof StringObject) {
+                            writeBytes(out, ((StringObject) part).getHexString().getBytes(StandardCharsets.US_ASCII));
+                        }
+                    }
+                }
+
+                out.writeInt(types.length);
+                out.write(types);
+                for (long firstField : firstFields) {
+                    out.writeLong(firstField);
+                }
+                for (int secondField : secondFields) {
+                    out.writeInt(secondField);
+                }
+
+                out.writeInt(pageReferences.size());
+                for (Reference pageReference : pageReferences) {
+                    out.writeInt(pageReference.getObjectNumber());
+                }
+                for (Reference pageReference : pageReferences) {
+                    out.writeInt(pageReference.getGenerationNumber());
+                }
+            }
+            try {
+                Files.move(temp.toPath(), sidecar.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(temp.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
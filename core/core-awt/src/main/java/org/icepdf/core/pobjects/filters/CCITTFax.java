@@ -575,7 +575,7 @@ public class CCITTFax {
         else if (k == 0) compression = TIFF_COMPRESSION_GROUP3_1D;
         boolean hasHeader;
 
-        InputStream input = stream.getDecodedByteArrayInputStream();
+        InputStream input = stream.getDecodedInputStream();
         if (input == null)
             return null;
         input = new ZeroPaddedInputStream(input);
@@ -699,7 +699,7 @@ public class CCITTFax {
                         compression = TIFF_COMPRESSION_GROUP3_1D;
 
                     Utils.setShortIntoByteArrayBE(compression, fakeHeaderBytes, 0x42);
-                    input = stream.getDecodedByteArrayInputStream();
+                    input = stream.getDecodedInputStream();
                     if (input == null)
                         return null;
                     input = new ZeroPaddedInputStream(input);
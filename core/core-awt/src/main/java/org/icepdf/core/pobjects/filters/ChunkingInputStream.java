@@ -15,6 +15,8 @@
  */
 package org.icepdf.core.pobjects.filters;
 
+import org.icepdf.core.io.BufferPool;
+
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -42,8 +44,14 @@ public abstract class ChunkingInputStream extends InputStream {
         in = input;
     }
 
+    /**
+     * Sets up a buffer of exactly size bytes, which is taken from the
+     * {@link BufferPool} when possible and given back on close().
+     *
+     * @param size size of the buffer.
+     */
     protected void setBufferSize(int size) {
-        buffer = new byte[size];
+        buffer = BufferPool.acquireExact(size);
     }
 
     /**
@@ -177,6 +185,12 @@ public abstract class ChunkingInputStream extends InputStream {
             in.close();
             in = null;
         }
+        if (buffer != null) {
+            BufferPool.release(buffer);
+            buffer = null;
+            bufferPosition = 0;
+            bufferAvailable = 0;
+        }
     }
 
 
@@ -51,6 +51,7 @@ public class FlateDecode extends ChunkingInputStream {
 
 
     private InputStream originalInputKeptSolelyForDebugging;
+    private Inflater inflater;
     // default values for non image streams.
     private int width = 1;
     private int numComponents = 1;
@@ -115,7 +116,8 @@ public class FlateDecode extends ChunkingInputStream {
             // e.printStackTrace();
         }
         // force support GZIP compatible compression
-        setInputStream(new InflaterInputStream(input, new Inflater(true)));
+        inflater = new Inflater(true);
+        setInputStream(new InflaterInputStream(input, inflater));
         setBufferSize(intermediateBufferSize);
     }
 
@@ -153,6 +155,16 @@ public class FlateDecode extends ChunkingInputStream {
     }
 
 
+    public void close() throws IOException {
+        super.close();
+        // InflaterInputStream only ends inflaters it created itself, free the
+        // native zlib memory now rather then waiting on the garbage collector.
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+    }
+
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(super.toString());
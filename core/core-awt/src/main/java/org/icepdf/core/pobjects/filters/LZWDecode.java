@@ -16,6 +16,7 @@
 package org.icepdf.core.pobjects.filters;
 
 import org.icepdf.core.io.BitStream;
+import org.icepdf.core.io.BufferPool;
 import org.icepdf.core.pobjects.Name;
 import org.icepdf.core.util.Library;
 
@@ -143,8 +144,9 @@ public class LZWDecode extends ChunkingInputStream {
 
     private void addToBuffer(byte b, int offset) {
         if (offset >= buffer.length) { // Should never happen
-            byte[] bufferNew = new byte[buffer.length * 2];
+            byte[] bufferNew = BufferPool.acquireExact(buffer.length * 2);
             System.arraycopy(buffer, 0, bufferNew, 0, buffer.length);
+            BufferPool.release(buffer);
             buffer = bufferNew;
         }
         buffer[offset] = b;
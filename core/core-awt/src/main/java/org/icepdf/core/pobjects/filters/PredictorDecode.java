@@ -1,5 +1,6 @@
 package org.icepdf.core.pobjects.filters;
 
+import org.icepdf.core.io.BufferPool;
 import org.icepdf.core.pobjects.Name;
 import org.icepdf.core.pobjects.graphics.images.ImageParams;
 import org.icepdf.core.util.Library;
@@ -7,6 +8,7 @@ import org.icepdf.core.util.Utils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 
 /**
@@ -109,7 +111,9 @@ public class PredictorDecode extends ChunkingInputStream {
                 width * numComponents * bitsPerComponent);
 
         // last row of data above our current buffer
-        aboveBuffer = new byte[intermediateBufferSize];
+        aboveBuffer = BufferPool.acquireExact(intermediateBufferSize);
+        // the pooled buffer isn't necessarily clean, the first row has nothing above it.
+        Arrays.fill(aboveBuffer, (byte) 0);
         setBufferSize(intermediateBufferSize);
 
         setInputStream(input);
@@ -220,6 +224,14 @@ public class PredictorDecode extends ChunkingInputStream {
         }
     }
 
+    public void close() throws IOException {
+        super.close();
+        if (aboveBuffer != null) {
+            BufferPool.release(aboveBuffer);
+            aboveBuffer = null;
+        }
+    }
+
     private static int applyLeftPredictor(byte[] buffer, int bytesPerPixel, int i) {
         return (((int) buffer[(i - bytesPerPixel)]) & 0xFF);
     }
@@ -19,6 +19,7 @@ import org.icepdf.core.pobjects.Stream;
 import org.icepdf.core.pobjects.fonts.ofont.OFont;
 import org.icepdf.core.util.Defs;
 import org.icepdf.core.util.Library;
+import org.icepdf.core.util.SharedResourceCache;
 import org.icepdf.core.util.SystemProperties;
 
 import java.io.File;
@@ -129,7 +130,33 @@ public class FontFactory {
         return fontDictionary;
     }
 
+    /**
+     * Creates a font file from an embedded font program.  If the shared
+     * resource cache is enabled a font program already loaded by another
+     * document is reused.
+     *
+     * @param fontStream  stream of the embedded font program.
+     * @param fontType    font type, FONT_TYPE_1, FONT_TRUE_TYPE or FONT_OPEN_TYPE.
+     * @param fontSubType FontFile3 subtype, may be null.
+     * @return font file, null if the program couldn't be loaded.
+     */
     public FontFile createFontFile(Stream fontStream, int fontType, String fontSubType) {
+        SharedResourceCache sharedResources = SharedResourceCache.getInstance();
+        if (sharedResources == null) {
+            return loadFontFile(fontStream, fontType, fontSubType);
+        }
+        SharedResourceCache.Key sharedKey = SharedResourceCache.createKey(
+                "FontFile", fontStream, fontType, fontSubType, foundFontEngine());
+        FontFile fontFile = (FontFile) sharedResources.get(sharedKey);
+        if (fontFile == null) {
+            fontFile = loadFontFile(fontStream, fontType, fontSubType);
+            // a parsed font holds several times its compressed size.
+            sharedResources.put(sharedKey, fontFile, fontStream.getRawLength() * 4L);
+        }
+        return fontFile;
+    }
+
+    private FontFile loadFontFile(Stream fontStream, int fontType, String fontSubType) {
         FontFile fontFile = null;
         if (foundFontEngine()) {
             try {
@@ -177,7 +204,7 @@ public class FontFactory {
             // see if the font file can be loaded with Java Fonts
             InputStream in = null;
             try {
-                in = fontStream.getDecodedByteArrayInputStream();
+                in = fontStream.getDecodedInputStream();
                 // make sure we try to load open type fonts as well, done as true type.
                 if (fontType == FONT_OPEN_TYPE) fontType = FONT_TRUE_TYPE;
                 java.awt.Font javaFont = java.awt.Font.createFont(fontType, in);
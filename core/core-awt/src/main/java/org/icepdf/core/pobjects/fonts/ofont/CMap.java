@@ -222,7 +222,7 @@ class CMap extends Dictionary implements org.icepdf.core.pobjects.fonts.CMap {
         try {
             // get the byes and push them through the parser to get objects in CMap
             if (cMapInputStream == null) {
-                cMapInputStream = cMapStream.getDecodedByteArrayInputStream();
+                cMapInputStream = cMapStream.getDecodedInputStream();
             }
 
             // Print CMap ASCII
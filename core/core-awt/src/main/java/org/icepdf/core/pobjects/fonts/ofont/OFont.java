@@ -30,8 +30,8 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.net.URL;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -49,8 +49,9 @@ public class OFont implements FontFile {
     private Rectangle2D maxCharBounds =
             new Rectangle2D.Double(0.0, 0.0, 1.0, 1.0);
 
-    // text layout map, very expensive to create, so we'll cache them.
-    private HashMap<String, Point2D.Float> echarAdvanceCache;
+    // text layout map, very expensive to create, so we'll cache them.  Shared
+    // with derived fonts, which can be used from several threads at once.
+    private ConcurrentHashMap<String, Point2D.Float> echarAdvanceCache;
 
     protected float[] widths;
     protected Map<Integer, Float> cidWidths;
@@ -66,7 +67,7 @@ public class OFont implements FontFile {
     public OFont(Font awtFont) {
         this.awtFont = awtFont;
         maxCharBounds = new Rectangle2D.Double();
-        this.echarAdvanceCache = new HashMap<>(256);
+        this.echarAdvanceCache = new ConcurrentHashMap<>(256);
     }
 
     private OFont(OFont font) {
@@ -0,0 +1,445 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.pobjects.graphics;
+
+import org.icepdf.core.pobjects.Page;
+import org.icepdf.core.pobjects.graphics.commands.*;
+import org.icepdf.core.pobjects.graphics.text.PageText;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compact binary encoding of a Shapes display list.  A parsed page is held as
+ * a long list of small objects, transforms, colours, strokes and paths, each
+ * with its own object header and most with a second object for their data.
+ * EncodedShapes writes those commands into a single byte buffer, on the heap
+ * or off it, and can either paint directly from the buffer or decode it back
+ * into a Shapes object, in both cases without parsing the page's content
+ * streams again.
+ * <br>
+ * Commands that reference page resources, text sprites, images, forms,
+ * patterns and optional content, are kept as objects in a side table and the
+ * buffer only records their position in the list.  Only the common Java2D
+ * types are encoded, paths that are a GeneralPath, plain Color and
+ * BasicStroke instances, anything else is kept as an object as well, so a
+ * decoded list paints exactly the same as the original.
+ * <br>
+ * An encoded display list can't be modified.
+ *
+ * @since 6.3.3
+ */
+public class EncodedShapes {
+
+    private static final Logger logger =
+            Logger.getLogger(EncodedShapes.class.toString());
+
+    // command op codes.
+    private static final byte OBJECT = 0;
+    private static final byte TRANSFORM = 1;
+    private static final byte TEXT_TRANSFORM = 2;
+    private static final byte COLOR = 3;
+    private static final byte PATH = 4;
+    private static final byte NULL_PATH = 5;
+    private static final byte STROKE = 6;
+    private static final byte ALPHA = 7;
+    private static final byte DRAW = 8;
+    private static final byte FILL = 9;
+    private static final byte CLIP = 10;
+    private static final byte NO_CLIP = 11;
+    private static final byte OCG_END = 12;
+
+    // commands without state are shared by all decoded lists.
+    private static final DrawDrawCmd DRAW_CMD = new DrawDrawCmd();
+    private static final FillDrawCmd FILL_CMD = new FillDrawCmd();
+    private static final ClipDrawCmd CLIP_CMD = new ClipDrawCmd();
+    private static final NoClipDrawCmd NO_CLIP_CMD = new NoClipDrawCmd();
+    private static final OCGEndDrawCmd OCG_END_CMD = new OCGEndDrawCmd();
+
+    // heap size of the side table's slots, the objects are counted by the list.
+    private static final int OBJECT_REFERENCE_SIZE = 8;
+
+    private final ByteBuffer buffer;
+    private final DrawCmd[] objects;
+    private final int commandCount;
+    private final PageText pageText;
+    private final boolean paintAlpha;
+
+    // stores the state of the currently visible optional content.
+    private final OptionalContentState optionalContentState = new OptionalContentState();
+
+    private EncodedShapes(ByteBuffer buffer, DrawCmd[] objects, int commandCount,
+                          PageText pageText, boolean paintAlpha) {
+        this.buffer = buffer;
+        this.objects = objects;
+        this.commandCount = commandCount;
+        this.pageText = pageText;
+        this.paintAlpha = paintAlpha;
+    }
+
+    /**
+     * Encodes the given display list, the list itself isn't changed.
+     *
+     * @param shapes display list to encode.
+     * @param direct true to store the encoding in a direct buffer, off of the
+     *               Java heap.
+     * @return encoded display list.
+     */
+    public static EncodedShapes encode(Shapes shapes, boolean direct) {
+        ArrayList<DrawCmd> drawCmds = shapes.getShapes();
+        Encoder encoder = new Encoder(Math.max(256, drawCmds.size() * 16));
+        for (DrawCmd drawCmd : drawCmds) {
+            encoder.write(drawCmd);
+        }
+        ByteBuffer encoded = encoder.buffer;
+        encoded.flip();
+        ByteBuffer buffer = direct ?
+                ByteBuffer.allocateDirect(encoded.remaining()) :
+                ByteBuffer.allocate(encoded.remaining());
+        buffer.put(encoded);
+        buffer.flip();
+        if (logger.isLoggable(Level.FINER)) {
+            logger.finer("Encoded " + drawCmds.size() + " draw commands in " + buffer.capacity() +
+                    " bytes, " + encoder.objects.size() + " kept as objects.");
+        }
+        return new EncodedShapes(buffer, encoder.objects.toArray(new DrawCmd[0]), drawCmds.size(),
+                shapes.getPageText(), shapes.isPaintAlpha());
+    }
+
+    /**
+     * Gets the number of draw commands in the display list.
+     *
+     * @return number of draw commands.
+     */
+    public int getShapesCount() {
+        return commandCount;
+    }
+
+    public PageText getPageText() {
+        return pageText;
+    }
+
+    /**
+     * Estimates the memory held by the encoded display list, including a
+     * direct buffer.  Commands kept as objects are counted as references
+     * only, as they are shared with the list that was encoded.
+     *
+     * @return estimated size in bytes.
+     */
+    public long getMemorySize() {
+        return (long) objects.length * OBJECT_REFERENCE_SIZE + buffer.capacity();
+    }
+
+    /**
+     * Decodes the display list back into a Shapes object, which paints the
+     * same as the list that was encoded.
+     *
+     * @return decoded display list.
+     */
+    public Shapes decode() {
+        Shapes shapes = new Shapes();
+        shapes.setPageText(pageText);
+        shapes.setPaintAlpha(paintAlpha);
+        ByteBuffer data = buffer.duplicate();
+        while (data.hasRemaining()) {
+            byte op = data.get();
+            switch (op) {
+                case OBJECT:
+                    shapes.add(objects[data.getInt()]);
+                    break;
+                case TRANSFORM:
+                    shapes.add(new TransformDrawCmd(readTransform(data, new AffineTransform())));
+                    break;
+                case TEXT_TRANSFORM:
+                    shapes.add(new TextTransformDrawCmd(readTransform(data, new AffineTransform())));
+                    break;
+                case COLOR:
+                    shapes.add(new ColorDrawCmd(new Color(data.getInt(), true)));
+                    break;
+                case PATH:
+                    shapes.add(new ShapeDrawCmd(readPath(data)));
+                    break;
+                case NULL_PATH:
+                    shapes.add(new ShapeDrawCmd(null));
+                    break;
+                case STROKE:
+                    shapes.add(new StrokeDrawCmd(readStroke(data)));
+                    break;
+                case ALPHA:
+                    shapes.add(new AlphaDrawCmd(AlphaComposite.getInstance(data.getInt(), data.getFloat())));
+                    break;
+                default:
+                    shapes.add(getStatelessCommand(op));
+            }
+        }
+        shapes.contract();
+        return shapes;
+    }
+
+    /**
+     * Paints the display list to the graphics context straight from its
+     * encoding, only paths are rebuilt as they are painted.
+     *
+     * @param g          graphics context to paint to.
+     * @param parentPage page notified as painting progresses, can be null.
+     * @throws InterruptedException thread interrupted.
+     */
+    public void paint(Graphics2D g, Page parentPage) throws InterruptedException {
+        try {
+            AffineTransform base = new AffineTransform(g.getTransform());
+            Shape clip = g.getClip();
+            PaintTimer paintTimer = new PaintTimer();
+            Shape previousShape = null;
+
+            ByteBuffer data = buffer.duplicate();
+            AffineTransform matrix = new AffineTransform();
+            AffineTransform transform = new AffineTransform();
+            int count = 0;
+            while (data.hasRemaining()) {
+                // try and minimize interrupted checks, costly.
+                if (count++ % 1000 == 0 && Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Page painting thread interrupted");
+                }
+                byte op = data.get();
+                switch (op) {
+                    case OBJECT:
+                        previousShape = objects[data.getInt()].paintOperand(g, parentPage,
+                                previousShape, clip, base, optionalContentState, paintAlpha, paintTimer);
+                        break;
+                    case TRANSFORM:
+                    case TEXT_TRANSFORM:
+                        readTransform(data, matrix);
+                        transform.setTransform(base);
+                        transform.concatenate(matrix);
+                        g.setTransform(transform);
+                        break;
+                    case COLOR:
+                        g.setColor(new Color(data.getInt(), true));
+                        break;
+                    case PATH:
+                        previousShape = readPath(data);
+                        break;
+                    case NULL_PATH:
+                        previousShape = null;
+                        break;
+                    case STROKE:
+                        g.setStroke(readStroke(data));
+                        break;
+                    case ALPHA:
+                        AlphaComposite alphaComposite = AlphaComposite.getInstance(data.getInt(), data.getFloat());
+                        if (paintAlpha) {
+                            g.setComposite(alphaComposite);
+                        }
+                        break;
+                    default:
+                        previousShape = getStatelessCommand(op).paintOperand(g, parentPage,
+                                previousShape, clip, base, optionalContentState, paintAlpha, paintTimer);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedException(e.getMessage());
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Error painting encoded shapes.", e);
+        }
+    }
+
+    private static DrawCmd getStatelessCommand(byte op) {
+        switch (op) {
+            case DRAW:
+                return DRAW_CMD;
+            case FILL:
+                return FILL_CMD;
+            case CLIP:
+                return CLIP_CMD;
+            case NO_CLIP:
+                return NO_CLIP_CMD;
+            case OCG_END:
+                return OCG_END_CMD;
+            default:
+                throw new IllegalStateException("Unknown draw command op code " + op);
+        }
+    }
+
+    private static AffineTransform readTransform(ByteBuffer data, AffineTransform transform) {
+        transform.setTransform(data.getDouble(), data.getDouble(), data.getDouble(),
+                data.getDouble(), data.getDouble(), data.getDouble());
+        return transform;
+    }
+
+    private static GeneralPath readPath(ByteBuffer data) {
+        int windingRule = data.get();
+        int segments = data.getInt();
+        GeneralPath path = new GeneralPath(windingRule, segments);
+        for (int i = 0; i < segments; i++) {
+            switch (data.get()) {
+                case PathIterator.SEG_MOVETO:
+                    path.moveTo(data.getFloat(), data.getFloat());
+                    break;
+                case PathIterator.SEG_LINETO:
+                    path.lineTo(data.getFloat(), data.getFloat());
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    path.quadTo(data.getFloat(), data.getFloat(), data.getFloat(), data.getFloat());
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    path.curveTo(data.getFloat(), data.getFloat(), data.getFloat(),
+                            data.getFloat(), data.getFloat(), data.getFloat());
+                    break;
+                default:
+                    path.closePath();
+            }
+        }
+        return path;
+    }
+
+    private static BasicStroke readStroke(ByteBuffer data) {
+        float width = data.getFloat();
+        int cap = data.get();
+        int join = data.get();
+        float miterLimit = data.getFloat();
+        int dashLength = data.getInt();
+        if (dashLength < 0) {
+            return new BasicStroke(width, cap, join, miterLimit);
+        }
+        float[] dash = new float[dashLength];
+        for (int i = 0; i < dashLength; i++) {
+            dash[i] = data.getFloat();
+        }
+        return new BasicStroke(width, cap, join, miterLimit, dash, data.getFloat());
+    }
+
+    /**
+     * Writes draw commands to a growing heap buffer.
+     */
+    private static final class Encoder {
+
+        private ByteBuffer buffer;
+        private final List<DrawCmd> objects = new ArrayList<>();
+        private final float[] coords = new float[6];
+
+        Encoder(int capacity) {
+            buffer = ByteBuffer.allocate(capacity);
+        }
+
+        void write(DrawCmd drawCmd) {
+            Class<?> type = drawCmd.getClass();
+            if (type == TransformDrawCmd.class) {
+                writeTransform(TRANSFORM, ((TransformDrawCmd) drawCmd).getAffineTransform());
+            } else if (type == TextTransformDrawCmd.class) {
+                writeTransform(TEXT_TRANSFORM, ((TextTransformDrawCmd) drawCmd).getAffineTransform());
+            } else if (type == ColorDrawCmd.class &&
+                    ((ColorDrawCmd) drawCmd).getColor().getClass() == Color.class) {
+                ensureCapacity(5);
+                buffer.put(COLOR).putInt(((ColorDrawCmd) drawCmd).getColor().getRGB());
+            } else if (type == ShapeDrawCmd.class && ((ShapeDrawCmd) drawCmd).getShape() == null) {
+                ensureCapacity(1);
+                buffer.put(NULL_PATH);
+            } else if (type == ShapeDrawCmd.class && ((ShapeDrawCmd) drawCmd).getShape() instanceof GeneralPath) {
+                writePath((GeneralPath) ((ShapeDrawCmd) drawCmd).getShape());
+            } else if (type == StrokeDrawCmd.class &&
+                    ((StrokeDrawCmd) drawCmd).getStroke().getClass() == BasicStroke.class) {
+                writeStroke((BasicStroke) ((StrokeDrawCmd) drawCmd).getStroke());
+            } else if (type == AlphaDrawCmd.class && ((AlphaDrawCmd) drawCmd).getAlphaComposite() != null) {
+                AlphaComposite alphaComposite = ((AlphaDrawCmd) drawCmd).getAlphaComposite();
+                ensureCapacity(9);
+                buffer.put(ALPHA).putInt(alphaComposite.getRule()).putFloat(alphaComposite.getAlpha());
+            } else if (type == DrawDrawCmd.class) {
+                writeOp(DRAW);
+            } else if (type == FillDrawCmd.class) {
+                writeOp(FILL);
+            } else if (type == ClipDrawCmd.class) {
+                writeOp(CLIP);
+            } else if (type == NoClipDrawCmd.class) {
+                writeOp(NO_CLIP);
+            } else if (type == OCGEndDrawCmd.class) {
+                writeOp(OCG_END);
+            } else {
+                ensureCapacity(5);
+                buffer.put(OBJECT).putInt(objects.size());
+                objects.add(drawCmd);
+            }
+        }
+
+        private void writeOp(byte op) {
+            ensureCapacity(1);
+            buffer.put(op);
+        }
+
+        private void writeTransform(byte op, AffineTransform transform) {
+            ensureCapacity(49);
+            buffer.put(op)
+                    .putDouble(transform.getScaleX()).putDouble(transform.getShearY())
+                    .putDouble(transform.getShearX()).putDouble(transform.getScaleY())
+                    .putDouble(transform.getTranslateX()).putDouble(transform.getTranslateY());
+        }
+
+        private void writePath(Path2D.Float path) {
+            ensureCapacity(6);
+            buffer.put(PATH).put((byte) path.getWindingRule());
+            int countPosition = buffer.position();
+            buffer.putInt(0);
+            int segments = 0;
+            for (PathIterator iterator = path.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+                int segment = iterator.currentSegment(coords);
+                int points = segment == PathIterator.SEG_MOVETO || segment == PathIterator.SEG_LINETO ? 1 :
+                        segment == PathIterator.SEG_QUADTO ? 2 :
+                                segment == PathIterator.SEG_CUBICTO ? 3 : 0;
+                ensureCapacity(1 + points * 8);
+                buffer.put((byte) segment);
+                for (int i = 0; i < points * 2; i++) {
+                    buffer.putFloat(coords[i]);
+                }
+                segments++;
+            }
+            buffer.putInt(countPosition, segments);
+        }
+
+        private void writeStroke(BasicStroke stroke) {
+            float[] dash = stroke.getDashArray();
+            ensureCapacity(19 + (dash != null ? dash.length * 4 : 0));
+            buffer.put(STROKE).putFloat(stroke.getLineWidth())
+                    .put((byte) stroke.getEndCap()).put((byte) stroke.getLineJoin())
+                    .putFloat(stroke.getMiterLimit());
+            if (dash == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(dash.length);
+                for (float value : dash) {
+                    buffer.putFloat(value);
+                }
+                buffer.putFloat(stroke.getDashPhase());
+            }
+        }
+
+        private void ensureCapacity(int length) {
+            if (buffer.remaining() < length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2,
+                        buffer.position() + length));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.icepdf.core.pobjects.graphics;
 import org.icepdf.core.pobjects.Name;
 import org.icepdf.core.pobjects.Stream;
 import org.icepdf.core.util.Library;
+import org.icepdf.core.util.SharedResourceCache;
 import org.icepdf.core.util.Utils;
 
 import java.awt.*;
@@ -85,14 +86,26 @@ public class ICCBased extends PColorSpace {
             byte[] in;
             try {
                 stream.init();
-                in = stream.getDecodedStreamBytes(0);
-                if (logger.isLoggable(Level.FINEST)) {
-                    String content = Utils.convertByteArrayToByteString(in);
-                    logger.finest("Content = " + content);
+                // other documents may already have parsed the same profile.
+                SharedResourceCache sharedResources = SharedResourceCache.getInstance();
+                SharedResourceCache.Key sharedKey = null;
+                if (sharedResources != null) {
+                    sharedKey = SharedResourceCache.createKey("ICCBased", stream);
+                    colorSpace = (ColorSpace) sharedResources.get(sharedKey);
                 }
-                if (in != null) {
-                    ICC_Profile profile = ICC_Profile.getInstance(in);
-                    colorSpace = new ICC_ColorSpace(profile);
+                if (colorSpace == null) {
+                    in = stream.getDecodedStreamBytes(0);
+                    if (logger.isLoggable(Level.FINEST)) {
+                        String content = Utils.convertByteArrayToByteString(in);
+                        logger.finest("Content = " + content);
+                    }
+                    if (in != null) {
+                        ICC_Profile profile = ICC_Profile.getInstance(in);
+                        colorSpace = new ICC_ColorSpace(profile);
+                        if (sharedResources != null) {
+                            sharedResources.put(sharedKey, colorSpace, in.length);
+                        }
+                    }
                 }
             } catch (Exception e) {
                 logger.log(Level.FINE, "Error Processing ICCBased Colour Profile, falling back on alternative.");
@@ -11,6 +11,7 @@ import java.awt.*;
 import java.awt.geom.Point2D;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -77,11 +78,30 @@ public abstract class ShadingMeshPattern extends ShadingPattern implements Patte
             }
         }
         decode = processDecode();
-        vertexBitStream = new BitStream(meshDataStream.getDecodedByteArrayInputStream());
     }
 
     public abstract Paint getPaint() throws InterruptedException;
 
+    /**
+     * Opens the vertex data for reading, the mesh data is decoded as it's
+     * read.  The stream should be closed with {@link #closeVertexBitStream()}
+     * once the vertices have been read.
+     */
+    protected void openVertexBitStream() {
+        vertexBitStream = new BitStream(meshDataStream.getDecodedInputStream());
+    }
+
+    /**
+     * Closes the vertex data stream opened by {@link #openVertexBitStream()}.
+     */
+    protected void closeVertexBitStream() {
+        try {
+            vertexBitStream.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error closing mesh data stream.", e);
+        }
+    }
+
     /**
      * An array of numbers specifying how to map vertex coordinates and colour components into the
      * appropriate ranges of values. The decoding method is similar to that used in image dictionaries
@@ -35,6 +35,7 @@ public class ShadingType4Pattern extends ShadingMeshPattern {
         vertexEdgeFlag = new ArrayList<>();
         coordinates = new ArrayList<>();
         colorComponents = new ArrayList<>();
+        openVertexBitStream();
         try {
             while (vertexBitStream.available() > 0) {
                 vertexEdgeFlag.add(readFlag());
@@ -43,6 +44,8 @@ public class ShadingType4Pattern extends ShadingMeshPattern {
             }
         } catch (IOException e) {
             logger.warning("Error parsing Shading type 4 pattern vertices.");
+        } finally {
+            closeVertexBitStream();
         }
     }
 
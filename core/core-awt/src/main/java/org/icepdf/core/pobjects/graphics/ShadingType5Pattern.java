@@ -32,6 +32,7 @@ public class ShadingType5Pattern extends ShadingMeshPattern {
     public void init(GraphicsState graphicsState) {
         coordinates = new ArrayList<>();
         colorComponents = new ArrayList<>();
+        openVertexBitStream();
         try {
             while (vertexBitStream.available() > 0) {
                 coordinates.add(readCoord());
@@ -39,6 +40,8 @@ public class ShadingType5Pattern extends ShadingMeshPattern {
             }
         } catch (IOException e) {
             logger.warning("Error parsing Shading type 5 pattern vertices.");
+        } finally {
+            closeVertexBitStream();
         }
     }
 
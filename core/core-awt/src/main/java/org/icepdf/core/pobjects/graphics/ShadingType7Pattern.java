@@ -32,6 +32,7 @@ public class ShadingType7Pattern extends ShadingMeshPattern {
     public void init(GraphicsState graphicsState) {
         coordinates = new ArrayList<>();
         colorComponents = new ArrayList<>();
+        openVertexBitStream();
         try {
             while (vertexBitStream.available() > 0) {
                 int flag = readFlag();
@@ -45,6 +46,8 @@ public class ShadingType7Pattern extends ShadingMeshPattern {
             }
         } catch (IOException e) {
             logger.warning("Error parsing Shading type 7 pattern vertices.");
+        } finally {
+            closeVertexBitStream();
         }
     }
 
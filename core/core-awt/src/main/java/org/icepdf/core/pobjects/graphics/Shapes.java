@@ -17,7 +17,6 @@ package org.icepdf.core.pobjects.graphics;
 
 import org.icepdf.core.pobjects.Page;
 import org.icepdf.core.pobjects.graphics.commands.DrawCmd;
-import org.icepdf.core.pobjects.graphics.commands.FormDrawCmd;
 import org.icepdf.core.pobjects.graphics.commands.ImageDrawCmd;
 import org.icepdf.core.pobjects.graphics.commands.ShapesDrawCmd;
 import org.icepdf.core.pobjects.graphics.text.PageText;
@@ -46,6 +45,12 @@ public class Shapes {
             Logger.getLogger(Shapes.class.toString());
 
     private static int shapesInitialCapacity = 5000;
+    // rough average heap size of a draw command and the state it holds.
+    private static final int ESTIMATED_DRAW_CMD_SIZE = 128;
+    // draw commands copied out of a growing display list at a time.
+    private static final int PROGRESSIVE_BATCH_SIZE = 512;
+    // longest wait, in ms, for the parser to add more draw commands.
+    private static final long PROGRESSIVE_WAIT = 50;
     // disables alpha painting.
     protected boolean paintAlpha =
             !Defs.sysPropertyBoolean("org.icepdf.core.paint.disableAlpha", false);
@@ -61,6 +66,11 @@ public class Shapes {
     private float alpha;
     private boolean interrupted;
 
+    // display list is still being built by the content parser.
+    private volatile boolean progressive;
+    // a painter is waiting on the shapes list for more draw commands.
+    private boolean waiting;
+
     // Graphics stack for a page's content.
     protected ArrayList<DrawCmd> shapes = new ArrayList<>(shapesInitialCapacity);
 
@@ -77,6 +87,10 @@ public class Shapes {
         return pageText;
     }
 
+    void setPageText(PageText pageText) {
+        this.pageText = pageText;
+    }
+
     /**
      * Gets the number of shapes on the shapes stack.
      *
@@ -103,14 +117,44 @@ public class Shapes {
     }
 
     public void add(DrawCmd drawCmd){
-
-        if (!(drawCmd instanceof FormDrawCmd)){
-            shapes.add(drawCmd);
-        }else{
+        if (progressive) {
+            synchronized (shapes) {
+                shapes.add(drawCmd);
+                if (waiting) {
+                    waiting = false;
+                    shapes.notifyAll();
+                }
+            }
+        } else {
             shapes.add(drawCmd);
         }
     }
 
+    /**
+     * Sets if the display list is still being built.  While it is the content
+     * parser and a paint thread can use it at the same time, the parser
+     * appends draw commands and {@link #paint(Graphics2D)} paints them as
+     * they arrive, firing paint page events whenever it catches up with the
+     * parser.  Paint only returns once the list is no longer progressive, so
+     * the parser must always clear the flag when it's done, successfully or
+     * not.
+     *
+     * @param progressive true while the content parser is adding draw commands.
+     */
+    public void setProgressive(boolean progressive) {
+        synchronized (shapes) {
+            this.progressive = progressive;
+            if (!progressive) {
+                waiting = false;
+                shapes.notifyAll();
+            }
+        }
+    }
+
+    public boolean isProgressive() {
+        return progressive;
+    }
+
     public boolean isPaintAlpha() {
         return paintAlpha;
     }
@@ -135,6 +179,11 @@ public class Shapes {
             PaintTimer paintTimer = new PaintTimer();
             Shape previousShape = null;
 
+            if (progressive) {
+                paintProgressive(g, base, clip, paintTimer);
+                return;
+            }
+
             DrawCmd nextShape;
             // for loops actually faster in this case.
             for (int i = 0, max = shapes.size(); i < max; i++) {
@@ -156,6 +205,57 @@ public class Shapes {
         }
     }
 
+    /**
+     * Paints a display list that is still being built.  Draw commands are
+     * copied out in batches under the list's lock and painted outside of it
+     * so the parser is never held up by painting.  When the painter catches
+     * up with the parser the page's paint listeners are notified, so what
+     * has been painted so far can be shown, and the painter waits for more
+     * commands.
+     */
+    private void paintProgressive(Graphics2D g, AffineTransform base, Shape clip,
+                                  PaintTimer paintTimer) throws InterruptedException {
+        DrawCmd[] batch = new DrawCmd[PROGRESSIVE_BATCH_SIZE];
+        Shape previousShape = null;
+        int painted = 0;
+        int notified = 0;
+        while (true) {
+            if (interrupted || Thread.currentThread().isInterrupted()) {
+                interrupted = false;
+                throw new InterruptedException("Page painting thread interrupted");
+            }
+            int count;
+            boolean done;
+            synchronized (shapes) {
+                if (painted == shapes.size() && progressive && notified == painted) {
+                    waiting = true;
+                    shapes.wait(PROGRESSIVE_WAIT);
+                }
+                count = Math.min(shapes.size() - painted, batch.length);
+                for (int i = 0; i < count; i++) {
+                    batch[i] = shapes.get(painted + i);
+                }
+                done = count == 0 && !progressive;
+            }
+            if (done) {
+                break;
+            }
+            if (count == 0) {
+                // caught up with the parser, show what we have so far.
+                if (notified < painted && parentPage != null) {
+                    parentPage.notifyPaintPageListeners();
+                }
+                notified = painted;
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                previousShape = batch[i].paintOperand(g, parentPage,
+                        previousShape, clip, base, optionalContentState, paintAlpha, paintTimer);
+                batch[i] = null;
+            }
+            painted += count;
+        }
+    }
 
     /**
      * Iterates over the Shapes objects extracting all Image objects.
@@ -175,13 +275,35 @@ public class Shapes {
         return images;
     }
 
+    /**
+     * Estimates the memory held by the display list from the number of draw
+     * commands, those of nested forms and patterns included.  Images are
+     * accounted for by the image pool and aren't counted.
+     *
+     * @return estimated size in bytes.
+     */
+    public long getMemorySize() {
+        long size = 0;
+        if (shapes != null) {
+            for (DrawCmd drawCmd : shapes) {
+                size += ESTIMATED_DRAW_CMD_SIZE;
+                if (drawCmd instanceof ShapesDrawCmd && ((ShapesDrawCmd) drawCmd).getShapes() != null) {
+                    size += ((ShapesDrawCmd) drawCmd).getShapes().getMemorySize();
+                }
+            }
+        }
+        return size;
+    }
+
     /**
      * Contracts the shapes ArrayList to the actual size of the elements
      * it contains.
      */
     public void contract() {
         if (shapes != null) {
-            shapes.trimToSize();
+            synchronized (shapes) {
+                shapes.trimToSize();
+            }
         }
     }
 
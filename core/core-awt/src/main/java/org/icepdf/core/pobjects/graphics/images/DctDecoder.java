@@ -23,10 +23,8 @@ import javax.imageio.ImageReader;
 import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
 import java.awt.image.WritableRaster;
-import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.Iterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -61,13 +59,8 @@ public class DctDecoder extends AbstractImageDecoder {
      */
     @Override
     public BufferedImage decode() {
-        // BIS's buffer size should be equal to mark() size, and greater than data size (below)
-        InputStream input = imageStream.getDecodedByteArrayInputStream();
         // Used to just read 1000, but found a PDF that included thumbnails first
         final int MAX_BYTES_TO_READ_FOR_ENCODING = 2048;
-        BufferedInputStream bufferedInput = new BufferedInputStream(
-                input, MAX_BYTES_TO_READ_FOR_ENCODING);
-        bufferedInput.mark(MAX_BYTES_TO_READ_FOR_ENCODING);
 
         // We don't use the PColorSpace to determine how to decode the JPEG, because it tends to be wrong
         // Some files say DeviceCMYK, or ICCBased, when neither would work, because it's really YCbCrA
@@ -185,7 +178,6 @@ public class DctDecoder extends AbstractImageDecoder {
             logger.log(Level.FINE, "Problem loading JPEG image via ImageIO: ", e);
         } finally {
             try {
-                input.close();
                 // clean up the image reader and image stream
                 if (reader != null) {
                     reader.dispose();
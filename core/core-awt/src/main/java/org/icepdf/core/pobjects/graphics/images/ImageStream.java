@@ -22,8 +22,11 @@ import org.icepdf.core.pobjects.Resources;
 import org.icepdf.core.pobjects.Stream;
 import org.icepdf.core.pobjects.graphics.GraphicsState;
 import org.icepdf.core.pobjects.graphics.PColorSpace;
+import org.icepdf.core.pobjects.graphics.images.references.ImagePool;
 import org.icepdf.core.util.Library;
+import org.icepdf.core.util.SharedResourceCache;
 
+import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.HashMap;
 import java.util.logging.Logger;
@@ -89,6 +92,23 @@ public class ImageStream extends Stream {
                 return tmp;
             }
         }
+        // other documents may already have decoded the same image.
+        SharedResourceCache sharedResources = SharedResourceCache.getInstance();
+        SharedResourceCache.Key sharedKey = null;
+        // without resources the colour space isn't resolved, that decoding isn't shared.
+        if (sharedResources != null && resources != null) {
+            Color fillColor = graphicsState != null ? graphicsState.getFillColor() : null;
+            // a named colour space is defined by the resources the image is drawn with.
+            Object colorSpace = entries.get(ImageParams.COLORSPACE_KEY);
+            Object colorSpaceDefinition = colorSpace instanceof Name ?
+                    resources.getColorSpaceDefinition(colorSpace) : null;
+            sharedKey = SharedResourceCache.createKey("Image", this, fillColor != null ? fillColor.getRGB() : 0,
+                    colorSpaceDefinition);
+            BufferedImage sharedImage = (BufferedImage) sharedResources.get(sharedKey);
+            if (sharedImage != null) {
+                return sharedImage;
+            }
+        }
         // decode the given image.
         ImageDecoder imageDecoder = ImageDecoderFactory.createDecoder(this, graphicsState);
         BufferedImage decodedImage = imageDecoder.decode();
@@ -118,6 +138,9 @@ public class ImageStream extends Stream {
             }
 //            if (maskDecoder != null || smaskDecoder != null)
 //                ImageUtility.displayImage(decodedImage, "Final " + pObjectReference.toString());
+            if (sharedKey != null) {
+                sharedResources.put(sharedKey, decodedImage, ImagePool.getImageSize(decodedImage));
+            }
         }
         return decodedImage;
     }
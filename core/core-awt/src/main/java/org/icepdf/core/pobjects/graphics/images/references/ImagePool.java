@@ -17,17 +17,17 @@ package org.icepdf.core.pobjects.graphics.images.references;
 
 import org.icepdf.core.pobjects.Reference;
 import org.icepdf.core.util.Defs;
+import org.icepdf.core.util.MemoryBudget;
+import org.icepdf.core.util.WeightedCache;
 
 import java.awt.image.BufferedImage;
-import java.util.Collections;
-import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.logging.Logger;
 
 /**
- * The Image pool is a Map of the most recently used images.  The pools size
- * by default is setup to be 1/4 the heap size.  So as the pool grows it
- * will self trim to keep the memory foot print at the specified max.  The
+ * The Image pool is a cache of the most recently used images.  Each document
+ * has its own pool, 64MB by default.  So as the pool grows it
+ * will self trim to keep the memory foot print at the specified max, images
+ * are weighed by the size of their pixel data.  The
  * max pool size can be specified by using the org.icepdf.core.views.imagePoolSize
  * system property.  The value is specified in MB.
  * <br>
@@ -36,7 +36,7 @@ import java.util.logging.Logger;
  * the image data on another thread.
  * <br>
  * Teh pool size can be set with the system property  org.icepdf.core.views.imagePoolSize
- * where the default value is 1/4 the heap size.  The pool set can be specified in
+ * where the default value is 64MB.  The pool set can be specified in
  * using a int value representing the desired size in MB.
  * <br>
  * The pool can also be disabled using the boolean system property
@@ -51,39 +51,81 @@ public class ImagePool {
             Logger.getLogger(ImagePool.class.toString());
 
     // Image pool
-    private final Map<Reference, BufferedImage> fCache;
+    private final WeightedCache<Reference, BufferedImage> fCache;
+    // budget shared with the document's other caches, if any.
+    private volatile MemoryBudget memoryBudget;
 
 
+    // default pool size in MB, kept small as every open document has a pool.
+    private static final int DEFAULT_POOL_SIZE = 64;
+
     private static boolean enabled;
+    private static long maxSize;
     static {
         // enable/disable the image pool all together.
         enabled = Defs.booleanProperty("org.icepdf.core.views.imagePoolEnabled", true);
+        // pool size in MB.
+        int size = Defs.intProperty("org.icepdf.core.views.imagePoolSize", DEFAULT_POOL_SIZE);
+        maxSize = (size > 0 ? size : DEFAULT_POOL_SIZE) * 1024L * 1024L;
     }
 
 
     public ImagePool() {
-        fCache = Collections.synchronizedMap(new WeakHashMap<Reference, BufferedImage>(50));
+        fCache = new WeightedCache<>(maxSize, 256, ImagePool::getImageSize);
+    }
+
+    /**
+     * Approximate memory used by an image's pixels.
+     *
+     * @param image image to measure.
+     * @return size in bytes.
+     */
+    public static long getImageSize(BufferedImage image) {
+        int bytesPerPixel = Math.max(1, (image.getColorModel().getPixelSize() + 7) / 8);
+        return (long) image.getWidth() * image.getHeight() * bytesPerPixel;
     }
 
     public void put(Reference ref, BufferedImage image) {
         // create a new reference so we don't have a hard link to the page
         // which will likely keep a page from being GC'd.
-        if (enabled) {
-//            synchronized (fCache) {
-                fCache.put(new Reference(ref.getObjectNumber(), ref.getGenerationNumber()), image);
-//            }
+        if (enabled && ref != null && image != null) {
+            boolean cached = fCache.put(new Reference(ref.getObjectNumber(), ref.getGenerationNumber()), image);
+            MemoryBudget budget = memoryBudget;
+            if (cached && budget != null) {
+                budget.enforce();
+            }
         }
     }
 
     public BufferedImage get(Reference ref) {
-        if (enabled) {
-                return fCache.get(ref);
+        if (enabled && ref != null) {
+            return fCache.get(ref);
         } else {
             return null;
         }
     }
 
     public boolean containsKey(Reference ref) {
-        return enabled && fCache.containsKey(ref);
+        return get(ref) != null;
+    }
+
+    /**
+     * Drops all pooled images.
+     */
+    public void clear() {
+        fCache.clear();
+    }
+
+    /**
+     * Sets the memory budget enforced after images are pooled.
+     *
+     * @param memoryBudget memory budget, null for none.
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public WeightedCache<Reference, BufferedImage> getCache() {
+        return fCache;
     }
 }
@@ -381,6 +381,32 @@ public class PageText implements TextSelect {
         }
     }
 
+    /**
+     * Checks if any of the page's lines or words are selected or highlighted.
+     *
+     * @return true if some of the text is selected or highlighted.
+     */
+    public boolean hasSelectedOrHighlighted() {
+        return hasSelectedOrHighlighted(pageLines) || hasSelectedOrHighlighted(sortedPageLines);
+    }
+
+    private static boolean hasSelectedOrHighlighted(ArrayList<LineText> lines) {
+        if (lines == null) {
+            return false;
+        }
+        for (LineText lineText : lines) {
+            if (lineText.hasSelected() || lineText.hasHighligh()) {
+                return true;
+            }
+            for (WordText wordText : lineText.getWords()) {
+                if (wordText.hasSelected() || wordText.hasHighligh()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     public String toString() {
         StringBuilder extractedText = new StringBuilder();
         for (LineText lineText : pageLines) {
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.util;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * Unsynchronized array backed stack for parsers, which are only used by one
+ * thread at a time and push and pop for every token.  Behaves like
+ * java.util.Stack for the operations it has, popping an empty stack throws
+ * an EmptyStackException.
+ *
+ * @since 6.3.3
+ */
+public final class ArrayStack<E> {
+
+    private Object[] elements;
+    private int size;
+
+    public ArrayStack() {
+        this(16);
+    }
+
+    public ArrayStack(int initialCapacity) {
+        elements = new Object[Math.max(initialCapacity, 1)];
+    }
+
+    public void push(E element) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = element;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        E element = (E) elements[--size];
+        elements[size] = null;
+        return element;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        return (E) elements[size - 1];
+    }
+
+    /**
+     * Gets an element by its position from the bottom of the stack.
+     *
+     * @param index zero based index, zero is the bottom of the stack.
+     * @return element at index.
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return (E) elements[index];
+    }
+
+    /**
+     * Finds the distance of an element from the top of the stack, using
+     * o.equals as Stack.search does.
+     *
+     * @param o element to look for.
+     * @return one based distance from the top of the stack, -1 if not found.
+     */
+    public int search(Object o) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (o == null ? elements[i] == null : o.equals(elements[i])) {
+                return size - i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+
+    public String toString() {
+        StringBuilder string = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                string.append(", ");
+            }
+            string.append(elements[i]);
+        }
+        return string.append(']').toString();
+    }
+}
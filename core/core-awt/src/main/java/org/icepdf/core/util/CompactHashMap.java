@@ -0,0 +1,446 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.util;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * HashMap for small dictionaries.  Up to eight entries are kept in a single
+ * array of alternating keys and values and found with a linear scan, which
+ * for a handful of entries is as fast as hashing and avoids the hash table
+ * and the node per entry.  Adding a ninth entry moves the entries into the
+ * regular hash table, after which the map behaves exactly as a HashMap.
+ * <br>
+ * Most PDF dictionaries, font, annotation, image and graphics state
+ * dictionaries included, have fewer then eight entries.  The map extends
+ * HashMap so existing code that expects dictionaries to be HashMaps keeps
+ * working, it is serialized as a plain HashMap.
+ *
+ * @since 6.3.3
+ */
+public final class CompactHashMap<K, V> extends HashMap<K, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MAX_COMPACT_SIZE = 8;
+    private static final Object[] EMPTY_SLOTS = {};
+
+    // keys at even and values at odd indexes, null once moved to the hash table.
+    private transient Object[] slots;
+    private transient int count;
+
+    public CompactHashMap() {
+        slots = EMPTY_SLOTS;
+    }
+
+    public CompactHashMap(Map<? extends K, ? extends V> map) {
+        slots = map.size() <= MAX_COMPACT_SIZE ? new Object[map.size() * 2] : EMPTY_SLOTS;
+        putAll(map);
+    }
+
+    /**
+     * Shrinks the entry array to the number of entries, called once a parsed
+     * dictionary is complete.
+     */
+    public void trimToSize() {
+        if (slots != null && slots.length > count * 2) {
+            slots = count == 0 ? EMPTY_SLOTS : Arrays.copyOf(slots, count * 2);
+        }
+    }
+
+    private int indexOf(Object key) {
+        Object[] slots = this.slots;
+        for (int i = 0, max = count * 2; i < max; i += 2) {
+            Object slotKey = slots[i];
+            if (slotKey == key || (key != null && key.equals(slotKey))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void spill() {
+        Object[] oldSlots = slots;
+        int oldCount = count;
+        slots = null;
+        count = 0;
+        for (int i = 0, max = oldCount * 2; i < max; i += 2) {
+            super.put((K) oldSlots[i], (V) oldSlots[i + 1]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V removeAt(int index) {
+        V oldValue = (V) slots[index + 1];
+        int last = (count - 1) * 2;
+        System.arraycopy(slots, index + 2, slots, index, last - index);
+        slots[last] = null;
+        slots[last + 1] = null;
+        count--;
+        return oldValue;
+    }
+
+    @Override
+    public int size() {
+        return slots != null ? count : super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (slots == null) {
+            return super.get(key);
+        }
+        int index = indexOf(key);
+        return index >= 0 ? (V) slots[index + 1] : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        if (slots == null) {
+            return super.getOrDefault(key, defaultValue);
+        }
+        int index = indexOf(key);
+        return index >= 0 ? (V) slots[index + 1] : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slots != null ? indexOf(key) >= 0 : super.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (slots == null) {
+            return super.containsValue(value);
+        }
+        for (int i = 1, max = count * 2; i < max; i += 2) {
+            if (Objects.equals(value, slots[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (slots == null) {
+            return super.put(key, value);
+        }
+        int index = indexOf(key);
+        if (index >= 0) {
+            V oldValue = (V) slots[index + 1];
+            slots[index + 1] = value;
+            return oldValue;
+        }
+        if (count == MAX_COMPACT_SIZE) {
+            spill();
+            return super.put(key, value);
+        }
+        if (slots.length == count * 2) {
+            slots = Arrays.copyOf(slots, Math.min(Math.max(count * 2, 4), MAX_COMPACT_SIZE) * 2);
+        }
+        slots[count * 2] = key;
+        slots[count * 2 + 1] = value;
+        count++;
+        return null;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        if (slots != null && count + map.size() > MAX_COMPACT_SIZE) {
+            spill();
+        }
+        if (slots == null) {
+            super.putAll(map);
+            return;
+        }
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        if (slots == null) {
+            return super.putIfAbsent(key, value);
+        }
+        V current = get(key);
+        return current != null ? current : put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (slots == null) {
+            return super.remove(key);
+        }
+        int index = indexOf(key);
+        return index >= 0 ? removeAt(index) : null;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (slots == null) {
+            return super.remove(key, value);
+        }
+        int index = indexOf(key);
+        if (index >= 0 && Objects.equals(value, slots[index + 1])) {
+            removeAt(index);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        if (slots == null) {
+            super.clear();
+            return;
+        }
+        Arrays.fill(slots, null);
+        count = 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (slots == null) {
+            super.forEach(action);
+            return;
+        }
+        for (int i = 0, max = count * 2; i < max; i += 2) {
+            action.accept((K) slots[i], (V) slots[i + 1]);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (slots == null) {
+            super.replaceAll(function);
+            return;
+        }
+        for (int i = 0, max = count * 2; i < max; i += 2) {
+            slots[i + 1] = function.apply((K) slots[i], (V) slots[i + 1]);
+        }
+    }
+
+    // the less common map operations move the entries to the hash table first.
+
+    @Override
+    public V replace(K key, V value) {
+        if (slots != null) {
+            spill();
+        }
+        return super.replace(key, value);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (slots != null) {
+            spill();
+        }
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        if (slots != null) {
+            spill();
+        }
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (slots != null) {
+            spill();
+        }
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (slots != null) {
+            spill();
+        }
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (slots != null) {
+            spill();
+        }
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            public Iterator<K> iterator() {
+                return slots != null ? new SlotIterator<>(SlotIterator.KEYS) : CompactHashMap.super.keySet().iterator();
+            }
+
+            public int size() {
+                return CompactHashMap.this.size();
+            }
+
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            public boolean remove(Object o) {
+                if (!containsKey(o)) {
+                    return false;
+                }
+                CompactHashMap.this.remove(o);
+                return true;
+            }
+
+            public void clear() {
+                CompactHashMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            public Iterator<V> iterator() {
+                return slots != null ? new SlotIterator<>(SlotIterator.VALUES) : CompactHashMap.super.values().iterator();
+            }
+
+            public int size() {
+                return CompactHashMap.this.size();
+            }
+
+            public boolean contains(Object o) {
+                return containsValue(o);
+            }
+
+            public void clear() {
+                CompactHashMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return slots != null ? new SlotIterator<>(SlotIterator.ENTRIES) :
+                        CompactHashMap.super.entrySet().iterator();
+            }
+
+            public int size() {
+                return CompactHashMap.this.size();
+            }
+
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry)) {
+                    return false;
+                }
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                return containsKey(entry.getKey()) && Objects.equals(get(entry.getKey()), entry.getValue());
+            }
+
+            public boolean remove(Object o) {
+                if (!contains(o)) {
+                    return false;
+                }
+                CompactHashMap.this.remove(((Map.Entry<?, ?>) o).getKey());
+                return true;
+            }
+
+            public void clear() {
+                CompactHashMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Object clone() {
+        return new CompactHashMap<>(this);
+    }
+
+    private Object writeReplace() {
+        return new HashMap<>(this);
+    }
+
+    /**
+     * Iterates over the entry array, removals go through the map so they
+     * also work if the map has been moved to the hash table since.
+     */
+    private final class SlotIterator<T> implements Iterator<T> {
+        static final int KEYS = 0;
+        static final int VALUES = 1;
+        static final int ENTRIES = 2;
+
+        private final int kind;
+        private int next;
+        private int last = -1;
+
+        SlotIterator(int kind) {
+            this.kind = kind;
+        }
+
+        public boolean hasNext() {
+            return slots != null && next < count * 2;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next += 2;
+            K key = (K) slots[last];
+            if (kind == KEYS) {
+                return (T) key;
+            } else if (kind == VALUES) {
+                return (T) slots[last + 1];
+            }
+            return (T) new AbstractMap.SimpleEntry<K, V>(key, (V) slots[last + 1]) {
+                public V setValue(V value) {
+                    super.setValue(value);
+                    return put(getKey(), value);
+                }
+            };
+        }
+
+        public void remove() {
+            if (last < 0 || slots == null) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.util;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * Unsynchronized stack of ints, values aren't boxed.  Popping an empty
+ * stack throws an EmptyStackException, as java.util.Stack does.
+ *
+ * @since 6.3.3
+ */
+public final class IntStack {
+
+    private int[] elements;
+    private int size;
+
+    public IntStack() {
+        this(16);
+    }
+
+    public IntStack(int initialCapacity) {
+        elements = new int[Math.max(initialCapacity, 1)];
+    }
+
+    public void push(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = value;
+    }
+
+    public int pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        return elements[--size];
+    }
+
+    public int peek() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        return elements[size - 1];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
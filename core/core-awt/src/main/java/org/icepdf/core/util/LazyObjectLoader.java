@@ -16,6 +16,7 @@
 package org.icepdf.core.util;
 
 import org.icepdf.core.io.SeekableInput;
+import org.icepdf.core.io.SeekableInputCursor;
 import org.icepdf.core.pobjects.*;
 
 import java.util.logging.Level;
@@ -32,21 +33,39 @@ public class LazyObjectLoader {
 
     private Library library;
     private SeekableInput seekableInput;
+    private static int objectStreamCacheSize;
+
+    static {
+        // total size in bytes of the object streams kept hot per document.
+        objectStreamCacheSize =
+                Defs.intProperty("org.icepdf.core.objectStream.cache.size", 16 * 1024 * 1024);
+    }
+
     private CrossReference crossReference;
-    protected SoftLRUCache<Reference, ObjectStream> leastRecentlyUsed;
-    private final Object leastRectlyUsedLock = new Object();
-    private final Object streamLock = new Object();
+    protected WeightedCache<Reference, ObjectStream> objectStreamCache;
 
     public LazyObjectLoader(Library lib, SeekableInput seekableInput, CrossReference xref) {
         library = lib;
         this.seekableInput = seekableInput;
         crossReference = xref;
-        leastRecentlyUsed = new SoftLRUCache<>(256);
+        objectStreamCache = new WeightedCache<>(objectStreamCacheSize, 256, ObjectStream::getMemorySize);
+    }
+
+    /**
+     * Sets the total size of the decoded object streams each document keeps
+     * cached, the default is 16MB.  Only applies to documents opened after
+     * the call.
+     *
+     * @param size cache size in bytes.
+     */
+    public static void setObjectStreamCacheSize(int size) {
+        objectStreamCacheSize = size;
     }
 
     /**
-     * Loads an object via it's reference. Stream object data is initialized
-     * so that we can release the file lock more quickly.
+     * Loads an object via it's reference.  Objects are parsed using positional
+     * reads so no lock is held on the document input and several threads
+     * can load objects at the same time.
      *
      * @param reference object reference
      * @return found object; dictionary, stream or pobject.
@@ -63,24 +82,17 @@ public class LazyObjectLoader {
         if (entry instanceof CrossReference.UsedEntry) {
             try {
                 if (seekableInput != null) {
-                    synchronized (streamLock) {
-                        CrossReference.UsedEntry usedEntry = (CrossReference.UsedEntry) entry;
-                        long position = usedEntry.getFilePositionOfObject();
-                        seekableInput.beginThreadAccess();
-                        long savedPosition = seekableInput.getAbsolutePosition();
-                        seekableInput.seekAbsolute(position);
-                        Parser parser = new Parser(seekableInput);
-                        Object ob = parser.getObject(library);
-                        seekableInput.seekAbsolute(savedPosition);
-                        return ob;
-                    }
+                    // each load parses with its own cursor over the shared input,
+                    // so objects can be loaded concurrently without locking.
+                    CrossReference.UsedEntry usedEntry = (CrossReference.UsedEntry) entry;
+                    long position = usedEntry.getFilePositionOfObject();
+                    SeekableInput cursor = new SeekableInputCursor(seekableInput, position);
+                    Parser parser = new Parser(cursor);
+                    return parser.getObject(library);
                 }
             } catch (Exception e) {
                 logger.log(Level.SEVERE,
                         "Error loading object instance: " + reference.toString(), e);
-            } finally {
-                if (seekableInput != null)
-                    seekableInput.endThreadAccess();
             }
         }
         // compressed cross reference.
@@ -90,26 +102,21 @@ public class LazyObjectLoader {
                 int objectStreamsObjectNumber = compressedEntry.getObjectNumberOfContainingObjectStream();
                 int objectIndex = compressedEntry.getIndexWithinObjectStream();
                 Reference objectStreamRef = new Reference(objectStreamsObjectNumber, 0);
-                ObjectStream objectStream;
-                synchronized (leastRectlyUsedLock) {
-                    objectStream = leastRecentlyUsed.get(objectStreamRef);
-                }
-
-                if (objectStream == null) {
-                    synchronized (streamLock) {
-                        objectStream = (ObjectStream) library.getObject(objectStreamRef);
-                    }
-                    if (objectStream != null) {
-                        synchronized (leastRectlyUsedLock) {
-                            leastRecentlyUsed.put(objectStreamRef, objectStream);
-                        }
-                    }
+                ObjectStream objectStream = objectStreamCache.get(objectStreamRef);
+                if (objectStream != null) {
+                    return objectStream.loadObject(library, objectIndex);
                 }
-
+                objectStream = (ObjectStream) library.getObject(objectStreamRef);
                 if (objectStream != null) {
-                    synchronized (streamLock) {
-                        return objectStream.loadObject(library, objectIndex);
+                    // load first so the stream is decoded and its size known.
+                    Object object = objectStream.loadObject(library, objectIndex);
+                    if (objectStreamCache.put(objectStreamRef, objectStream)) {
+                        MemoryBudget budget = library.getMemoryBudget();
+                        if (budget != null) {
+                            budget.enforce();
+                        }
                     }
+                    return object;
                 }
             } catch (Exception e) {
                 logger.log(Level.SEVERE,
@@ -128,32 +135,57 @@ public class LazyObjectLoader {
         return (entry != null);
     }
 
+    /**
+     * Gets the file offset an object would be loaded from.  Compressed objects
+     * report the offset of their containing object stream.
+     *
+     * @param reference object reference
+     * @return file offset or -1 if the object has no cross reference entry.
+     */
+    public long getFilePosition(Reference reference) {
+        if (reference == null || crossReference == null)
+            return -1;
+        CrossReference.Entry entry = crossReference.getEntryForObject(reference.getObjectNumber());
+        if (entry instanceof CrossReference.CompressedEntry) {
+            int objectStreamNumber =
+                    ((CrossReference.CompressedEntry) entry).getObjectNumberOfContainingObjectStream();
+            entry = crossReference.getEntryForObject(objectStreamNumber);
+        }
+        if (entry instanceof CrossReference.UsedEntry) {
+            return ((CrossReference.UsedEntry) entry).getFilePositionOfObject();
+        }
+        return -1;
+    }
+
     public PTrailer loadTrailer(long position) {
         PTrailer trailer = null;
         try {
             if (seekableInput != null) {
-                seekableInput.beginThreadAccess();
-                long savedPosition = seekableInput.getAbsolutePosition();
-                seekableInput.seekAbsolute(position);
-                Parser parser = new Parser(seekableInput);
+                SeekableInput cursor = new SeekableInputCursor(seekableInput, position);
+                Parser parser = new Parser(cursor);
                 Object obj = parser.getObject(library);
                 if (obj instanceof PObject)
                     obj = ((PObject) obj).getObject();
                 trailer = (PTrailer) obj;
                 if (trailer != null)
                     trailer.setPosition(position);
-                seekableInput.seekAbsolute(savedPosition);
             }
         } catch (Exception e) {
             logger.log(Level.FINE,
                     "Error loading PTrailer instance: " + position, e);
-        } finally {
-            if (seekableInput != null)
-                seekableInput.endThreadAccess();
         }
         return trailer;
     }
 
+    /**
+     * Gets the cache of recently used object streams.
+     *
+     * @return object stream cache.
+     */
+    public WeightedCache<Reference, ObjectStream> getObjectStreamCache() {
+        return objectStreamCache;
+    }
+
     /**
      * Get the documents library object.
      *
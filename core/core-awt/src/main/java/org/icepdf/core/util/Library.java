@@ -16,6 +16,8 @@
  */
 package org.icepdf.core.util;
 
+import org.icepdf.core.io.BlockCachedSeekableInput;
+import org.icepdf.core.io.DirectBufferCache;
 import org.icepdf.core.io.SeekableInput;
 import org.icepdf.core.pobjects.*;
 import org.icepdf.core.pobjects.acroform.InteractiveForm;
@@ -24,13 +26,17 @@ import org.icepdf.core.pobjects.fonts.Font;
 import org.icepdf.core.pobjects.fonts.FontDescriptor;
 import org.icepdf.core.pobjects.graphics.ICCBased;
 import org.icepdf.core.pobjects.graphics.images.references.ImagePool;
+import org.icepdf.core.pobjects.graphics.images.references.ImageReference;
 import org.icepdf.core.pobjects.security.SecurityManager;
 
 import java.awt.geom.Rectangle2D;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.logging.Logger;
 
@@ -50,12 +56,25 @@ public class Library {
 
     protected static ThreadPoolExecutor commonThreadPool;
     protected static ThreadPoolExecutor imageThreadPool;
+    // page initializations waited on by common pool tasks, kept separate so
+    // a busy common pool can't block the work it's waiting for.
+    protected static ThreadPoolExecutor pageInitThreadPool;
 
     public static int commonPoolThreads;
     public static int imagePoolThreads;
+    public static int pageInitPoolThreads;
     private static final long KEEP_ALIVE_TIME = 90;
 
+    // keep decoded object stream bodies in direct buffers, off the heap.
+    private static boolean isObjectStreamOffHeapEnabled;
+    private static long objectStreamOffHeapBudget;
+
     static {
+        isObjectStreamOffHeapEnabled =
+                Defs.sysPropertyBoolean("org.icepdf.core.objectStream.offHeap.enabled", false);
+        objectStreamOffHeapBudget =
+                Defs.intProperty("org.icepdf.core.objectStream.offHeap.budget", 64 * 1024 * 1024);
+
         try {
             commonPoolThreads =
                     Defs.intProperty("org.icepdf.core.library.threadPoolSize", 4);
@@ -77,6 +96,12 @@ public class Library {
             log.warning("Error reading buffered scale factor");
         }
 
+        pageInitPoolThreads =
+                Defs.intProperty("org.icepdf.core.library.pageInitThreadPoolSize", 2);
+        if (pageInitPoolThreads < 1) {
+            pageInitPoolThreads = 2;
+        }
+
 //        log.fine("Starting ICEpdf Thread Pools: " +
 //                (commonPoolThreads + imagePoolThreads) +
 //                " threads.");
@@ -85,8 +110,9 @@ public class Library {
 
     // new incremental file loader class.
     private LazyObjectLoader lazyObjectLoader;
-    private ConcurrentHashMap<Reference, WeakReference<Object>> refs =
-            new ConcurrentHashMap<>(1024);
+    // decoded object stream bodies, null if kept on the heap.
+    private DirectBufferCache<Reference> objectStreamCache;
+    private ObjectTable refs = new ObjectTable(1024);
     private ConcurrentHashMap<Reference, WeakReference<ICCBased>> lookupReference2ICCBased =
             new ConcurrentHashMap<>(256);
     // Instead of keeping Names names, Dictionary dests, we keep
@@ -111,6 +137,13 @@ public class Library {
     private boolean isEncrypted;
     private boolean isLinearTraversal;
     private ImagePool imagePool;
+    // small inline images, heavily tiled backgrounds, shared by the document's pages.
+    private final WeightedCache<String, ImageReference> inlineImageCache =
+            new WeightedCache<>(512, 512, imageReference -> 1);
+    // display lists of initialized pages, tracked for the memory budget.
+    private final PageContentTracker pageContentTracker = new PageContentTracker(false);
+    private final PageContentTracker encodedContentTracker = new PageContentTracker(true);
+    private volatile MemoryBudget memoryBudget;
 
     /**
      * Sets a document loader for the library.
@@ -141,9 +174,12 @@ public class Library {
      * object reference can not be found.
      */
     public Object getObject(Reference reference) {
+        if (reference == null) {
+            return null;
+        }
         Object ob;
         while (true) {
-            WeakReference<Object> obRef = refs.get(reference);
+            Object cached = refs.get(reference.getObjectNumber(), reference.getGenerationNumber());
             // check stateManager first to allow for annotations to be injected
             // from a separate file.
             if (stateManager != null) {
@@ -155,7 +191,7 @@ public class Library {
                     return ob;
                 }
             }
-            ob = obRef != null ? obRef.get() : null;
+            ob = cached;
             if (ob == null && lazyObjectLoader != null) {
                 ob = lazyObjectLoader.loadObject(reference);
             }
@@ -170,6 +206,26 @@ public class Library {
         return ob;
     }
 
+    /**
+     * Gets the object specified by the object and generation number.  An
+     * object that has already been loaded is found without allocating a
+     * Reference.
+     *
+     * @param objectNumber object number of a PDF object in the document structure.
+     * @param generation   generation number of the object.
+     * @return PDF object that the reference refers to.  Null if the object
+     * can not be found.
+     */
+    public Object getObject(int objectNumber, int generation) {
+        if (stateManager == null || !stateManager.isChanged()) {
+            Object ob = refs.get(objectNumber, generation);
+            if (ob != null && !(ob instanceof PObject) && !(ob instanceof Reference)) {
+                return ob;
+            }
+        }
+        return getObject(new Reference(objectNumber, generation));
+    }
+
     /**
      * Utility method for displaying debug info related to PDF object loading.
      *
@@ -303,12 +359,36 @@ public class Library {
      * @return true, if a cross-reference entry exists for this reference; false, otherwise.
      */
     public boolean isValidEntry(Reference reference) {
-        WeakReference<Object> ob = refs.get(reference);
-        return (ob != null && ob.get() != null) ||
+        return refs.get(reference.getObjectNumber(), reference.getGenerationNumber()) != null ||
                 lazyObjectLoader != null &&
                         lazyObjectLoader.haveEntry(reference);
     }
 
+    /**
+     * Tests if the object of a reference has already been loaded, without
+     * loading it.
+     *
+     * @param reference reference to a PDF object in the document structure.
+     * @return true if the object is held by the library.
+     */
+    public boolean isObjectLoaded(Reference reference) {
+        return refs.get(reference.getObjectNumber(), reference.getGenerationNumber()) != null;
+    }
+
+    /**
+     * Gets the file offset of the object with the given reference, compressed
+     * objects report the offset of their containing object stream.
+     *
+     * @param reference reference to a PDF object in the document structure.
+     * @return file offset of the object, -1 if unknown.
+     */
+    public long getObjectPosition(Reference reference) {
+        if (lazyObjectLoader == null) {
+            return -1;
+        }
+        return lazyObjectLoader.getFilePosition(reference);
+    }
+
     /**
      * Gets a Number specified by the <code>key</code> in the dictionary
      * entries.  If the key value is a reference, the Number object that the
@@ -569,7 +649,7 @@ public class Library {
      * @param objectReference PDF object reference object.
      */
     public void addObject(Object object, Reference objectReference) {
-        refs.put(objectReference, new WeakReference<>(object));
+        refs.put(objectReference.getObjectNumber(), objectReference.getGenerationNumber(), object);
     }
 
     /**
@@ -579,7 +659,7 @@ public class Library {
      */
     public void removeObject(Reference objetReference) {
         if (objetReference != null) {
-            refs.remove(objetReference);
+            refs.remove(objetReference.getObjectNumber(), objetReference.getGenerationNumber());
         }
     }
 
@@ -590,6 +670,228 @@ public class Library {
         // set Catalog memory Manager and cache manager.
         imagePool = new ImagePool();
         signatureHandler = new SignatureHandler();
+        if (isObjectStreamOffHeapEnabled && objectStreamOffHeapBudget > 0) {
+            objectStreamCache = new DirectBufferCache<>(objectStreamOffHeapBudget);
+        }
+    }
+
+    /**
+     * Sets if decoded object stream bodies are kept in direct buffers under
+     * an off heap budget rather then on the heap.  Only applies to documents
+     * opened after the call.
+     *
+     * @param enabled true to keep object streams off the heap.
+     * @param budget  maximum number of bytes of direct memory used per
+     *                document, least recently used object streams are
+     *                evicted and decoded again when needed.
+     */
+    public static void setObjectStreamOffHeap(boolean enabled, long budget) {
+        isObjectStreamOffHeapEnabled = enabled;
+        objectStreamOffHeapBudget = budget;
+    }
+
+    /**
+     * Gets the off heap cache of decoded object stream bodies.
+     *
+     * @return object stream cache, null if object streams are kept on the heap.
+     */
+    public DirectBufferCache<Reference> getObjectStreamCache() {
+        return objectStreamCache;
+    }
+
+    /**
+     * Gets a summary of the library's memory use; the number of objects
+     * referenced and the off heap object stream budget, along with the hit
+     * and miss counts of the document's block cache if it has one.
+     *
+     * @return statistics for logging.
+     */
+    public String getStatistics() {
+        StringBuilder statistics = new StringBuilder();
+        statistics.append("objects=").append(refs.size());
+        if (objectStreamCache != null) {
+            statistics.append(", objectStreams off heap: ").append(objectStreamCache);
+        } else {
+            statistics.append(", objectStreams on heap");
+        }
+        if (lazyObjectLoader != null) {
+            statistics.append(", objectStream cache: ").append(lazyObjectLoader.getObjectStreamCache());
+        }
+        if (documentInput instanceof BlockCachedSeekableInput) {
+            BlockCachedSeekableInput blockCache = (BlockCachedSeekableInput) documentInput;
+            statistics.append(", block cache: hits=").append(blockCache.getHitCount())
+                    .append(", misses=").append(blockCache.getMissCount())
+                    .append(", blocks=").append(blockCache.getCachedBlockCount());
+        }
+        statistics.append(", image pool: ").append(imagePool.getCache());
+        statistics.append(", page content: ").append(pageContentTracker.getRetainedBytes()).append(" bytes");
+        statistics.append(", encoded page content: ").append(encodedContentTracker.getRetainedBytes()).append(" bytes");
+        MemoryBudget budget = memoryBudget;
+        if (budget != null) {
+            statistics.append(", memory budget: ").append(budget);
+        }
+        return statistics.toString();
+    }
+
+    /**
+     * Attaches the library's caches to a memory budget, replacing any budget
+     * set before.  The decoded object stream cache, the image pool, the
+     * display lists of initialized pages and the encodings of released
+     * display lists are registered with the budget.
+     *
+     * @param budget memory budget, null to detach.
+     */
+    public void setMemoryBudget(MemoryBudget budget) {
+        MemoryBudget previous = memoryBudget;
+        if (previous != null) {
+            previous.unregister(this);
+        }
+        memoryBudget = budget;
+        imagePool.setMemoryBudget(budget);
+        if (budget != null) {
+            budget.register(this, MemoryBudget.Category.DECODED_STREAMS, new MemoryBudget.Participant() {
+                public long getRetainedBytes() {
+                    LazyObjectLoader loader = lazyObjectLoader;
+                    return loader != null ? loader.getObjectStreamCache().getWeight() : 0;
+                }
+
+                public long evict(long bytes) {
+                    LazyObjectLoader loader = lazyObjectLoader;
+                    return loader != null ? loader.getObjectStreamCache().evict(bytes) : 0;
+                }
+            });
+            budget.register(this, MemoryBudget.Category.IMAGES, new MemoryBudget.Participant() {
+                public long getRetainedBytes() {
+                    return imagePool.getCache().getWeight();
+                }
+
+                public long evict(long bytes) {
+                    return imagePool.getCache().evict(bytes);
+                }
+            });
+            budget.register(this, MemoryBudget.Category.PAGE_CONTENT, pageContentTracker);
+            budget.register(this, MemoryBudget.Category.ENCODED_PAGE_CONTENT, encodedContentTracker);
+            budget.enforce();
+        }
+    }
+
+    /**
+     * Gets the memory budget the library's caches are attached to.
+     *
+     * @return memory budget, null if none.
+     */
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Gets the estimated memory held by one category of the library's caches,
+     * tracked whether or not a budget is attached.
+     *
+     * @param category cache category.
+     * @return estimated size in bytes.
+     */
+    public long getMemoryUsage(MemoryBudget.Category category) {
+        switch (category) {
+            case DECODED_STREAMS:
+                LazyObjectLoader loader = lazyObjectLoader;
+                return loader != null ? loader.getObjectStreamCache().getWeight() : 0;
+            case IMAGES:
+                return imagePool.getCache().getWeight();
+            case PAGE_CONTENT:
+                return pageContentTracker.getRetainedBytes();
+            case ENCODED_PAGE_CONTENT:
+                return encodedContentTracker.getRetainedBytes();
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Gets the estimated memory held by all of the library's caches.
+     *
+     * @return estimated size in bytes.
+     */
+    public long getMemoryUsage() {
+        long usage = 0;
+        for (MemoryBudget.Category category : MemoryBudget.Category.values()) {
+            usage += getMemoryUsage(category);
+        }
+        return usage;
+    }
+
+    /**
+     * Records that a page has been initialized and now holds a display list,
+     * enforcing the memory budget if one is attached.
+     *
+     * @param page page that was initialized.
+     * @param size estimated size of the page's display list.
+     */
+    public void pageContentLoaded(Page page, long size) {
+        pageContentTracker.loaded(page, size);
+        MemoryBudget budget = memoryBudget;
+        if (budget != null) {
+            budget.enforce();
+        }
+    }
+
+    /**
+     * Records that a page's display list was used, so it is among the last
+     * to be released by the memory budget.
+     *
+     * @param page page that was painted.
+     */
+    public void pageContentUsed(Page page) {
+        pageContentTracker.used(page);
+    }
+
+    /**
+     * Records that a page's display list was released and kept encoded.  The
+     * budget isn't enforced, the call is made while the budget is releasing
+     * display lists, it's enforced the next time page content is loaded.
+     *
+     * @param page page that was released.
+     * @param size estimated size of the encoding.
+     */
+    public void encodedContentLoaded(Page page, long size) {
+        encodedContentTracker.loaded(page, size);
+    }
+
+    /**
+     * Records that a page's encoded display list was used, so it is among
+     * the last to be released by the memory budget.
+     *
+     * @param page page that was painted or decoded.
+     */
+    public void encodedContentUsed(Page page) {
+        encodedContentTracker.used(page);
+    }
+
+    /**
+     * Records that a page dropped its encoded display list.
+     *
+     * @param page page whose encoding was dropped.
+     */
+    public void encodedContentReleased(Page page) {
+        encodedContentTracker.released(page);
+    }
+
+    /**
+     * Releases memory held outside of the object graph, direct buffers in
+     * particular, which would otherwise wait for garbage collection.
+     */
+    public void dispose() {
+        if (objectStreamCache != null) {
+            objectStreamCache.clear();
+        }
+        if (lazyObjectLoader != null) {
+            lazyObjectLoader.getObjectStreamCache().clear();
+        }
+        imagePool.clear();
+        inlineImageCache.clear();
+        pageContentTracker.clear();
+        encodedContentTracker.clear();
+        setMemoryBudget(null);
     }
 
     /**
@@ -748,20 +1050,24 @@ public class Library {
      * when needed again.
      */
     public void disposeFontResources() {
-        Set<Reference> test = refs.keySet();
-        for (Reference ref : test) {
-            WeakReference<Object> reference = refs.get(ref);
-            Object tmp = reference != null ? reference.get() : null;
-            if (tmp instanceof Font || tmp instanceof FontDescriptor) {
-                refs.remove(ref);
-            }
-        }
+        refs.removeIf(tmp -> tmp instanceof Font || tmp instanceof FontDescriptor);
     }
 
     public ImagePool getImagePool() {
         return imagePool;
     }
 
+    /**
+     * Gets the cache of small inline images parsed from this document's
+     * content streams, it holds up to 512 of the most used images and is
+     * cleared when the library is disposed.
+     *
+     * @return inline image cache.
+     */
+    public WeightedCache<String, ImageReference> getInlineImageCache() {
+        return inlineImageCache;
+    }
+
     public static void initializeThreadPool() {
 
         log.fine("Starting ICEpdf Thread Pool: " + commonPoolThreads + " threads.");
@@ -794,6 +1100,20 @@ public class Library {
                 return newThread;
             });
         }
+
+        log.fine("Starting ICEpdf page init Pool: " + pageInitPoolThreads + " threads.");
+        if (pageInitThreadPool == null || pageInitThreadPool.isShutdown()) {
+            pageInitThreadPool = new ThreadPoolExecutor(
+                    pageInitPoolThreads, pageInitPoolThreads, KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>());
+            pageInitThreadPool.setThreadFactory(command -> {
+                Thread newThread = new Thread(command);
+                newThread.setName("ICEpdf-thread-page-init-pool");
+                newThread.setPriority(Thread.NORM_PRIORITY);
+                newThread.setDaemon(true);
+                return newThread;
+            });
+        }
     }
 
     public static void shutdownThreadPool() {
@@ -802,6 +1122,8 @@ public class Library {
         commonThreadPool.shutdownNow();
         imageThreadPool.purge();
         imageThreadPool.shutdownNow();
+        pageInitThreadPool.purge();
+        pageInitThreadPool.shutdownNow();
     }
 
     public static void execute(Runnable runnable) {
@@ -815,6 +1137,20 @@ public class Library {
         }
     }
 
+    /**
+     * Runs a page initialization on its own pool.  Tasks on the common pool
+     * can wait for it, page initializations must not wait on each other.
+     *
+     * @param initTask page initialization to run.
+     * @throws RejectedExecutionException if the pool was shutdown.
+     */
+    public static void executePageInit(FutureTask<?> initTask) {
+        if (pageInitThreadPool == null || pageInitThreadPool.isShutdown()) {
+            initializeThreadPool();
+        }
+        pageInitThreadPool.execute(initTask);
+    }
+
     public static void executeImage(FutureTask callable) {
         try {
             if (imageThreadPool == null || imageThreadPool.isShutdown()) {
@@ -825,4 +1161,111 @@ public class Library {
             log.severe("ICEpdf Common Thread Pool was shutdown!");
         }
     }
+
+    /**
+     * Initialized pages in least recently used order along with the estimated
+     * size of their display lists, or of the encodings of their released
+     * display lists.  Pages are weakly referenced, tracking a page doesn't
+     * keep it in memory.
+     */
+    private static final class PageContentTracker implements MemoryBudget.Participant {
+
+        private final LinkedHashMap<Reference, PageContent> pages = new LinkedHashMap<>(16, 0.75f, true);
+        private final boolean encoded;
+        private long retainedBytes;
+
+        PageContentTracker(boolean encoded) {
+            this.encoded = encoded;
+        }
+
+        synchronized void loaded(Page page, long size) {
+            Reference reference = page.getPObjectReference();
+            if (reference == null) {
+                return;
+            }
+            // forget pages that have been garbage collected.
+            Iterator<PageContent> iterator = pages.values().iterator();
+            while (iterator.hasNext()) {
+                PageContent content = iterator.next();
+                if (content.page.get() == null) {
+                    retainedBytes -= content.size;
+                    iterator.remove();
+                }
+            }
+            PageContent previous = pages.put(reference, new PageContent(page, size));
+            if (previous != null) {
+                retainedBytes -= previous.size;
+            }
+            retainedBytes += size;
+        }
+
+        synchronized void used(Page page) {
+            Reference reference = page.getPObjectReference();
+            if (reference != null) {
+                pages.get(reference);
+            }
+        }
+
+        synchronized void released(Page page) {
+            Reference reference = page.getPObjectReference();
+            if (reference != null) {
+                PageContent content = pages.remove(reference);
+                if (content != null) {
+                    retainedBytes -= content.size;
+                }
+            }
+        }
+
+        public synchronized long getRetainedBytes() {
+            return retainedBytes;
+        }
+
+        public long evict(long bytes) {
+            List<PageContent> released = new ArrayList<>();
+            long releasedBytes = 0;
+            synchronized (this) {
+                // the most recently used page is kept so there is always something to paint.
+                int evictable = encoded ? pages.size() : pages.size() - 1;
+                Iterator<Map.Entry<Reference, PageContent>> iterator = pages.entrySet().iterator();
+                while (releasedBytes < bytes && evictable-- > 0) {
+                    PageContent content = iterator.next().getValue();
+                    Page page = content.page.get();
+                    // pages with selected or highlighted text are kept.
+                    if (page != null && !(encoded ? page.isEncodedShapesReleasable() : page.isShapesReleasable())) {
+                        continue;
+                    }
+                    iterator.remove();
+                    retainedBytes -= content.size;
+                    releasedBytes += content.size;
+                    if (page != null) {
+                        released.add(content);
+                    }
+                }
+            }
+            for (PageContent content : released) {
+                Page page = content.page.get();
+                // text may have been selected since, the page is tracked again.
+                if (page != null && !(encoded ? page.releaseEncodedShapes() : page.releaseShapes())) {
+                    loaded(page, content.size);
+                    releasedBytes -= content.size;
+                }
+            }
+            return releasedBytes;
+        }
+
+        synchronized void clear() {
+            pages.clear();
+            retainedBytes = 0;
+        }
+    }
+
+    private static final class PageContent {
+        final WeakReference<Page> page;
+        final long size;
+
+        PageContent(Page page, long size) {
+            this.page = new WeakReference<>(page);
+            this.size = size;
+        }
+    }
 }
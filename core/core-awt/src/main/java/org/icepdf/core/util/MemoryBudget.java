@@ -0,0 +1,273 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shared limit on the memory held by the caches of one or more documents.
+ * Each document's caches register with the budget under a category and
+ * report the bytes they retain, when the total goes over the budget the
+ * caches are asked to evict, category by category in the order the
+ * categories are declared, the largest owner in a category first.  The
+ * cheapest content to rebuild is evicted first; decoded object streams,
+ * then images, then page display lists and last the encodings
+ * of released display lists.
+ * <br>
+ * A budget can be attached to a single document with
+ * {@link org.icepdf.core.pobjects.Document#setMemoryBudget(MemoryBudget)},
+ * documents without one use the global budget, which is configured with the
+ * org.icepdf.core.memoryBudget.size system property, in MB, and is off by
+ * default.  Several documents can share a budget, which is what a rendering
+ * service holding many documents open would normally do.
+ * <br>
+ * Retained sizes are estimates, the budget is enforced after content is
+ * cached so the total can briefly go over the limit.
+ *
+ * @since 6.3.3
+ */
+public class MemoryBudget {
+
+    private static final Logger logger =
+            Logger.getLogger(MemoryBudget.class.toString());
+
+    private static volatile MemoryBudget globalBudget;
+
+    static {
+        // global budget in MB, zero for none.
+        int size = Defs.intProperty("org.icepdf.core.memoryBudget.size", 0);
+        if (size > 0) {
+            globalBudget = new MemoryBudget(size * 1024L * 1024L);
+        }
+    }
+
+    /**
+     * Cache categories, in eviction order.
+     */
+    public enum Category {
+        /**
+         * Decoded object streams, evicted streams are decoded again the next
+         * time one of their objects is loaded.
+         */
+        DECODED_STREAMS,
+        /**
+         * Decoded images held by a document's image pool.
+         */
+        IMAGES,
+        /**
+         * Display lists of initialized pages, released pages are parsed again
+         * the next time they are initialized.
+         */
+        PAGE_CONTENT,
+        /**
+         * Encodings of released display lists, see
+         * {@link org.icepdf.core.pobjects.Page#setEncodedShapesEnabled(boolean, boolean)}.
+         * Pages whose encoding is evicted are parsed again.
+         */
+        ENCODED_PAGE_CONTENT
+    }
+
+    /**
+     * A cache whose memory is managed by a budget.
+     */
+    public interface Participant {
+        /**
+         * @return estimated bytes currently retained.
+         */
+        long getRetainedBytes();
+
+        /**
+         * Evicts least recently used content.
+         *
+         * @param bytes number of bytes the budget would like released.
+         * @return estimated number of bytes released, may be more or less
+         * then asked for.
+         */
+        long evict(long bytes);
+    }
+
+    private final long maxSize;
+    private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+    private final ReentrantLock enforceLock = new ReentrantLock();
+    private final AtomicLong evictedBytes = new AtomicLong();
+
+    /**
+     * @param maxSize maximum number of bytes retained by the registered
+     *                caches, zero or less to only track usage.
+     */
+    public MemoryBudget(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the budget used by documents that don't have one of their own.
+     *
+     * @return global budget, null if there is none.
+     */
+    public static MemoryBudget getGlobal() {
+        return globalBudget;
+    }
+
+    /**
+     * Sets the budget used by documents that don't have one of their own.
+     * Only applies to documents opened after the call.
+     *
+     * @param budget global budget, null for none.
+     */
+    public static void setGlobal(MemoryBudget budget) {
+        globalBudget = budget;
+    }
+
+    /**
+     * Registers a cache with the budget.
+     *
+     * @param owner       owner of the cache, usually a document's library.
+     * @param category    category of the cached content.
+     * @param participant cache to manage.
+     */
+    public void register(Object owner, Category category, Participant participant) {
+        registrations.add(new Registration(owner, category, participant));
+    }
+
+    /**
+     * Removes all the caches of an owner from the budget.
+     *
+     * @param owner owner passed to register.
+     */
+    public void unregister(Object owner) {
+        registrations.removeIf(registration -> registration.owner == owner);
+    }
+
+    /**
+     * Evicts content, in category order, until the registered caches are back
+     * under the budget.  Called by the caches after they grow, if another
+     * thread is already enforcing the budget the call returns immediately.
+     */
+    public void enforce() {
+        if (maxSize <= 0 || !enforceLock.tryLock()) {
+            return;
+        }
+        try {
+            long excess = getUsage() - maxSize;
+            if (excess <= 0) {
+                return;
+            }
+            long released = 0;
+            for (Category category : Category.values()) {
+                List<Registration> candidates = new ArrayList<>();
+                for (Registration registration : registrations) {
+                    if (registration.category == category) {
+                        candidates.add(registration);
+                    }
+                }
+                // largest owner first, each asked for what is still over budget.
+                candidates.sort((a, b) -> Long.compare(
+                        b.participant.getRetainedBytes(), a.participant.getRetainedBytes()));
+                for (Registration registration : candidates) {
+                    if (released >= excess) {
+                        break;
+                    }
+                    released += registration.participant.evict(excess - released);
+                }
+                if (released >= excess) {
+                    break;
+                }
+            }
+            evictedBytes.addAndGet(released);
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Memory budget released " + released + " of " + excess + " bytes over, " + this);
+            }
+        } finally {
+            enforceLock.unlock();
+        }
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return estimated bytes retained by all registered caches.
+     */
+    public long getUsage() {
+        long usage = 0;
+        for (Registration registration : registrations) {
+            usage += registration.participant.getRetainedBytes();
+        }
+        return usage;
+    }
+
+    /**
+     * @param category cache category.
+     * @return estimated bytes retained by the registered caches of a category.
+     */
+    public long getUsage(Category category) {
+        long usage = 0;
+        for (Registration registration : registrations) {
+            if (registration.category == category) {
+                usage += registration.participant.getRetainedBytes();
+            }
+        }
+        return usage;
+    }
+
+    /**
+     * @param owner owner passed to register.
+     * @return estimated bytes retained by the caches of an owner.
+     */
+    public long getUsage(Object owner) {
+        long usage = 0;
+        for (Registration registration : registrations) {
+            if (registration.owner == owner) {
+                usage += registration.participant.getRetainedBytes();
+            }
+        }
+        return usage;
+    }
+
+    /**
+     * @return total estimated bytes released by evictions.
+     */
+    public long getEvictedBytes() {
+        return evictedBytes.get();
+    }
+
+    public String toString() {
+        StringBuilder usage = new StringBuilder("usage=").append(getUsage()).append('/').append(maxSize);
+        for (Category category : Category.values()) {
+            usage.append(", ").append(category).append('=').append(getUsage(category));
+        }
+        return usage.append(", evicted=").append(evictedBytes.get()).toString();
+    }
+
+    private static final class Registration {
+        final Object owner;
+        final Category category;
+        final Participant participant;
+
+        Registration(Object owner, Category category, Participant participant) {
+            this.owner = owner;
+            this.category = category;
+            this.participant = participant;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.util;
+
+import org.icepdf.core.pobjects.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads the object graph reachable from a set of root objects in file offset
+ * order.  The graph is walked a level at a time, the references found at
+ * each level are sorted by the offset of their cross reference entry and then
+ * loaded in a single forward sweep over the file.  Objects in the same object
+ * stream sort together so each object stream is only decoded once.
+ * <br>
+ * References back up the document structure, /Parent and /P, are not
+ * followed and other pages found along the way, link destinations for
+ * example, are loaded but not walked.
+ * <br>
+ * Only objects the prefetch loads itself are walked.  Objects that were
+ * already loaded can be in use, and their dictionaries modified, by other
+ * threads; their children were loaded along with them.
+ * <br>
+ * The library only keeps weak references to loaded objects, callers must hold
+ * on to the returned list until the objects have been used.
+ *
+ * @since 6.3.3
+ */
+public class ObjectPrefetcher {
+
+    private static final Logger logger =
+            Logger.getLogger(ObjectPrefetcher.class.toString());
+
+    private static final Name PARENT_KEY = new Name("Parent");
+    private static final Name P_KEY = new Name("P");
+
+    private static int defaultMaxObjects;
+
+    static {
+        defaultMaxObjects = Defs.intProperty("org.icepdf.core.page.prefetch.maxObjects", 4096);
+    }
+
+    private Library library;
+    private int maxObjects;
+
+    public ObjectPrefetcher(Library library) {
+        this(library, defaultMaxObjects);
+    }
+
+    /**
+     * @param library    document library to load objects from.
+     * @param maxObjects upper bound on the number of objects a single call to
+     *                   prefetch will load.
+     */
+    public ObjectPrefetcher(Library library, int maxObjects) {
+        this.library = library;
+        this.maxObjects = maxObjects;
+    }
+
+    /**
+     * Loads every object reachable from the given roots.
+     *
+     * @param roots dictionaries, arrays or references to start from.
+     * @return objects that were loaded, in load order.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public List<Object> prefetch(Object... roots) throws InterruptedException {
+        List<Object> loaded = new ArrayList<>();
+        Set<Reference> visited = new HashSet<>();
+        List<Reference> level = new ArrayList<>();
+        for (Object root : roots) {
+            collectReferences(root, level, visited);
+        }
+        long start = System.nanoTime();
+        int depth = 0;
+        while (!level.isEmpty() && loaded.size() < maxObjects) {
+            sortByPosition(level);
+            List<Reference> next = new ArrayList<>();
+            for (Reference reference : level) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Object prefetch interrupted");
+                }
+                if (loaded.size() >= maxObjects) {
+                    break;
+                }
+                if (library.isObjectLoaded(reference)) {
+                    continue;
+                }
+                Object object = library.getObject(reference);
+                if (object == null) {
+                    continue;
+                }
+                loaded.add(object);
+                if (!(object instanceof Page) && !(object instanceof PageTree)) {
+                    collectReferences(object, next, visited);
+                }
+            }
+            level = next;
+            depth++;
+        }
+        if (logger.isLoggable(Level.FINER)) {
+            logger.finer("Prefetched " + loaded.size() + " objects, " + depth + " levels in " +
+                    (System.nanoTime() - start) / 1000000 + "ms");
+        }
+        return loaded;
+    }
+
+    private void sortByPosition(List<Reference> references) {
+        final Map<Reference, Long> positions = new HashMap<>(references.size());
+        for (Reference reference : references) {
+            long position = library.getObjectPosition(reference);
+            // unknown offsets go last, loading them will most likely fail.
+            positions.put(reference, position < 0 ? Long.MAX_VALUE : position);
+        }
+        references.sort((a, b) -> {
+            int compare = Long.compare(positions.get(a), positions.get(b));
+            if (compare == 0) {
+                compare = Integer.compare(a.getObjectNumber(), b.getObjectNumber());
+            }
+            return compare;
+        });
+    }
+
+    private void collectReferences(Object object, List<Reference> found, Set<Reference> visited) {
+        if (object instanceof Reference) {
+            if (visited.add((Reference) object)) {
+                found.add((Reference) object);
+            }
+        } else if (object instanceof PObject) {
+            collectReferences(((PObject) object).getObject(), found, visited);
+        } else if (object instanceof Dictionary) {
+            collectReferences(((Dictionary) object).getEntries(), found, visited);
+        } else if (object instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+                Object key = entry.getKey();
+                if (PARENT_KEY.equals(key) || P_KEY.equals(key)) {
+                    continue;
+                }
+                collectReferences(entry.getValue(), found, visited);
+            }
+        } else if (object instanceof List) {
+            for (Object value : (List<?>) object) {
+                collectReferences(value, found, visited);
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent table of weakly referenced objects keyed by object and
+ * generation number.  The two numbers are packed into a primitive long so
+ * lookups don't need a Reference key, and entries live in open addressed
+ * arrays rather then hash map nodes, which leaves the weak reference itself
+ * as the only per object allocation.
+ * <br>
+ * The table is split into segments, writes lock their segment while reads
+ * are lock free.  A reader racing a write can miss the entry being written,
+ * in which case the object is simply loaded again, just as with a hash map.
+ * Entries whose object has been garbage collected are removed on the next
+ * write to the table.
+ *
+ * @since 6.3.3
+ */
+class ObjectTable {
+
+    private static final int SEGMENT_SHIFT = 4;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_SHIFT;
+    private static final int MIN_CAPACITY = 16;
+
+    // marks a removed slot, probing continues past it.
+    private static final Entry TOMBSTONE = new Entry(Long.MIN_VALUE, null, null);
+
+    private final Segment[] segments;
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    ObjectTable(int initialCapacity) {
+        segments = new Segment[SEGMENT_COUNT];
+        int capacity = tableSizeFor(Math.max(initialCapacity / SEGMENT_COUNT, MIN_CAPACITY));
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    static long key(int objectNumber, int generation) {
+        return ((long) objectNumber << 16) | (generation & 0xFFFF);
+    }
+
+    private static int hash(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) (key ^ (key >>> 33));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        return size < 0 ? 1 << 30 : size;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[hash >>> (32 - SEGMENT_SHIFT)];
+    }
+
+    /**
+     * Gets the object stored for the given object and generation number.
+     *
+     * @return object, or null if there is no entry or its object was collected.
+     */
+    Object get(int objectNumber, int generation) {
+        long key = key(objectNumber, generation);
+        int hash = hash(key);
+        AtomicReferenceArray<Entry> table = segmentFor(hash).table;
+        int mask = table.length() - 1;
+        for (int i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            Entry entry = table.get(i);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.key == key && entry != TOMBSTONE) {
+                return entry.get();
+            }
+        }
+        return null;
+    }
+
+    void put(int objectNumber, int generation, Object value) {
+        expungeCollected();
+        long key = key(objectNumber, generation);
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            segment.put(key, hash, new Entry(key, value, collected));
+        }
+    }
+
+    void remove(int objectNumber, int generation) {
+        long key = key(objectNumber, generation);
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            segment.remove(key, hash, null);
+        }
+    }
+
+    /**
+     * Removes every entry whose object matches the filter.
+     */
+    void removeIf(Predicate<Object> filter) {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                AtomicReferenceArray<Entry> table = segment.table;
+                for (int i = 0, max = table.length(); i < max; i++) {
+                    Entry entry = table.get(i);
+                    if (entry != null && entry != TOMBSTONE) {
+                        Object value = entry.get();
+                        if (value != null && filter.test(value)) {
+                            table.set(i, TOMBSTONE);
+                            segment.size--;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of entries, including those whose object was collected but
+     * haven't been removed yet.
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    private void expungeCollected() {
+        Object stale;
+        while ((stale = collected.poll()) != null) {
+            Entry entry = (Entry) stale;
+            int hash = hash(entry.key);
+            Segment segment = segmentFor(hash);
+            synchronized (segment) {
+                segment.remove(entry.key, hash, entry);
+            }
+        }
+    }
+
+    private static final class Entry extends WeakReference<Object> {
+        final long key;
+
+        Entry(long key, Object value, ReferenceQueue<Object> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+
+    private static final class Segment {
+        // replaced, never resized in place, so readers always see a consistent table.
+        volatile AtomicReferenceArray<Entry> table;
+        // live entries and live entries plus tombstones, guarded by this.
+        int size;
+        int used;
+
+        Segment(int capacity) {
+            table = new AtomicReferenceArray<>(capacity);
+        }
+
+        void put(long key, int hash, Entry entry) {
+            if ((used + 1) * 4 > table.length() * 3) {
+                rehash();
+            }
+            AtomicReferenceArray<Entry> table = this.table;
+            int mask = table.length() - 1;
+            int free = -1;
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                Entry current = table.get(i);
+                if (current == null) {
+                    if (free < 0) {
+                        free = i;
+                        used++;
+                    }
+                    break;
+                }
+                if (current == TOMBSTONE) {
+                    if (free < 0) {
+                        free = i;
+                    }
+                } else if (current.key == key) {
+                    table.set(i, entry);
+                    return;
+                }
+            }
+            table.set(free, entry);
+            size++;
+        }
+
+        /**
+         * Removes the entry for key, if expected isn't null it's only
+         * removed if it is still the current entry.
+         */
+        void remove(long key, int hash, Entry expected) {
+            AtomicReferenceArray<Entry> table = this.table;
+            int mask = table.length() - 1;
+            for (int i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                Entry current = table.get(i);
+                if (current == null) {
+                    return;
+                }
+                if (current != TOMBSTONE && current.key == key) {
+                    if (expected == null || expected == current) {
+                        table.set(i, TOMBSTONE);
+                        size--;
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Copies live entries to a new table, growing it if needed, which
+         * drops tombstones and collected entries.
+         */
+        private void rehash() {
+            AtomicReferenceArray<Entry> old = table;
+            int live = 0;
+            for (int i = 0, max = old.length(); i < max; i++) {
+                Entry entry = old.get(i);
+                if (entry != null && entry != TOMBSTONE && entry.get() != null) {
+                    live++;
+                }
+            }
+            int capacity = old.length();
+            while ((live + 1) * 2 > capacity) {
+                capacity <<= 1;
+            }
+            AtomicReferenceArray<Entry> grown = new AtomicReferenceArray<>(capacity);
+            int mask = capacity - 1;
+            for (int i = 0, max = old.length(); i < max; i++) {
+                Entry entry = old.get(i);
+                if (entry != null && entry != TOMBSTONE && entry.get() != null) {
+                    int slot = hash(entry.key) & mask;
+                    while (grown.get(slot) != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    grown.set(slot, entry);
+                }
+            }
+            size = live;
+            used = live;
+            table = grown;
+        }
+    }
+}
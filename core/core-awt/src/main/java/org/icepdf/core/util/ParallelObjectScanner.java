@@ -0,0 +1,531 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.util;
+
+import org.icepdf.core.io.SeekableInput;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Scans a document for object and trailer markers without parsing it, used
+ * to rebuild the cross reference of a damaged file.  The file is split into
+ * chunks that are scanned concurrently with positional reads, each chunk
+ * reports the markers that start inside it and the results are merged back
+ * into file order.
+ * <br>
+ * The scanner looks for
+ * <ul>
+ * <li><code>N G obj</code>, the start of every indirect object.</li>
+ * <li><code>trailer</code>, classic trailer dictionaries.</li>
+ * <li><code>/XRef</code> and <code>/Catalog</code> names, reported as the
+ * offset of the object they appear in, which locates cross reference streams
+ * and catalog candidates.</li>
+ * </ul>
+ * Markers are recognized lexically, so the <code>stream</code>,
+ * <code>endstream</code> and <code>endobj</code> keywords are recorded as well
+ * and object and trailer markers that fall inside stream data, an embedded
+ * file that is itself a PDF say, are dropped once the chunks are merged.  A
+ * stream's data is measured with its direct /Length when that's confirmed by
+ * an endstream or endobj keyword right after the data, otherwise it ends at
+ * the first of those keywords, so a stream missing its endstream doesn't
+ * hide the objects that follow.  Later
+ * objects replace earlier ones with the same number just as with incremental
+ * updates.
+ *
+ * @since 6.3.3
+ */
+public class ParallelObjectScanner {
+
+    private static final Logger logger =
+            Logger.getLogger(ParallelObjectScanner.class.toString());
+
+    // longest marker that can straddle the end of a chunk, "2147483647 65535 obj".
+    private static final int OVERLAP = 64;
+
+    private static final byte[] OBJ = {'o', 'b', 'j'};
+    private static final byte[] TRAILER = {'t', 'r', 'a', 'i', 'l', 'e', 'r'};
+    private static final byte[] XREF_NAME = {'/', 'X', 'R', 'e', 'f'};
+    private static final byte[] CATALOG_NAME = {'/', 'C', 'a', 't', 'a', 'l', 'o', 'g'};
+    private static final byte[] STREAM = {'s', 't', 'r', 'e', 'a', 'm'};
+    private static final byte[] ENDSTREAM = {'e', 'n', 'd', 's', 't', 'r', 'e', 'a', 'm'};
+    private static final byte[] ENDOBJ = {'e', 'n', 'd', 'o', 'b', 'j'};
+    private static final byte[] LENGTH_NAME = {'/', 'L', 'e', 'n', 'g', 't', 'h'};
+    // slack allowed between the end of a stream's data and its endstream keyword.
+    private static final int STREAM_END_SLACK = 32;
+
+    private SeekableInput input;
+    private int threads;
+    private int chunkSize;
+
+    /**
+     * Creates a scanner using one thread per available processor.
+     *
+     * @param input document to scan.
+     */
+    public ParallelObjectScanner(SeekableInput input) {
+        this(input, Runtime.getRuntime().availableProcessors(), 4 * 1024 * 1024);
+    }
+
+    /**
+     * @param input     document to scan.
+     * @param threads   number of scanning threads.
+     * @param chunkSize number of bytes scanned per task.
+     */
+    public ParallelObjectScanner(SeekableInput input, int threads, int chunkSize) {
+        this.input = input;
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(OVERLAP * 4, chunkSize);
+    }
+
+    /**
+     * Scans the whole input.
+     *
+     * @return markers in file order.
+     * @throws IOException          if the input can't be read.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public Result scan() throws IOException, InterruptedException {
+        long length = input.getLength();
+        int chunks = (int) ((length + chunkSize - 1) / chunkSize);
+        long start = System.nanoTime();
+        List<Result> results = new ArrayList<>(chunks);
+        if (threads == 1 || chunks <= 1) {
+            for (int i = 0; i < chunks; i++) {
+                results.add(scanChunk((long) i * chunkSize, Math.min(length, (long) (i + 1) * chunkSize), length));
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, chunks), command -> {
+                Thread thread = new Thread(command, "ICEpdf-repair-scan");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<Result>> futures = new ArrayList<>(chunks);
+                for (int i = 0; i < chunks; i++) {
+                    final long chunkStart = (long) i * chunkSize;
+                    final long chunkEnd = Math.min(length, chunkStart + chunkSize);
+                    futures.add(executor.submit(() -> scanChunk(chunkStart, chunkEnd, length)));
+                }
+                for (Future<Result> future : futures) {
+                    results.add(future.get());
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("Error scanning document", cause);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        Result merged = new Result();
+        for (Result result : results) {
+            merged.append(result);
+        }
+        merged.removeStreamData();
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Scanned " + length + " bytes in " + (System.nanoTime() - start) / 1000000 +
+                    "ms: " + merged);
+        }
+        return merged;
+    }
+
+    /**
+     * Scans the markers that start in [start, end).
+     */
+    private Result scanChunk(long start, long end, long length) throws IOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Repair scan interrupted");
+        }
+        // one byte before the chunk to check the marker boundary and enough
+        // after it to finish a marker that starts inside.
+        long readStart = Math.max(0, start - 1);
+        long readEnd = Math.min(length, end + OVERLAP);
+        byte[] data = new byte[(int) (readEnd - readStart)];
+        int total = 0;
+        while (total < data.length) {
+            int read = input.read(readStart + total, data, total, data.length - total);
+            if (read <= 0) {
+                break;
+            }
+            total += read;
+        }
+        int first = (int) (start - readStart);
+        int last = (int) (end - readStart);
+        Result result = new Result();
+        long lastObjectOffset = -1;
+        int lastObjectIndex = -1;
+        for (int i = first; i < total; i++) {
+            byte b = data[i];
+            if (b == 'o' && matches(data, total, i, OBJ) && isDelimiter(data, total, i - 1) &&
+                    isDelimiter(data, total, i + OBJ.length)) {
+                int objectStart = findObjectNumbers(data, i, result);
+                if (objectStart >= 0) {
+                    if (objectStart >= first && objectStart < last) {
+                        lastObjectOffset = readStart + objectStart;
+                        lastObjectIndex = objectStart;
+                        result.addObject(result.lastNumber, result.lastGeneration, lastObjectOffset);
+                    } else if (objectStart >= last) {
+                        break;
+                    }
+                }
+            } else if (i < last) {
+                if (b == 't' && matches(data, total, i, TRAILER) && isDelimiter(data, total, i - 1) &&
+                        isDelimiter(data, total, i + TRAILER.length)) {
+                    result.trailerOffsets.add(readStart + i);
+                } else if (b == 's' && matches(data, total, i, STREAM) && isDelimiter(data, total, i - 1) &&
+                        (i == 0 || data[i - 1] != '/') && isEndOfLine(data, total, i + STREAM.length)) {
+                    result.streamStarts.add(readStart + i);
+                    int dataStart = i + STREAM.length + (data[i + STREAM.length] == '\r' &&
+                            i + STREAM.length + 1 < total && data[i + STREAM.length + 1] == '\n' ? 2 : 1);
+                    long streamLength = lastObjectIndex >= 0 ? findLength(data, lastObjectIndex, i) : -1;
+                    result.streamDataEnds.add(streamLength >= 0 ? readStart + dataStart + streamLength : -1);
+                } else if (b == 'e' && (matches(data, total, i, ENDSTREAM) &&
+                        isDelimiter(data, total, i + ENDSTREAM.length) ||
+                        matches(data, total, i, ENDOBJ) && isDelimiter(data, total, i + ENDOBJ.length)) &&
+                        isDelimiter(data, total, i - 1)) {
+                    result.streamEnds.add(readStart + i);
+                } else if (b == '/') {
+                    // names before the first object of the chunk belong to the
+                    // last object of the previous chunk, resolved when merging.
+                    if (matches(data, total, i, XREF_NAME) && isDelimiter(data, total, i + XREF_NAME.length)) {
+                        if (lastObjectOffset >= 0) {
+                            result.addXRefObject(lastObjectOffset);
+                        } else {
+                            result.leadingXRef = true;
+                        }
+                    } else if (matches(data, total, i, CATALOG_NAME) &&
+                            isDelimiter(data, total, i + CATALOG_NAME.length)) {
+                        if (lastObjectOffset >= 0) {
+                            result.addCatalogObject(lastObjectOffset);
+                        } else {
+                            result.leadingCatalog = true;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the direct /Length of the stream dictionary in [start, end).
+     *
+     * @return length, -1 if there's no /Length entry or it's an indirect
+     * reference.
+     */
+    private static long findLength(byte[] data, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (data[i] == '/' && matches(data, end, i, LENGTH_NAME) &&
+                    isDelimiter(data, end, i + LENGTH_NAME.length)) {
+                int j = i + LENGTH_NAME.length;
+                while (j < end && isWhitespace(data[j])) j++;
+                int numberStart = j;
+                while (j < end && isDigit(data[j])) j++;
+                if (numberStart == j) {
+                    return -1;
+                }
+                long length = parse(data, numberStart, j);
+                // "N G R" is a reference to the length.
+                while (j < end && isWhitespace(data[j])) j++;
+                if (j < end && isDigit(data[j])) {
+                    return -1;
+                }
+                return length;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the "N G" in front of the obj keyword at objIndex, storing them in
+     * the result's last number and generation.
+     *
+     * @return index of the first digit of the object number, -1 if the
+     * keyword isn't preceded by two integers.
+     */
+    private static int findObjectNumbers(byte[] data, int objIndex, Result result) {
+        int i = objIndex - 1;
+        while (i >= 0 && isWhitespace(data[i])) i--;
+        int generationEnd = i + 1;
+        while (i >= 0 && isDigit(data[i])) i--;
+        int generationStart = i + 1;
+        if (generationStart == generationEnd || i < 0 || !isWhitespace(data[i])) {
+            return -1;
+        }
+        while (i >= 0 && isWhitespace(data[i])) i--;
+        int numberEnd = i + 1;
+        while (i >= 0 && isDigit(data[i])) i--;
+        int numberStart = i + 1;
+        if (numberStart == numberEnd || (i >= 0 && !isDelimiter(data[i]))) {
+            return -1;
+        }
+        long number = parse(data, numberStart, numberEnd);
+        long generation = parse(data, generationStart, generationEnd);
+        if (number > Integer.MAX_VALUE || generation > 65535) {
+            return -1;
+        }
+        result.lastNumber = (int) number;
+        result.lastGeneration = (int) generation;
+        return numberStart;
+    }
+
+    private static long parse(byte[] data, int start, int end) {
+        if (end - start > 10) {
+            return Long.MAX_VALUE;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (data[i] - '0');
+        }
+        return value;
+    }
+
+    private static boolean matches(byte[] data, int length, int index, byte[] token) {
+        if (index + token.length > length) {
+            return false;
+        }
+        for (int i = 1; i < token.length; i++) {
+            if (data[index + i] != token[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDelimiter(byte[] data, int length, int index) {
+        // the start and end of the file count as delimiters.
+        return index < 0 || index >= length || isDelimiter(data[index]);
+    }
+
+    private static boolean isEndOfLine(byte[] data, int length, int index) {
+        return index < length && (data[index] == '\r' || data[index] == '\n');
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return isWhitespace(b) || b == '(' || b == ')' || b == '<' || b == '>' ||
+                b == '[' || b == ']' || b == '{' || b == '}' || b == '/' || b == '%';
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * Markers found by a scan, in file order.
+     */
+    public static class Result {
+
+        private int[] objectNumbers = new int[256];
+        private int[] generations = new int[256];
+        private long[] objectOffsets = new long[256];
+        private int objectCount;
+
+        private List<Long> trailerOffsets = new ArrayList<>();
+        private List<Long> xrefObjectOffsets = new ArrayList<>();
+        private List<Long> catalogObjectOffsets = new ArrayList<>();
+        // stream keywords and the endstream or endobj keywords that end their data.
+        private List<Long> streamStarts = new ArrayList<>();
+        // end of each stream's data from its direct /Length, -1 if not known.
+        private List<Long> streamDataEnds = new ArrayList<>();
+        private List<Long> streamEnds = new ArrayList<>();
+
+        // names found before the first object marker of a chunk.
+        private boolean leadingXRef;
+        private boolean leadingCatalog;
+
+        // numbers of the last matched object marker, scratch space for the scan.
+        private int lastNumber;
+        private int lastGeneration;
+
+        private void addObject(int number, int generation, long offset) {
+            if (objectCount == objectOffsets.length) {
+                int capacity = objectCount * 2;
+                objectNumbers = Arrays.copyOf(objectNumbers, capacity);
+                generations = Arrays.copyOf(generations, capacity);
+                objectOffsets = Arrays.copyOf(objectOffsets, capacity);
+            }
+            objectNumbers[objectCount] = number;
+            generations[objectCount] = generation;
+            objectOffsets[objectCount] = offset;
+            objectCount++;
+        }
+
+        private void addXRefObject(long objectOffset) {
+            if (xrefObjectOffsets.isEmpty() || xrefObjectOffsets.get(xrefObjectOffsets.size() - 1) != objectOffset) {
+                xrefObjectOffsets.add(objectOffset);
+            }
+        }
+
+        private void addCatalogObject(long objectOffset) {
+            if (catalogObjectOffsets.isEmpty() ||
+                    catalogObjectOffsets.get(catalogObjectOffsets.size() - 1) != objectOffset) {
+                catalogObjectOffsets.add(objectOffset);
+            }
+        }
+
+        private void append(Result other) {
+            if (objectCount > 0) {
+                if (other.leadingXRef) {
+                    addXRefObject(objectOffsets[objectCount - 1]);
+                }
+                if (other.leadingCatalog) {
+                    addCatalogObject(objectOffsets[objectCount - 1]);
+                }
+            }
+            for (int i = 0; i < other.objectCount; i++) {
+                addObject(other.objectNumbers[i], other.generations[i], other.objectOffsets[i]);
+            }
+            trailerOffsets.addAll(other.trailerOffsets);
+            streamStarts.addAll(other.streamStarts);
+            streamDataEnds.addAll(other.streamDataEnds);
+            streamEnds.addAll(other.streamEnds);
+            for (Long offset : other.xrefObjectOffsets) {
+                addXRefObject(offset);
+            }
+            for (Long offset : other.catalogObjectOffsets) {
+                addCatalogObject(offset);
+            }
+        }
+
+        /**
+         * Drops the object and trailer markers found inside stream data,
+         * along with the name markers of the dropped objects.
+         */
+        private void removeStreamData() {
+            // stream data ranges, [start, end) pairs in file order.
+            List<long[]> ranges = new ArrayList<>();
+            long rangeEnd = -1;
+            for (int i = 0, max = streamStarts.size(); i < max; i++) {
+                long start = streamStarts.get(i);
+                if (start < rangeEnd) {
+                    continue;
+                }
+                // trust the length if the data is followed by its endstream.
+                long dataEnd = streamDataEnds.get(i);
+                int endIndex = firstEndAtOrAfter(dataEnd >= 0 ? dataEnd : start + 1);
+                if (dataEnd < 0 || endIndex == streamEnds.size() ||
+                        streamEnds.get(endIndex) > dataEnd + STREAM_END_SLACK) {
+                    endIndex = firstEndAtOrAfter(start + 1);
+                }
+                rangeEnd = endIndex < streamEnds.size() ? streamEnds.get(endIndex) : Long.MAX_VALUE;
+                ranges.add(new long[]{start, rangeEnd});
+            }
+            if (ranges.isEmpty()) {
+                return;
+            }
+            List<Long> removedObjects = new ArrayList<>();
+            int count = 0;
+            int range = 0;
+            for (int i = 0; i < objectCount; i++) {
+                long offset = objectOffsets[i];
+                while (range < ranges.size() && ranges.get(range)[1] <= offset) {
+                    range++;
+                }
+                if (range < ranges.size() && ranges.get(range)[0] <= offset) {
+                    removedObjects.add(offset);
+                    continue;
+                }
+                objectNumbers[count] = objectNumbers[i];
+                generations[count] = generations[i];
+                objectOffsets[count] = offset;
+                count++;
+            }
+            objectCount = count;
+            trailerOffsets = removeInRanges(trailerOffsets, ranges);
+            xrefObjectOffsets.removeAll(removedObjects);
+            catalogObjectOffsets.removeAll(removedObjects);
+        }
+
+        private int firstEndAtOrAfter(long offset) {
+            int index = Collections.binarySearch(streamEnds, offset);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        private static List<Long> removeInRanges(List<Long> offsets, List<long[]> ranges) {
+            List<Long> kept = new ArrayList<>(offsets.size());
+            int range = 0;
+            for (long offset : offsets) {
+                while (range < ranges.size() && ranges.get(range)[1] <= offset) {
+                    range++;
+                }
+                if (range == ranges.size() || offset < ranges.get(range)[0]) {
+                    kept.add(offset);
+                }
+            }
+            return kept;
+        }
+
+        public int getObjectCount() {
+            return objectCount;
+        }
+
+        public int getObjectNumber(int index) {
+            return objectNumbers[index];
+        }
+
+        public int getGeneration(int index) {
+            return generations[index];
+        }
+
+        public long getObjectOffset(int index) {
+            return objectOffsets[index];
+        }
+
+        /**
+         * @return offsets of the trailer keywords.
+         */
+        public List<Long> getTrailerOffsets() {
+            return trailerOffsets;
+        }
+
+        /**
+         * @return offsets of the objects that contain an /XRef name, cross
+         * reference stream candidates.
+         */
+        public List<Long> getXRefObjectOffsets() {
+            return xrefObjectOffsets;
+        }
+
+        /**
+         * @return offsets of the objects that contain a /Catalog name.
+         */
+        public List<Long> getCatalogObjectOffsets() {
+            return catalogObjectOffsets;
+        }
+
+        public String toString() {
+            return "objects=" + objectCount + ", trailers=" + trailerOffsets.size() +
+                    ", xrefStreams=" + xrefObjectOffsets.size() + ", catalogs=" + catalogObjectOffsets.size();
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.icepdf.core.pobjects.graphics.images.ImageStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -45,14 +46,38 @@ public class Parser {
     public static final int PARSE_MODE_NORMAL = 0;
     public static final int PARSE_MODE_OBJECT_STREAM = 1;
 
+    // parse dictionaries into CompactHashMaps.
+    private static boolean isCompactDictionaryEnabled;
+
+    static {
+        isCompactDictionaryEnabled = Defs.sysPropertyBoolean("org.icepdf.core.parser.compactDictionary.enabled",
+                true);
+    }
+
     // InputStream has to support mark(), reset(), and markSupported()
     // DO NOT close this, since we have two cases: read everything up front, and progressive reads
 //    private BufferedMarkedInputStream reader;
 
+    // keywords returned as shared instances rather then a new String per token.
+    private static final String[] KEYWORDS = {
+            "obj", "endobj", "R", "stream", "endstream", "true", "false", "null",
+            "xref", "trailer", "startxref", "n", "f"};
+    private static final byte[][] KEYWORD_BYTES = new byte[KEYWORDS.length][];
+
+    static {
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            KEYWORD_BYTES[i] = KEYWORDS[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
     private InputStream reader;
     boolean lastTokenHString = false;
-    private Stack<Object> stack = new Stack<>();
-    private Stack<Integer> offSetStack = new Stack<>();
+    private ArrayStack<Object> stack = new ArrayStack<>();
+    private IntStack offSetStack = new IntStack();
+    // bytes of the token being scanned, reused for every token.
+    private byte[] tokenBuffer = new byte[64];
+    // characters of the string being scanned, string objects copy them.
+    private final StringBuilder stringBuffer = new StringBuilder(64);
     private int parseMode;
     private boolean isTrailer;
     private int linearTraversalOffset;
@@ -61,6 +86,38 @@ public class Parser {
         this(r, PARSE_MODE_NORMAL);
     }
 
+    /**
+     * Sets if parsed dictionaries are held in a {@link CompactHashMap}, which
+     * takes a fraction of the memory of a HashMap for the small dictionaries
+     * that make up most of a document.
+     *
+     * @param compactDictionaryEnabled true to enable, otherwise false.
+     */
+    public static void setCompactDictionaryEnabled(boolean compactDictionaryEnabled) {
+        isCompactDictionaryEnabled = compactDictionaryEnabled;
+    }
+
+    /**
+     * Creates the map a parsed dictionary is held in.
+     *
+     * @return new, empty, dictionary map.
+     */
+    public static HashMap<Object, Object> createDictionary() {
+        return isCompactDictionaryEnabled ? new CompactHashMap<>() : new HashMap<>();
+    }
+
+    /**
+     * Releases any spare capacity of a dictionary map once all its entries
+     * have been parsed.
+     *
+     * @param dictionary dictionary map from {@link #createDictionary()}.
+     */
+    public static void completeDictionary(HashMap<Object, Object> dictionary) {
+        if (dictionary instanceof CompactHashMap) {
+            ((CompactHashMap) dictionary).trimToSize();
+        }
+    }
+
     public Parser(SeekableInput r, int pm) {
 //        reader = new BufferedMarkedInputStream(r.getInputStream());
         reader = r.getInputStream();
@@ -232,6 +289,11 @@ public class Parser {
                     } else {
                         lengthOfStreamData = captureStreamData(null);
                     }
+                    // a cursor's positions are those of its source, so wrap the
+                    // source directly as the wrapper only uses positional reads.
+                    if (streamDataInput instanceof SeekableInputCursor) {
+                        streamDataInput = ((SeekableInputCursor) streamDataInput).getSource();
+                    }
                     streamInputWrapper = new SeekableInputConstrainedWrapper(
                             streamDataInput, filePositionOfStreamData, lengthOfStreamData);
                 } else { // reader is just regular InputStream (BufferedInputStream)
@@ -287,7 +349,7 @@ public class Parser {
                     if (type.equals("XRef")) {
                         stream = new Stream(library, streamHash, streamInputWrapper);
                         stream.init();
-                        InputStream in = stream.getDecodedByteArrayInputStream();
+                        InputStream in = stream.getDecodedInputStream();
                         CrossReference xrefStream = new CrossReference();
                         if (in != null) {
                             try {
@@ -384,7 +446,7 @@ public class Parser {
                 stack.push(v);
             } else if (nextToken.equals("<<")) {
                 deepnessCount++;
-                if (!stack.empty() && stack.peek() instanceof Reference) {
+                if (!stack.isEmpty() && stack.peek() instanceof Reference) {
                     inObject = true;
                 }
                 stack.push(nextToken);
@@ -395,7 +457,7 @@ public class Parser {
                 // check for extra >> which we want to ignore
                 if (!isTrailer && deepnessCount >= 0) {
                     if (!stack.isEmpty()) {
-                        HashMap<Object, Object> hashMap = new HashMap<>();
+                        HashMap<Object, Object> hashMap = createDictionary();
                         Object obj = stack.pop();
                         // put all of the dictionary definistion into the
                         // the hashTabl
@@ -409,6 +471,7 @@ public class Parser {
                                 break;
                             }
                         }
+                        completeDictionary(hashMap);
                         obj = hashMap.get(Dictionary.TYPE_KEY);
                         if (obj == null) {
                             // PDF-927,  incorrect /type def.
@@ -659,7 +722,7 @@ public class Parser {
     public PObject addPObject(Library library, Reference objectReference) {
         Object o = stack.pop();
 
-        if (objectReference == null && !stack.empty() && stack.peek() instanceof Reference) {
+        if (objectReference == null && !stack.isEmpty() && stack.peek() instanceof Reference) {
             objectReference = (Reference) stack.pop();
         }
 
@@ -695,12 +758,13 @@ public class Parser {
         Object o = getToken();
         if (o instanceof String) {
             if (o.equals("<<")) {
-                HashMap<Object, Object> h = new HashMap<>();
+                HashMap<Object, Object> h = createDictionary();
                 Object o1 = getStreamObject();
                 while (!o1.equals(">>")) {
                     h.put(o1, getStreamObject());
                     o1 = getStreamObject();
                 }
+                completeDictionary(h);
                 o = h;
             }
             // arrays are only used for CID mappings, the hex decoding is delayed
@@ -730,8 +794,6 @@ public class Parser {
 
         int currentByte;
         char currentChar;
-        boolean inString = false;  // currently parsing a string
-        boolean hexString = false;
         boolean inNumber = false;
         lastTokenHString = false;
 
@@ -755,7 +817,7 @@ public class Parser {
          */
         if (currentChar == '(') {
             // mark that we are currrently processing a string
-            inString = true;
+            return getStringToken(currentChar, false);
         } else if (currentChar == ']') {
             // fount end of an array
             return "]";
@@ -802,36 +864,76 @@ public class Parser {
             }
             // Otherwise we have a hex number
             else {
-                inString = true;
-                hexString = true;
+                reader.reset();
+                return getStringToken(currentChar, true);
             }
         }
 
         // return to the previous mark
         reader.reset();
 
-        // store the parsed char in the token buffer.
-        StringBuilder stringBuffer = new StringBuilder();
+        // scan the rest of the token into the token buffer, names, numbers
+        // and keywords are built from the bytes without an intermediate String.
+        byte[] token = tokenBuffer;
+        int length = 0;
+        token[length++] = (byte) currentByte;
+        while (true) {
+            reader.mark(1);
+            currentByte = reader.read();
+            // if there are no more bytes (-1) then we must have reached the end of this token
+            if (currentByte < 0) {
+                break;
+            }
+            currentChar = (char) currentByte;
+            // white space or other elements mean that we are on the next token
+            if (isWhitespace(currentChar)) {
+                // we need to return the CR LR, as it is need by stream parsing
+                if (currentByte == 13 || currentByte == 10) {
+                    reader.reset();
+                }
+                break;
+            } else if (isDelimiter(currentChar)) {
+                // reset the reader so we start on this token on the next parse
+                reader.reset();
+                break;
+            }
+            // eat any junk characters
+            if (currentByte < 128) {
+                if (length == token.length) {
+                    token = tokenBuffer = Arrays.copyOf(token, length * 2);
+                }
+                token[length++] = (byte) currentByte;
+            }
+        }
 
-        stringBuffer.append(currentChar);
+        // return a new name
+        if (token[0] == '/') {
+            return Name.intern(token, 1, length - 1);
+        }
+        // if a number try and parse it
+        else if (inNumber) {
+            return getNumber(token, length);
+        }
+        return getKeyword(token, length);
+    }
 
-        /*
-          Finally parse the contents of a complex token
-         */
+    /**
+     * Scans a literal or hex string token, the opening delimiter has already
+     * been read.
+     */
+    private Object getStringToken(char openingChar, boolean hexString) throws IOException {
+        int currentByte;
+        char currentChar;
+        StringBuilder stringBuffer = this.stringBuffer;
+        stringBuffer.setLength(0);
+        stringBuffer.append(openingChar);
 
         int parenthesisCount = 0;
-        boolean complete = false;
         // indicates that the current char should be ignored and not added to
         // the current string.
         boolean ignoreChar = false;
 
-        do { // while !complete
-
-            // if we are not parsing a string mark the location
-            if (!inString) {
-                reader.mark(1);
-            }
-
+        while (true) {
             // get the next byte and corresponding char
             currentByte = reader.read();
             if (currentByte >= 0) {
@@ -843,191 +945,164 @@ public class Parser {
                 break;
             }
 
-            // if we are parsing a token that is a string, (...)
-            if (inString) {
-                if (hexString) {
-                    // found the end of a dictionary
-                    if (currentChar == '>') {
+            if (hexString) {
+                // found the end of a dictionary
+                if (currentChar == '>') {
+                    stringBuffer.append(currentChar);
+                    break;
+                }
+            } else {
+                // look for embedded strings
+                if (currentChar == '(') {
+                    parenthesisCount++;
+                }
+                if (currentChar == ')') {
+                    if (parenthesisCount == 0) {
                         stringBuffer.append(currentChar);
                         break;
+                    } else {
+                        parenthesisCount--;
                     }
-                } else {
-                    // look for embedded strings
-                    if (currentChar == '(') {
-                        parenthesisCount++;
-                    }
-                    if (currentChar == ')') {
-                        if (parenthesisCount == 0) {
-                            stringBuffer.append(currentChar);
-                            break;
-                        } else {
-                            parenthesisCount--;
-                        }
-                    }
-                    // look for  "\" character
-                    /*
-                      The escape sequences can be as follows:
-                        \n  - line feed (LF)
-                        \r  - Carriage return (CR)
-                        \t  - Horizontal tab  (HT)
-                        \b  - backspace (BS)
-                        \f  - form feed (FF)
-                        \(  - left parenthesis
-                        \)  - right parenthesis
-                        \\  - backslash
-                        \ddd - character code ddd (octal)
-
-                      Note: (\0053) denotes a string containing two characters,
-                            \005 (Control-E) followed by the digit 3.
-                     */
-                    if (currentChar == '\\') {
-                        // read next char
-                        currentChar = (char) reader.read();
-
-                        // check for a digit, if so we have an octal
-                        // and we need to handle it correctly
-                        if (Character.isDigit(currentChar)) {
-                            // store the read digits
-                            StringBuilder digit = new StringBuilder();
-                            digit.append(currentChar);
-                            // octals have a max size of 3 digits, we already
-                            // have one, so there can be up 2 more digits.
-                            for (int i = 0; i < 2; i++) {
-                                // mark the reader incase the next read is not
-                                // a digit.
-                                reader.mark(1);
-                                // read next char
-                                currentChar = (char) reader.read();
-                                if (Character.isDigit(currentChar)) {
-                                    digit.append(currentChar);
-                                } else {
-                                    // back up the reader just incase
-                                    // thre is only 1 or 2 digits in the octal
-                                    reader.reset();
-                                    break;
-                                }
-                            }
-
-                            // finally convert digit to a character
-                            int charNumber = 0;
-                            try {
-                                charNumber = Integer.parseInt(digit.toString(), 8);
-                            } catch (NumberFormatException e) {
-                                logger.log(Level.FINE, "Integer parse error ", e);
+                }
+                // look for  "\" character
+                /*
+                  The escape sequences can be as follows:
+                    \n  - line feed (LF)
+                    \r  - Carriage return (CR)
+                    \t  - Horizontal tab  (HT)
+                    \b  - backspace (BS)
+                    \f  - form feed (FF)
+                    \(  - left parenthesis
+                    \)  - right parenthesis
+                    \\  - backslash
+                    \ddd - character code ddd (octal)
+
+                  Note: (\0053) denotes a string containing two characters,
+                        \005 (Control-E) followed by the digit 3.
+                 */
+                if (currentChar == '\\') {
+                    // read next char
+                    currentChar = (char) reader.read();
+
+                    // check for a digit, if so we have an octal
+                    // and we need to handle it correctly
+                    if (Character.isDigit(currentChar)) {
+                        // octals have a max size of 3 digits, we already
+                        // have one, so there can be up 2 more digits.
+                        int charNumber = Character.digit(currentChar, 8);
+                        boolean validOctal = charNumber >= 0;
+                        for (int i = 0; i < 2; i++) {
+                            // mark the reader incase the next read is not
+                            // a digit.
+                            reader.mark(1);
+                            // read next char
+                            currentChar = (char) reader.read();
+                            if (Character.isDigit(currentChar)) {
+                                int digit = Character.digit(currentChar, 8);
+                                validOctal &= digit >= 0;
+                                charNumber = charNumber * 8 + digit;
+                            } else {
+                                // back up the reader just incase
+                                // thre is only 1 or 2 digits in the octal
+                                reader.reset();
+                                break;
                             }
-                            // convert the interger from octal to dec.
-                            currentChar = (char) charNumber;
-                        }
-                        // do nothing
-                        else if (currentChar == '(' || currentChar == ')'
-                                || currentChar == '\\') {
-                            // do nothing
-                        }
-                        // capture the horizontal tab (HT), tab character is hard
-                        // to find, only appears in files with font substitution and
-                        // as a result we ahve better luck drawing a space character.
-                        else if (currentChar == 't') {
-                            currentChar = '\t';
-                        }
-                        // capture the carriage return (CR)
-                        else if (currentChar == 'r') {
-                            currentChar = '\r';
                         }
-                        // capture the line feed (LF)
-                        else if (currentChar == 'n') {
-                            currentChar = '\n';
+                        if (!validOctal) {
+                            logger.log(Level.FINE, "Integer parse error, invalid octal escape.");
+                            charNumber = 0;
                         }
-                        // capture the backspace (BS)
-                        else if (currentChar == 'b') {
-                            currentChar = '\b';
-                        }
-                        // capture the form feed (FF)
-                        else if (currentChar == 'f') {
-                            currentChar = '\f';
-                        }
-                        // ignor CF, which indicate a '\' lone split line token
-                        else if (currentChar == 13) {
-                            ignoreChar = true;
-                        }
-                        // otherwise report the file format error
-                        else {
-                            if (logger.isLoggable(Level.FINE)) {
-                                logger.warning("C=" + ((int) currentChar));
-                            }
+                        // convert the interger from octal to dec.
+                        currentChar = (char) charNumber;
+                    }
+                    // do nothing
+                    else if (currentChar == '(' || currentChar == ')'
+                            || currentChar == '\\') {
+                        // do nothing
+                    }
+                    // capture the horizontal tab (HT), tab character is hard
+                    // to find, only appears in files with font substitution and
+                    // as a result we ahve better luck drawing a space character.
+                    else if (currentChar == 't') {
+                        currentChar = '\t';
+                    }
+                    // capture the carriage return (CR)
+                    else if (currentChar == 'r') {
+                        currentChar = '\r';
+                    }
+                    // capture the line feed (LF)
+                    else if (currentChar == 'n') {
+                        currentChar = '\n';
+                    }
+                    // capture the backspace (BS)
+                    else if (currentChar == 'b') {
+                        currentChar = '\b';
+                    }
+                    // capture the form feed (FF)
+                    else if (currentChar == 'f') {
+                        currentChar = '\f';
+                    }
+                    // ignor CF, which indicate a '\' lone split line token
+                    else if (currentChar == 13) {
+                        ignoreChar = true;
+                    }
+                    // otherwise report the file format error
+                    else {
+                        if (logger.isLoggable(Level.FINE)) {
+                            logger.warning("C=" + ((int) currentChar));
                         }
                     }
                 }
             }
-            // if we are not in a string definition we want to break
-            // and return the current token, as white spaces or other elements
-            // would mean that we are on the next token
-            else if (isWhitespace(currentChar)) {
-                // we need to return the CR LR, as it is need by stream parsing
-                if (currentByte == 13 || currentByte == 10) {
-                    reader.reset();
-                    break;
-                }
-                // break on any whitespace
-                else {
-                    // return  stringBuffer.toString();
-                    break;
-                }
-            } else if (isDelimiter(currentChar)) {
-                // reset the reader so we start on this token on the next parse
-                reader.reset();
-                break;
-            }
             // append the current char and keep parsing if needed
             // IgnoreChar is set by the the line split char '\'
             if (!ignoreChar) {
-                if (inString) {
-                    stringBuffer.append(currentChar);
-                }
-                // eat any junk characters
-                else if (currentChar < 128) {
-                    stringBuffer.append(currentChar);
-                }
+                stringBuffer.append(currentChar);
             }
             // reset the ignorChar flag
             else {
                 ignoreChar = false;
             }
         }
-        while (!complete);
 
-        /*
-          Return what we found
-         */
-        // if a hex string decode it as needed
+        // the string objects copy the characters, so the buffer can be reused.
         if (hexString) {
             lastTokenHString = true;
             return new HexStringObject(stringBuffer);
         }
+        return new LiteralStringObject(stringBuffer);
+    }
 
-        // do a little clean up for any object that may have been missed..
-        // this mainly for the the document trailer information
-        // a orphaned string
-        if (inString) {
-            return new LiteralStringObject(stringBuffer);
-        }
-        // return a new name
-        else if (stringBuffer.charAt(0) == '/') {
-            return new Name(stringBuffer.deleteCharAt(0));
-        }
-        // if a number try and parse it
-        else if (inNumber) {
-            return getNumber(stringBuffer);
+    /**
+     * Returns the shared instance of a keyword, or a new String for any
+     * other token.
+     */
+    private static String getKeyword(byte[] token, int length) {
+        for (int i = 0; i < KEYWORD_BYTES.length; i++) {
+            byte[] keyword = KEYWORD_BYTES[i];
+            if (keyword.length == length) {
+                int j = 0;
+                while (j < length && keyword[j] == token[j]) {
+                    j++;
+                }
+                if (j == length) {
+                    return KEYWORDS[i];
+                }
+            }
         }
-        return stringBuffer.toString();
+        return new String(token, 0, length, StandardCharsets.ISO_8859_1);
     }
 
     public Object getNumberOrStringWithMark(int maxLength) throws IOException {
         reader.mark(maxLength);
 
-        StringBuilder sb = new StringBuilder(maxLength);
+        if (tokenBuffer.length < maxLength) {
+            tokenBuffer = new byte[maxLength];
+        }
+        byte[] token = tokenBuffer;
+        int length = 0;
         boolean readNonWhitespaceYet = false;
         boolean foundDigit = false;
-        boolean foundDecimal = false;
 
         for (int i = 0; i < maxLength; i++) {
             int curr = reader.read();
@@ -1050,22 +1125,20 @@ public class Parser {
                 break;
             } else {
                 readNonWhitespaceYet = true;
-                if (currChar == '.')
-                    foundDecimal = true;
-                else if (currChar >= '0' && curr <= '9')
+                if (currChar >= '0' && curr <= '9')
                     foundDigit = true;
-                sb.append(currChar);
+                token[length++] = (byte) curr;
             }
         }
 
         // Only bother trying to interpret as a number if contains a digit somewhere,
         //   to reduce NumberFormatExceptions
         if (foundDigit) {
-            return getNumber(sb);
+            return getNumber(token, length);
         }
 
-        if (sb.length() > 0)
-            return sb.toString();
+        if (length > 0)
+            return new String(token, 0, length, StandardCharsets.ISO_8859_1);
         return null;
     }
 
@@ -1106,22 +1179,34 @@ public class Parser {
     }
 
     public Number getNumber(StringBuilder value) {
+        byte[] streamBytes = value.toString().getBytes();
+        return getNumber(streamBytes, streamBytes.length);
+    }
+
+    /**
+     * Parses an integer or real number from the start of a token, parsing
+     * stops at the first character that isn't part of a number.
+     *
+     * @param streamBytes token bytes.
+     * @param length      token length.
+     * @return an Integer, or a Float if the token has a decimal point.
+     */
+    private static Number getNumber(byte[] streamBytes, int length) {
         int digit = 0;
         float decimal = 0;
         float divisor = 10;
         boolean isDigit;
         boolean isDecimal = false;
-        byte[] streamBytes = value.toString().getBytes();
         int startTokenPos = 0;
         boolean signed = streamBytes[startTokenPos] == '-';
         boolean positive = streamBytes[startTokenPos] == '+';
         startTokenPos = signed || positive ? startTokenPos + 1 : startTokenPos;
         // check for  double sign, thanks oracle forms!
-        if (signed && startTokenPos < streamBytes.length && streamBytes[startTokenPos] == '-') {
+        if (signed && startTokenPos < length && streamBytes[startTokenPos] == '-') {
             startTokenPos++;
         }
         int current;
-        for (int i = startTokenPos, max = streamBytes.length; i < max; i++) {
+        for (int i = startTokenPos; i < length; i++) {
             current = streamBytes[i] - 48;
             isDigit = streamBytes[i] >= 48 && streamBytes[i] <= 57;
             if (!isDecimal && isDigit) {
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.util;
+
+import org.icepdf.core.pobjects.Reference;
+import org.icepdf.core.pobjects.Stream;
+import org.icepdf.core.pobjects.StringObject;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * JVM wide cache of resources decoded from document streams, so documents
+ * that embed the same font programs, ICC profiles or images, documents
+ * produced from the same template say, decode them only once.
+ * <br>
+ * Resources are keyed by a SHA-256 digest of the raw stream bytes together
+ * with the stream dictionary, which carries the filters and their
+ * parameters, and anything the dictionary references, resolved and digested
+ * the same way.  Object numbers never enter the key, so the same content in
+ * two documents maps to the same entry.  Streams of encrypted documents are
+ * never shared.
+ * <br>
+ * Cached resources are shared by every document that uses them and must not
+ * be modified.  The cache is off by default, it's enabled with the
+ * org.icepdf.core.sharedResources.enabled system property and sized, in MB,
+ * with org.icepdf.core.sharedResources.size, 64MB by default.
+ *
+ * @since 6.3.3
+ */
+public class SharedResourceCache {
+
+    private static final Logger logger =
+            Logger.getLogger(SharedResourceCache.class.toString());
+
+    // references are followed this deep when digesting a dictionary.
+    private static final int MAX_DEPTH = 4;
+
+    private static volatile SharedResourceCache instance;
+
+    static {
+        if (Defs.sysPropertyBoolean("org.icepdf.core.sharedResources.enabled", false)) {
+            int size = Defs.intProperty("org.icepdf.core.sharedResources.size", 64);
+            instance = new SharedResourceCache(size * 1024L * 1024L);
+        }
+    }
+
+    private final WeightedCache<Key, Resource> cache;
+
+    private SharedResourceCache(long maxSize) {
+        cache = new WeightedCache<>(maxSize, 1024, resource -> resource.size);
+    }
+
+    /**
+     * Enables or disables the shared cache, a new empty cache is created
+     * each time it's enabled.
+     *
+     * @param enabled true to share decoded resources between documents.
+     * @param maxSize maximum estimated size in bytes of the shared resources.
+     */
+    public static void setEnabled(boolean enabled, long maxSize) {
+        instance = enabled ? new SharedResourceCache(maxSize) : null;
+    }
+
+    /**
+     * Gets the shared cache.
+     *
+     * @return shared cache, null if sharing is disabled.
+     */
+    public static SharedResourceCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Creates the key of a resource decoded from a stream.
+     *
+     * @param kind       kind of resource, keeps different decodings of the
+     *                   same stream apart.
+     * @param stream     stream the resource is decoded from.
+     * @param parameters anything else that affects decoding, dictionaries,
+     *                   arrays and references are digested by content.
+     * @return key, or null if the stream's resources can't be shared.
+     */
+    public static Key createKey(String kind, Stream stream, Object... parameters) {
+        Library library = stream.getLibrary();
+        if (library == null || library.getSecurityManager() != null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, kind);
+            for (Object parameter : parameters) {
+                if (parameter == null) {
+                    update(digest, "null");
+                } else if (!digestValue(digest, library, parameter, 0)) {
+                    return null;
+                }
+            }
+            if (!digestStream(digest, library, stream, 0)) {
+                return null;
+            }
+            return new Key(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            logger.log(Level.FINE, "Content digest not available.", e);
+            return null;
+        }
+    }
+
+    private static boolean digestStream(MessageDigest digest, Library library, Stream stream, int depth) {
+        ByteBuffer rawBuffer = stream.getRawBuffer();
+        if (rawBuffer == null) {
+            return false;
+        }
+        update(digest, "stream");
+        digest.update(rawBuffer);
+        return digestValue(digest, library, stream.getEntries(), depth);
+    }
+
+    private static boolean digestValue(MessageDigest digest, Library library, Object value, int depth) {
+        if (depth > MAX_DEPTH) {
+            return false;
+        }
+        if (value instanceof Reference) {
+            Object resolved = library.getObject((Reference) value);
+            return resolved != null && digestValue(digest, library, resolved, depth + 1);
+        } else if (value instanceof Stream) {
+            return digestStream(digest, library, (Stream) value, depth + 1);
+        } else if (value instanceof Map) {
+            // keys in a fixed order, the order of the entries isn't significant.
+            List<Map.Entry<?, ?>> entries = new ArrayList<>(((Map<?, ?>) value).entrySet());
+            entries.sort((a, b) -> a.getKey().toString().compareTo(b.getKey().toString()));
+            update(digest, "<<");
+            for (Map.Entry<?, ?> entry : entries) {
+                // the raw length is already covered by the digest of the bytes.
+                if (Stream.LENGTH_KEY.equals(entry.getKey())) {
+                    continue;
+                }
+                update(digest, entry.getKey().toString());
+                if (!digestValue(digest, library, entry.getValue(), depth)) {
+                    return false;
+                }
+            }
+            update(digest, ">>");
+        } else if (value instanceof List) {
+            update(digest, "[");
+            for (Object item : (List<?>) value) {
+                if (!digestValue(digest, library, item, depth)) {
+                    return false;
+                }
+            }
+            update(digest, "]");
+        } else if (value instanceof StringObject) {
+            update(digest, ((StringObject) value).getHexString());
+        } else if (value != null) {
+            update(digest, value.toString());
+        }
+        return true;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        // separator so adjacent values can't run together.
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Gets a shared resource.
+     *
+     * @param key resource key, may be null.
+     * @return resource, null if not cached.
+     */
+    public Object get(Key key) {
+        if (key == null) {
+            return null;
+        }
+        Resource resource = cache.get(key);
+        return resource != null ? resource.value : null;
+    }
+
+    /**
+     * Shares a resource with other documents.
+     *
+     * @param key   resource key, may be null.
+     * @param value decoded resource, which must no longer be modified.
+     * @param size  estimated size of the resource in bytes.
+     */
+    public void put(Key key, Object value, long size) {
+        if (key != null && value != null) {
+            cache.put(key, new Resource(value, size));
+        }
+    }
+
+    /**
+     * Drops all shared resources.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    public String toString() {
+        return cache.toString();
+    }
+
+    /**
+     * Content digest identifying a shared resource.
+     */
+    public static final class Key {
+        private final byte[] digest;
+        private final int hash;
+
+        private Key(byte[] digest) {
+            this.digest = digest;
+            hash = Arrays.hashCode(digest);
+        }
+
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(digest, ((Key) o).digest);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Resource {
+        final Object value;
+        final long size;
+
+        Resource(Object value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+}
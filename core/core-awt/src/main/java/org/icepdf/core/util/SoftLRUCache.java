@@ -23,7 +23,10 @@ import java.util.LinkedHashMap;
  * Least recently used cache using SoftReferences.
  *
  * @since 5.0
+ * @deprecated eviction is left to the garbage collector, use {@link WeightedCache}
+ * which is bounded by the size of its values.
  */
+@Deprecated
 public class SoftLRUCache<K, V> {
     private LinkedHashMap<K, SoftReference<V>> lruCache;
     private ReferenceQueue<? super V> reqQueue;
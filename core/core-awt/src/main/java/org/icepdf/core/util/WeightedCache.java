@@ -0,0 +1,391 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Concurrent cache bounded by the total weight of its values, usually their
+ * size in bytes, rather then by garbage collection.  Values are strongly
+ * referenced until they are evicted or removed.
+ * <br>
+ * Eviction is least recently used, but a new value only displaces the least
+ * recently used ones if its key has been asked for at least as often.  Key
+ * frequencies are estimated with a small count-min sketch which is halved
+ * periodically so old popularity fades.  This keeps a burst of one time
+ * lookups, a scan through a large document say, from flushing the values
+ * that are used over and over.
+ * <br>
+ * Reads don't lock, they're recorded in a lossy buffer which is applied to
+ * the recency order by whichever thread next gets the eviction lock.  Writes
+ * take the lock.
+ *
+ * @since 6.3.3
+ */
+public class WeightedCache<K, V> {
+
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    // reads recorded between attempts to drain the read buffer.
+    private static final int DRAIN_THRESHOLD = 16;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data;
+    private final ToLongFunction<? super V> weigher;
+    private final long maxWeight;
+    private final FrequencySketch sketch;
+
+    // recency list, head.next is the least recently used, guarded by evictionLock.
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final Node<K, V> head = new Node<>(null, null, 0);
+    // written with the eviction lock held, read without it.
+    private volatile long weight;
+
+    private final AtomicReferenceArray<Node<K, V>> readBuffer =
+            new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong readCount = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong rejectionCount = new AtomicLong();
+
+    /**
+     * @param maxWeight       maximum total weight of the cached values.
+     * @param expectedEntries rough number of entries the cache will hold, used
+     *                        to size the frequency sketch.
+     * @param weigher         weight of a value, must not change while cached.
+     */
+    public WeightedCache(long maxWeight, int expectedEntries, ToLongFunction<? super V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        data = new ConcurrentHashMap<>(Math.max(16, expectedEntries));
+        sketch = new FrequencySketch(expectedEntries);
+        head.previous = head;
+        head.next = head;
+    }
+
+    /**
+     * Gets the value cached for key.
+     *
+     * @param key cache key.
+     * @return cached value, null if not cached.
+     */
+    public V get(K key) {
+        sketch.increment(key.hashCode());
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        recordRead(node);
+        return node.value;
+    }
+
+    /**
+     * Caches value for key, evicting least recently used entries as needed.
+     * The value isn't cached if it's heavier then the whole cache, or if the
+     * entries it would displace are used more often then its key.
+     *
+     * @param key   cache key.
+     * @param value value to cache.
+     * @return true if the value was cached.
+     */
+    public boolean put(K key, V value) {
+        long valueWeight = weigher.applyAsLong(value);
+        if (valueWeight > maxWeight) {
+            rejectionCount.incrementAndGet();
+            return false;
+        }
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            Node<K, V> previous = data.get(key);
+            if (previous != null) {
+                unlink(previous);
+                data.remove(key);
+            } else if (!admit(key, valueWeight)) {
+                rejectionCount.incrementAndGet();
+                return false;
+            }
+            while (weight + valueWeight > maxWeight && head.next != head) {
+                Node<K, V> victim = head.next;
+                unlink(victim);
+                data.remove(victim.key);
+                evictionCount.incrementAndGet();
+            }
+            Node<K, V> node = new Node<>(key, value, valueWeight);
+            linkLast(node);
+            data.put(key, node);
+            return true;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Decides if a new key is worth the least recently used entries it would
+     * displace.  Must be called with the eviction lock held.
+     */
+    private boolean admit(K key, long valueWeight) {
+        long needed = weight + valueWeight - maxWeight;
+        if (needed <= 0) {
+            return true;
+        }
+        int frequency = sketch.frequency(key.hashCode());
+        for (Node<K, V> victim = head.next; victim != head && needed > 0; victim = victim.next) {
+            if (sketch.frequency(victim.key.hashCode()) > frequency) {
+                return false;
+            }
+            needed -= victim.weight;
+        }
+        return true;
+    }
+
+    /**
+     * Evicts least recently used entries until at least the given weight
+     * has been released or the cache is empty.
+     *
+     * @param releaseWeight weight to release.
+     * @return weight released.
+     */
+    public long evict(long releaseWeight) {
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            long released = 0;
+            while (released < releaseWeight && head.next != head) {
+                Node<K, V> victim = head.next;
+                released += victim.weight;
+                unlink(victim);
+                data.remove(victim.key);
+                evictionCount.incrementAndGet();
+            }
+            return released;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the value cached for key.
+     *
+     * @param key cache key.
+     */
+    public void remove(K key) {
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.remove(key);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Drops all cached values, statistics are kept.
+     */
+    public void clear() {
+        evictionLock.lock();
+        try {
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                readBuffer.set(i, null);
+            }
+            data.clear();
+            head.previous = head;
+            head.next = head;
+            weight = 0;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void recordRead(Node<K, V> node) {
+        long count = readCount.getAndIncrement();
+        readBuffer.lazySet((int) count & READ_BUFFER_MASK, node);
+        if ((count % DRAIN_THRESHOLD) == DRAIN_THRESHOLD - 1 && evictionLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Moves recently read entries to the end of the recency list.  Must be
+     * called with the eviction lock held.
+     */
+    private void drainReadBuffer() {
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            Node<K, V> node = readBuffer.getAndSet(i, null);
+            // skip entries removed since they were read.
+            if (node != null && node.next != null) {
+                node.previous.next = node.next;
+                node.next.previous = node.previous;
+                node.previous = head.previous;
+                node.next = head;
+                head.previous.next = node;
+                head.previous = node;
+            }
+        }
+    }
+
+    private void linkLast(Node<K, V> node) {
+        node.previous = head.previous;
+        node.next = head;
+        head.previous.next = node;
+        head.previous = node;
+        weight += node.weight;
+    }
+
+    private void unlink(Node<K, V> node) {
+        node.previous.next = node.next;
+        node.next.previous = node.previous;
+        node.previous = null;
+        node.next = null;
+        weight -= node.weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public long getRejectionCount() {
+        return rejectionCount.get();
+    }
+
+    public String toString() {
+        return "entries=" + size() + ", weight=" + getWeight() + "/" + maxWeight +
+                ", hits=" + hitCount.get() + ", misses=" + missCount.get() +
+                ", evictions=" + evictionCount.get() + ", rejections=" + rejectionCount.get();
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final long weight;
+        // guarded by the cache's eviction lock, null once unlinked.
+        Node<K, V> previous;
+        Node<K, V> next;
+
+        Node(K key, V value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Count-min sketch of four bit counters, four counters per key.  Counts
+     * saturate at 15 and are all halved once the number of increments
+     * reaches ten times the table size.
+     */
+    private static final class FrequencySketch {
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+                0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+        // sixteen counters per long.
+        private final AtomicLongArray table;
+        private final int tableMask;
+        private final int sampleSize;
+        private final AtomicLong additions = new AtomicLong();
+
+        FrequencySketch(int expectedEntries) {
+            int size = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+            table = new AtomicLongArray(size);
+            tableMask = size - 1;
+            sampleSize = size * 10;
+        }
+
+        int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++) {
+                long spread = spread(hash, i);
+                int index = (int) (spread >>> 32) & tableMask;
+                int shift = ((int) spread & 15) << 2;
+                frequency = Math.min(frequency, (int) ((table.get(index) >>> shift) & 15));
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                long spread = spread(hash, i);
+                int index = (int) (spread >>> 32) & tableMask;
+                int shift = ((int) spread & 15) << 2;
+                long current;
+                while (((current = table.get(index)) >>> shift & 15) < 15) {
+                    if (table.compareAndSet(index, current, current + (1L << shift))) {
+                        added = true;
+                        break;
+                    }
+                }
+            }
+            if (added && additions.incrementAndGet() >= sampleSize) {
+                reset();
+            }
+        }
+
+        private synchronized void reset() {
+            if (additions.get() < sampleSize) {
+                return;
+            }
+            for (int i = 0, max = table.length(); i < max; i++) {
+                long current;
+                do {
+                    current = table.get(i);
+                } while (!table.compareAndSet(i, current, (current >>> 1) & RESET_MASK));
+            }
+            additions.set(sampleSize / 2);
+        }
+
+        private static long spread(int hash, int seed) {
+            long spread = (hash + SEEDS[seed]) * SEEDS[seed];
+            return spread ^ (spread >>> 29);
+        }
+    }
+}
@@ -34,7 +34,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.Stack;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -120,7 +120,7 @@ public abstract class AbstractContentParser {
     protected AtomicInteger imageIndex = new AtomicInteger(1);
 
     // stack to help with the parse
-    protected Stack<Object> stack = new Stack<>();
+    protected OperandStack stack = new OperandStack();
 
     /**
      * @param l PDF library master object.
@@ -131,6 +131,17 @@ public abstract class AbstractContentParser {
         resources = r;
     }
 
+    /**
+     * Sets the Shapes that parsed draw commands are added to, a progressive
+     * Shapes can be painted by another thread while it's being built.  Must
+     * be called before the first call to parse().
+     *
+     * @param shapes shapes to add the page's draw commands to.
+     */
+    public void setShapes(Shapes shapes) {
+        this.shapes = shapes;
+    }
+
     /**
      * Returns the Shapes that have accumulated turing multiple calls to
      * parse().
@@ -148,7 +159,7 @@ public abstract class AbstractContentParser {
      *
      * @return stack of objects accumulated during a cotent stream parse.
      */
-    public Stack<Object> getStack() {
+    public OperandStack getStack() {
         return stack;
     }
 
@@ -185,6 +196,19 @@ public abstract class AbstractContentParser {
     public abstract ContentParser parse(byte[][] streamBytes, Page page)
             throws InterruptedException, IOException;
 
+    /**
+     * Parse a pages content streams, decoding them as they are parsed rather
+     * then up front.
+     *
+     * @param streams content streams of the page.
+     * @param page    page the content belongs to.
+     * @return a Shapes Object containing all the pages text and images shapes.
+     * @throws InterruptedException if current parse thread is interrupted.
+     * @throws java.io.IOException  unexpected end of content stream.
+     */
+    public abstract ContentParser parse(List<? extends Stream> streams, Page page)
+            throws InterruptedException, IOException;
+
     /**
      * Specialized method for extracting text from documents.
      *
@@ -193,9 +217,9 @@ public abstract class AbstractContentParser {
      */
     public abstract Shapes parseTextBlocks(byte[][] source) throws UnsupportedEncodingException, InterruptedException;
 
-    protected static void consume_G(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_G(GraphicsState graphicState, OperandStack stack,
                                     Library library) {
-        float gray = ((Number) stack.pop()).floatValue();
+        float gray = stack.popFloat();
         // Stroke Color Gray
         graphicState.setStrokeColorSpace(
                 PColorSpace.getColorSpace(library, DeviceGray.DEVICEGRAY_KEY));
@@ -204,9 +228,9 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_g(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_g(GraphicsState graphicState, OperandStack stack,
                                     Library library) {
-        float gray = Math.abs(((Number) stack.pop()).floatValue());
+        float gray = Math.abs(stack.popFloat());
         // Fill Color Gray
         graphicState.setFillColorSpace(
                 PColorSpace.getColorSpace(library, DeviceGray.DEVICEGRAY_KEY));
@@ -215,7 +239,7 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_RG(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_RG(GraphicsState graphicState, OperandStack stack,
                                      Library library) {
         if (stack.size() >= 3) {
             // set stoke colour
@@ -225,7 +249,7 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_rg(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_rg(GraphicsState graphicState, OperandStack stack,
                                      Library library) {
         if (stack.size() >= 3) {
             // set fill colour
@@ -235,7 +259,7 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_K(GraphicsState graphicState, Stack<Object> stack, Library library) {
+    protected static void consume_K(GraphicsState graphicState, OperandStack stack, Library library) {
         if (stack.size() >= 4) {
             PColorSpace pColorSpace =
                     PColorSpace.getColorSpace(library, DeviceCMYK.DEVICECMYK_KEY);
@@ -246,7 +270,7 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_k(GraphicsState graphicState, Stack<Object> stack, Library library) {
+    protected static void consume_k(GraphicsState graphicState, OperandStack stack, Library library) {
         if (stack.size() >= 4) {
             // build a colour space.
             PColorSpace pColorSpace =
@@ -258,7 +282,7 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_CS(GraphicsState graphicState, Stack<Object> stack, Resources resources) {
+    protected static void consume_CS(GraphicsState graphicState, OperandStack stack, Resources resources) {
         Object tmp = stack.pop();
         if (tmp instanceof Name) {
             // Fill Color ColorSpace, resources call uses factory call to PColorSpace.getColorSpace
@@ -267,21 +291,22 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_cs(GraphicsState graphicState, Stack<Object> stack, Resources resources) {
+    protected static void consume_cs(GraphicsState graphicState, OperandStack stack, Resources resources) {
         Name n = (Name) stack.pop();
         // Fill Color ColorSpace, resources call uses factory call to PColorSpace.getColorSpace
         // which returns an colour space including a pattern
         graphicState.setFillColorSpace(resources.getColorSpace(n));
     }
 
-    protected static void consume_ri(Stack<Object> stack) {
+    protected static void consume_ri(OperandStack stack) {
         stack.pop();
     }
 
-    protected static void consume_SC(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_SC(GraphicsState graphicState, OperandStack stack,
                                      Library library, Resources resources,
                                      boolean isTint) {
-        Object o = stack.peek();
+        // numbers are checked for without peeking so they aren't boxed.
+        Object o = stack.isNumber() ? null : stack.peek();
         // if a name then we are dealing with a pattern
         if (o instanceof Name) {
             Name patternName = (Name) stack.pop();
@@ -316,7 +341,7 @@ public abstract class AbstractContentParser {
                     tilingPattern.setUnColored(color);
                 }
             }
-        } else if (o instanceof Number) {
+        } else if (stack.isNumber()) {
 
             // some pdfs encoding do not explicitly change the default colour
             // space from the default DeviceGrey.  The following code checks
@@ -331,10 +356,10 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_sc(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_sc(GraphicsState graphicState, OperandStack stack,
                                      Library library, Resources resources, boolean isTint) {
         Object o = null;
-        if (!stack.isEmpty()) {
+        if (!stack.isEmpty() && !stack.isNumber()) {
             o = stack.peek();
         }
         // if a name then we are dealing with a pattern.
@@ -372,7 +397,7 @@ public abstract class AbstractContentParser {
                     tilingPattern.setUnColored(color);
                 }
             }
-        } else if (o instanceof Number) {
+        } else if (stack.isNumber()) {
             // some PDFs encoding do not explicitly change the default colour
             // space from the default DeviceGrey.  The following code checks
             // how many n values are available and if different then current
@@ -405,7 +430,7 @@ public abstract class AbstractContentParser {
         return graphicState;
     }
 
-    protected static void consume_cm(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_cm(GraphicsState graphicState, OperandStack stack,
                                      boolean inTextBlock, AffineTransform textBlockBase) {
         float[] affineTransform = popFloatInOrder(stack, 6);
         // get the current CTM
@@ -439,16 +464,16 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_i(Stack<Object> stack) {
+    protected static void consume_i(OperandStack stack) {
         if (stack.size() >= 1) {
             stack.pop();
         }
     }
 
-    protected static void consume_J(GraphicsState graphicState, Stack<Object> stack, Shapes shapes) {
+    protected static void consume_J(GraphicsState graphicState, OperandStack stack, Shapes shapes) {
 //        collectTokenFrequency(PdfOps.J_TOKEN);
         // get the value from the stack
-        graphicState.setLineCap((int) (((Number) stack.pop()).floatValue()));
+        graphicState.setLineCap((int) (stack.popFloat()));
         // Butt cap, stroke is squared off at the endpoint of the path
         // there is no projection beyond the end of the path
         if (graphicState.getLineCap() == 0) {
@@ -483,7 +508,7 @@ public abstract class AbstractContentParser {
      *                     the consumption of Do will skip Image based xObjects for performance.
      * @return graphic state after parsing xObject.
      */
-    protected static GraphicsState consume_Do(GraphicsState graphicState, Stack<Object> stack,
+    protected static GraphicsState consume_Do(GraphicsState graphicState, OperandStack stack,
                                               Shapes shapes, Resources resources,
                                               boolean viewParse, // events
                                               AtomicInteger imageIndex, Page page) throws InterruptedException {
@@ -635,12 +660,12 @@ public abstract class AbstractContentParser {
         return graphicState;
     }
 
-    protected static void consume_d(GraphicsState graphicState, Stack<Object> stack, Shapes shapes) {
+    protected static void consume_d(GraphicsState graphicState, OperandStack stack, Shapes shapes) {
         float dashPhase;
         float[] dashArray;
         try {
             // pop dashPhase off the stack
-            dashPhase = Math.abs(((Number) stack.pop()).floatValue());
+            dashPhase = Math.abs(stack.popFloat());
             // pop the dashVector of the stack
             java.util.List dashVector = (java.util.List) stack.pop();
             // if the dash vector size is zero we have a default none dashed
@@ -710,9 +735,9 @@ public abstract class AbstractContentParser {
         setStroke(shapes, graphicState);
     }
 
-    protected static void consume_j(GraphicsState graphicState, Stack<Object> stack, Shapes shapes) {
+    protected static void consume_j(GraphicsState graphicState, OperandStack stack, Shapes shapes) {
         // grab the value
-        graphicState.setLineJoin((int) (((Number) stack.pop()).floatValue()));
+        graphicState.setLineJoin((int) (stack.popFloat()));
         // Miter Join - the outer edges of the strokes for the two
         // segments are extended until they meet at an angle, like a picture
         // frame
@@ -734,11 +759,11 @@ public abstract class AbstractContentParser {
         setStroke(shapes, graphicState);
     }
 
-    protected static void consume_w(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_w(GraphicsState graphicState, OperandStack stack,
                                     Shapes shapes, float glyph2UserSpaceScale) {
         // apply any type3 font scalling which is set via the glyph2User space affine transform.
         if (!stack.isEmpty()) {
-            float scale = ((Number) stack.pop()).floatValue() * glyph2UserSpaceScale;
+            float scale = stack.popFloat() * glyph2UserSpaceScale;
             if (strokeAdjustmentEnabled && scale < strokeAdjustmentThreshold) {
                 scale = strokeAdjustmentValue;
             }
@@ -752,12 +777,12 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_M(GraphicsState graphicState, Stack<Object> stack, Shapes shapes) {
-        graphicState.setMiterLimit(((Number) stack.pop()).floatValue());
+    protected static void consume_M(GraphicsState graphicState, OperandStack stack, Shapes shapes) {
+        graphicState.setMiterLimit(stack.popFloat());
         setStroke(shapes, graphicState);
     }
 
-    protected static void consume_gs(GraphicsState graphicState, Stack<Object> stack, Resources resources, Shapes shapes) {
+    protected static void consume_gs(GraphicsState graphicState, OperandStack stack, Resources resources, Shapes shapes) {
         Object gs = stack.pop();
         if (gs instanceof Name && resources != null) {
             // Get ExtGState and merge it with
@@ -771,8 +796,8 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_Tf(GraphicsState graphicState, Stack<Object> stack, Resources resources) {
-        float size = ((Number) stack.pop()).floatValue();
+    protected static void consume_Tf(GraphicsState graphicState, OperandStack stack, Resources resources) {
+        float size = stack.popFloat();
         Name name2 = (Name) stack.pop();
         // build the new font and initialize it.
         graphicState.getTextState().tsize = size;
@@ -834,11 +859,11 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_Tc(GraphicsState graphicState, Stack<Object> stack) {
-        graphicState.getTextState().cspace = ((Number) stack.pop()).floatValue();
+    protected static void consume_Tc(GraphicsState graphicState, OperandStack stack) {
+        graphicState.getTextState().cspace = stack.popFloat();
     }
 
-    protected static void consume_tm(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_tm(GraphicsState graphicState, OperandStack stack,
                                      TextMetrics textMetrics,
                                      PageText pageText,
                                      double previousBTStart,
@@ -849,15 +874,15 @@ public abstract class AbstractContentParser {
         textMetrics.getAdvance().setLocation(0, 0);
         // pop carefully, as there are few corner cases where
         // the af is split up with a BT or other token
-        Object next;
         // initialize an identity matrix, add parse out the
         // numbers we have working from f6 down to f1.
         float[] tm = new float[]{1f, 0, 0, 1f, 0, 0};
         for (int i = 0, hits = 5, max = stack.size(); hits != -1 && i < max; i++) {
-            next = stack.pop();
-            if (next instanceof Number) {
-                tm[hits] = ((Number) next).floatValue();
+            if (stack.isNumber()) {
+                tm[hits] = stack.popFloat();
                 hits--;
+            } else {
+                stack.pop();
             }
         }
 
@@ -892,12 +917,12 @@ public abstract class AbstractContentParser {
         pageText.newLine(oCGs);
     }
 
-    protected static void consume_TD(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_TD(GraphicsState graphicState, OperandStack stack,
                                      TextMetrics textMetrics,
                                      PageText pageText,
                                      LinkedList<OptionalContents> oCGs) {
-        float y = ((Number) stack.pop()).floatValue();
-        float x = ((Number) stack.pop()).floatValue();
+        float y = stack.popFloat();
+        float x = stack.popFloat();
         graphicState.translate(-textMetrics.getShift(), 0);
         textMetrics.setShift(0);
         textMetrics.setPreviousAdvance(0);
@@ -912,21 +937,21 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_double_quote(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_double_quote(GraphicsState graphicState, OperandStack stack,
                                                Shapes shapes,
                                                TextMetrics textMetrics,
                                                GlyphOutlineClip glyphOutlineClip,
                                                LinkedList<OptionalContents> oCGs) {
         StringObject stringObject = (StringObject) stack.pop();
-        graphicState.getTextState().cspace = ((Number) stack.pop()).floatValue();
-        graphicState.getTextState().wspace = ((Number) stack.pop()).floatValue();
+        graphicState.getTextState().cspace = stack.popFloat();
+        graphicState.getTextState().wspace = stack.popFloat();
         // push the string back on so we can reuse the single quote layout code
         stack.push(stringObject);
         consume_T_star(graphicState, textMetrics, shapes.getPageText(), oCGs);
         consume_Tj(graphicState, stack, shapes, textMetrics, glyphOutlineClip, oCGs);
     }
 
-    protected static void consume_single_quote(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_single_quote(GraphicsState graphicState, OperandStack stack,
                                                Shapes shapes,
                                                TextMetrics textMetrics,
                                                GlyphOutlineClip glyphOutlineClip,
@@ -936,13 +961,13 @@ public abstract class AbstractContentParser {
         consume_Tj(graphicState, stack, shapes, textMetrics, glyphOutlineClip, oCGs);
     }
 
-    protected static void consume_Td(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_Td(GraphicsState graphicState, OperandStack stack,
                                      TextMetrics textMetrics,
                                      PageText pageText,
                                      double previousBTStart,
                                      LinkedList<OptionalContents> oCGs) {
-        float y = ((Number) stack.pop()).floatValue();
-        float x = ((Number) stack.pop()).floatValue();
+        float y = stack.popFloat();
+        float x = stack.popFloat();
         graphicState.translate(-textMetrics.getShift(), 0);
         textMetrics.setShift(0);
         textMetrics.setPreviousAdvance(0);
@@ -958,35 +983,36 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_Tz(GraphicsState graphicState, Stack<Object> stack) {
-        Object ob = stack.pop();
-        if (ob instanceof Number) {
-            float hScaling = ((Number) ob).floatValue();
+    protected static void consume_Tz(GraphicsState graphicState, OperandStack stack) {
+        if (stack.isNumber()) {
+            float hScaling = stack.popFloat();
             // store the scaled value, but not apply the state operator at this time
             graphicState.getTextState().hScalling = hScaling / 100.0f;
+        } else {
+            stack.pop();
         }
     }
 
-    protected static void consume_Tw(GraphicsState graphicState, Stack<Object> stack) {
-        graphicState.getTextState().wspace = ((Number) stack.pop()).floatValue();
+    protected static void consume_Tw(GraphicsState graphicState, OperandStack stack) {
+        graphicState.getTextState().wspace = stack.popFloat();
     }
 
-    protected static void consume_Tr(GraphicsState graphicState, Stack<Object> stack) {
-        graphicState.getTextState().rmode = (int) ((Number) stack.pop()).floatValue();
+    protected static void consume_Tr(GraphicsState graphicState, OperandStack stack) {
+        graphicState.getTextState().rmode = (int) stack.popFloat();
     }
 
-    protected static void consume_TL(GraphicsState graphicState, Stack<Object> stack) {
-        graphicState.getTextState().leading = ((Number) stack.pop()).floatValue();
+    protected static void consume_TL(GraphicsState graphicState, OperandStack stack) {
+        graphicState.getTextState().leading = stack.popFloat();
     }
 
-    protected static void consume_Ts(GraphicsState graphicState, Stack<Object> stack) {
-        graphicState.getTextState().trise = ((Number) stack.pop()).floatValue();
+    protected static void consume_Ts(GraphicsState graphicState, OperandStack stack) {
+        graphicState.getTextState().trise = stack.popFloat();
     }
 
-    protected static GeneralPath consume_L(Stack<Object> stack,
+    protected static GeneralPath consume_L(OperandStack stack,
                                            GeneralPath geometricPath) {
-        float y = ((Number) stack.pop()).floatValue();
-        float x = ((Number) stack.pop()).floatValue();
+        float y = stack.popFloat();
+        float x = stack.popFloat();
         if (geometricPath == null) {
             geometricPath = new GeneralPath();
         }
@@ -994,20 +1020,20 @@ public abstract class AbstractContentParser {
         return geometricPath;
     }
 
-    protected static GeneralPath consume_m(Stack<Object> stack,
+    protected static GeneralPath consume_m(OperandStack stack,
                                            GeneralPath geometricPath) {
         if (geometricPath == null) {
             geometricPath = new GeneralPath();
         }
         if (stack.size() >= 2) {
-            float y = ((Number) stack.pop()).floatValue();
-            float x = ((Number) stack.pop()).floatValue();
+            float y = stack.popFloat();
+            float x = stack.popFloat();
             geometricPath.moveTo(x, y);
         }
         return geometricPath;
     }
 
-    protected static GeneralPath consume_c(Stack<Object> stack,
+    protected static GeneralPath consume_c(OperandStack stack,
                                            GeneralPath geometricPath) {
         if (!stack.isEmpty()) {
             float[] affineTransform = popFloatInOrder(stack, 6);
@@ -1053,15 +1079,15 @@ public abstract class AbstractContentParser {
         return null;
     }
 
-    protected static GeneralPath consume_re(Stack<Object> stack,
+    protected static GeneralPath consume_re(OperandStack stack,
                                             GeneralPath geometricPath) {
         if (geometricPath == null) {
             geometricPath = new GeneralPath();
         }
-        float h = ((Number) stack.pop()).floatValue();
-        float w = ((Number) stack.pop()).floatValue();
-        float y = ((Number) stack.pop()).floatValue();
-        float x = ((Number) stack.pop()).floatValue();
+        float h = stack.popFloat();
+        float w = stack.popFloat();
+        float y = stack.popFloat();
+        float x = stack.popFloat();
         geometricPath.moveTo(x, y);
         geometricPath.lineTo(x + w, y);
         geometricPath.lineTo(x + w, y + h);
@@ -1076,7 +1102,7 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_BDC(Stack<Object> stack,
+    protected static void consume_BDC(OperandStack stack,
                                       Shapes shapes,
                                       LinkedList<OptionalContents> oCGs,
                                       Resources resources) throws InterruptedException {
@@ -1124,7 +1150,7 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_BMC(Stack<Object> stack,
+    protected static void consume_BMC(OperandStack stack,
                                       Shapes shapes,
                                       LinkedList<OptionalContents> oCGs,
                                       Resources resources) throws InterruptedException {
@@ -1186,12 +1212,12 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_v(Stack<Object> stack,
+    protected static void consume_v(OperandStack stack,
                                     GeneralPath geometricPath) {
-        float y3 = ((Number) stack.pop()).floatValue();
-        float x3 = ((Number) stack.pop()).floatValue();
-        float y2 = ((Number) stack.pop()).floatValue();
-        float x2 = ((Number) stack.pop()).floatValue();
+        float y3 = stack.popFloat();
+        float x3 = stack.popFloat();
+        float y2 = stack.popFloat();
+        float x2 = stack.popFloat();
         geometricPath.curveTo(
                 (float) geometricPath.getCurrentPoint().getX(),
                 (float) geometricPath.getCurrentPoint().getY(),
@@ -1201,12 +1227,12 @@ public abstract class AbstractContentParser {
                 y3);
     }
 
-    protected static void consume_y(Stack<Object> stack,
+    protected static void consume_y(OperandStack stack,
                                     GeneralPath geometricPath) {
-        float y3 = ((Number) stack.pop()).floatValue();
-        float x3 = ((Number) stack.pop()).floatValue();
-        float y1 = ((Number) stack.pop()).floatValue();
-        float x1 = ((Number) stack.pop()).floatValue();
+        float y3 = stack.popFloat();
+        float x3 = stack.popFloat();
+        float y1 = stack.popFloat();
+        float x1 = stack.popFloat();
         geometricPath.curveTo(x1, y1, x3, y3, x3, y3);
     }
 
@@ -1222,12 +1248,12 @@ public abstract class AbstractContentParser {
         return null;
     }
 
-    protected static GraphicsState consume_d0(GraphicsState graphicState, Stack<Object> stack) {
+    protected static GraphicsState consume_d0(GraphicsState graphicState, OperandStack stack) {
         // save the stack
         graphicState = graphicState.save();
         // need two pops to get  Wx and Wy data
-        float y = ((Number) stack.pop()).floatValue();
-        float x = ((Number) stack.pop()).floatValue();
+        float y = stack.popFloat();
+        float x = stack.popFloat();
         TextState textState = graphicState.getTextState();
         textState.setType3HorizontalDisplacement(new Point.Float(x, y));
         return graphicState;
@@ -1256,7 +1282,7 @@ public abstract class AbstractContentParser {
         return null;
     }
 
-    protected static GraphicsState consume_d1(GraphicsState graphicState, Stack<Object> stack) {
+    protected static GraphicsState consume_d1(GraphicsState graphicState, OperandStack stack) {
         // save the stack
         graphicState = graphicState.save();
         // need two pops to get  Wx and Wy data
@@ -1291,16 +1317,16 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_DP(Stack<Object> stack) {
+    protected static void consume_DP(OperandStack stack) {
         stack.pop(); // properties
         stack.pop(); // name
     }
 
-    protected static void consume_MP(Stack<Object> stack) {
+    protected static void consume_MP(OperandStack stack) {
         stack.pop();
     }
 
-    protected static void consume_sh(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_sh(GraphicsState graphicState, OperandStack stack,
                                      Shapes shapes,
                                      Resources resources) throws InterruptedException {
         Object o = stack.peek();
@@ -1338,7 +1364,7 @@ public abstract class AbstractContentParser {
         }
     }
 
-    protected static void consume_TJ(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_TJ(GraphicsState graphicState, OperandStack stack,
                                      Shapes shapes,
                                      TextMetrics textMetrics,
                                      GlyphOutlineClip glyphOutlineClip,
@@ -1372,7 +1398,7 @@ public abstract class AbstractContentParser {
         graphicState.set(tmp);
     }
 
-    protected static void consume_Tj(GraphicsState graphicState, Stack<Object> stack,
+    protected static void consume_Tj(GraphicsState graphicState, OperandStack stack,
                                      Shapes shapes,
                                      TextMetrics textMetrics,
                                      GlyphOutlineClip glyphOutlineClip,
@@ -1847,30 +1873,30 @@ public abstract class AbstractContentParser {
 //        }`
     }
 
-    private static Color commonRGB(Stack<Object> stack) {
-        float blue = ((Number) stack.pop()).floatValue();
-        float green = ((Number) stack.pop()).floatValue();
-        float red = ((Number) stack.pop()).floatValue();
+    private static Color commonRGB(OperandStack stack) {
+        float blue = stack.popFloat();
+        float green = stack.popFloat();
+        float red = stack.popFloat();
         blue = Math.max(0.0f, Math.min(1.0f, blue));
         green = Math.max(0.0f, Math.min(1.0f, green));
         red = Math.max(0.0f, Math.min(1.0f, red));
         return new Color(red, green, blue);
     }
 
-    private static float[] commonCMYK(Stack<Object> stack) {
-        float k = ((Number) stack.pop()).floatValue();
-        float y = ((Number) stack.pop()).floatValue();
-        float m = ((Number) stack.pop()).floatValue();
-        float c = ((Number) stack.pop()).floatValue();
+    private static float[] commonCMYK(OperandStack stack) {
+        float k = stack.popFloat();
+        float y = stack.popFloat();
+        float m = stack.popFloat();
+        float c = stack.popFloat();
         return new float[]{c, m, y, k};
     }
 
-    private static float[] popFloatInOrder(Stack<Object> stack, int number) {
+    private static float[] popFloatInOrder(OperandStack stack, int number) {
         float[] f = new float[number];
         int nCount = number - 1;
         // peek and pop all of the colour floats
-        while (!stack.isEmpty() && stack.peek() instanceof Number && nCount >= 0) {
-            f[nCount] = ((Number) stack.pop()).floatValue();
+        while (stack.isNumber() && nCount >= 0) {
+            f[nCount] = stack.popFloat();
             nCount--;
         }
         return f;
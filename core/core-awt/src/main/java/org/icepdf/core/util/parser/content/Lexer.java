@@ -3,10 +3,14 @@ package org.icepdf.core.util.parser.content;
 import org.icepdf.core.pobjects.HexStringObject;
 import org.icepdf.core.pobjects.LiteralStringObject;
 import org.icepdf.core.pobjects.Name;
+import org.icepdf.core.pobjects.Stream;
 import org.icepdf.core.pobjects.StringObject;
+import org.icepdf.core.util.Parser;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.logging.Level;
@@ -29,16 +33,33 @@ public class Lexer {
             ARRAY = 9,
             BOOLEAN = 10;
 
+    // size of the window decoded content streams are read into.
+    private static final int WINDOW_SIZE = 32 * 1024;
+
     private int streamCount;
     private byte[][] streamsBytes;
 
+    // content streams decoded as they are read, null when parsing byte arrays.
+    private List<? extends Stream> contentStreams;
+    private InputStream input;
+    // greater then zero while positions are held that compacting the
+    // window would invalidate.
+    private int nesting;
+
     private byte[] streamBytes;
 
     private int pos, numRead, startTokenPos;
 
     private int tokenType = 0;
 
+    /**
+     * Returned by {@link #next(OperandStack)} once there are no more operators.
+     */
+    public static final int END = -1;
+
     public void setContentStream(byte[][] in) {
+        close();
+        contentStreams = null;
         streamsBytes = in;
         streamCount = 0;
         streamBytes = streamsBytes[streamCount];
@@ -47,6 +68,39 @@ public class Lexer {
         }
     }
 
+    /**
+     * Sets the content streams to parse.  Each stream is decoded as it is
+     * read into a small window, which only grows to hold a token that won't
+     * fit, such as a large inline image, so the decoded content never has to
+     * be held in memory as a whole.  The streams are parsed in order as if
+     * they were one stream.
+     *
+     * @param streams content streams.
+     */
+    public void setContentStream(List<? extends Stream> streams) {
+        close();
+        streamsBytes = null;
+        contentStreams = streams;
+        streamCount = -1;
+        streamBytes = new byte[WINDOW_SIZE];
+        pos = numRead = startTokenPos = 0;
+        nextStream();
+    }
+
+    /**
+     * Closes the decoder of the content stream being read, if any.
+     */
+    public void close() {
+        if (input != null) {
+            try {
+                input.close();
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Error closing content stream.", e);
+            }
+            input = null;
+        }
+    }
+
     public Object next() throws IOException {
 
         if (streamBytes == null) {
@@ -61,7 +115,8 @@ public class Lexer {
             case NUMBER:
                 return startNumber();
             case OPERAND:
-                return startOperand();
+                int operator = startOperand();
+                return operator != END ? operator : null;
             case HEX_STRING:
                 return startHexString();
             case LIT_STRING:
@@ -81,13 +136,80 @@ public class Lexer {
         }
     }
 
+    /**
+     * Reads tokens up to the next operator, pushing the operands found along
+     * the way onto the stack.  Numbers are pushed as primitives, they're only
+     * boxed when they're part of an array or dictionary.
+     *
+     * @param stack stack the operands are pushed onto.
+     * @return next operator, one of the Operands constants, or END if the
+     * end of the content, or a token that can't be read, was reached.
+     * @throws IOException if the stream bytes are null.
+     */
+    public int next(OperandStack stack) throws IOException {
+
+        if (streamBytes == null) {
+            throw new IOException("Content Stream, null input stream bytes.");
+        }
+
+        Object operand;
+        while (true) {
+            parseNextState();
+
+            switch (tokenType) {
+                case NUMBER:
+                    stack.push(startNumber());
+                    continue;
+                case OPERAND:
+                    return startOperand();
+                case COMMENT:
+                    return startComment();
+                case HEX_STRING:
+                    operand = startHexString();
+                    break;
+                case LIT_STRING:
+                    operand = startLiteralString();
+                    break;
+                case NAME:
+                    operand = startName();
+                    break;
+                case ARRAY:
+                    operand = startArray();
+                    break;
+                case DICTIONARY:
+                    operand = startDictionary();
+                    break;
+                case BOOLEAN:
+                    operand = startBoolean();
+                    break;
+                default:
+                    return END;
+            }
+            if (operand == null) {
+                return END;
+            }
+            stack.push(operand);
+        }
+    }
+
     public byte[] getImageBytes() {
+        // the window can't be compacted while the image is read, the
+        // image data is addressed from its start.
+        nesting++;
+        try {
+            return readImageBytes();
+        } finally {
+            nesting--;
+        }
+    }
+
+    private byte[] readImageBytes() {
         // skip past the D in ID and the first white space.
         pos += 1;
         // quick check for CR and LF after the ID.
-        if (streamBytes[pos] == 10 || streamBytes[pos] == 13) {
+        if (peek(0) == 10 || peek(0) == 13) {
             pos++;
-            if (streamBytes[pos] == 10 || streamBytes[pos] == 13) {
+            if (peek(0) == 10 || peek(0) == 13) {
                 pos++;
             }
         }
@@ -97,10 +219,10 @@ public class Lexer {
         // type3 fonts generally have the EI at the end of the stream with no
         // white space  and inline images all followed by a space.
         boolean found = false;
-        while (pos < numRead) {
+        while (pos < numRead || fill()) {
             // check if we have an EI at the end of the stream
-            if (pos + 1 == streamBytes.length - 1 &&
-                    streamBytes[pos] == 'E' &&
+            if (streamBytes[pos] == 'E' &&
+                    available(1) && !available(2) &&
                     streamBytes[pos + 1] == 'I') {
                 found = true;
             }
@@ -114,23 +236,24 @@ public class Lexer {
                             streamBytes[pos - 1] == 0 || // null corner case
                             streamBytes[pos - 1] == 75) && // another corner case 'K', no whitespace between data and EI
                             streamBytes[pos] == 'E' &&
-                            streamBytes[pos + 1] == 'I' &&
-                            (streamBytes[pos + 2] == 32 ||
-                                    streamBytes[pos + 2] == 10 ||
-                                    streamBytes[pos + 2] == 13)) {
+                            peek(1) == 'I' &&
+                            (peek(2) == 32 ||
+                                    peek(2) == 10 ||
+                                    peek(2) == 13)) {
                 int mark = pos;
                 // avoid going to the next content stream, as inline images
                 // aren't stretched across content streams, or at least we don't
                 // think so.
-                if (!(pos + 4 < streamBytes.length)) {
+                if (!available(4)) {
                     found = true;
                 } else {
                     try {
                         pos += 2;
                         Object tmp = next();
                         // make sure we have an operand next as some streams can give
-                        // us a false positive when EI and some white space is encountered.
-                        if (tmp instanceof Integer && ((Integer) tmp) != Operands.OP &&
+                        // us a false positive when EI and some white space is encountered,
+                        // or the end of the stream.
+                        if (tmp == null || tmp instanceof Integer && ((Integer) tmp) != Operands.OP &&
                                 isDelimiter(streamBytes[pos])) {
                             found = true;
                         }
@@ -164,7 +287,7 @@ public class Lexer {
     private StringObject startHexString() {
         // skip the starting (
         startTokenPos = pos++;
-        while (pos < numRead) {
+        while (pos < numRead || fill()) {
             if (streamBytes[pos] == '>') {
                 // back out the ending )
                 pos++;
@@ -193,7 +316,7 @@ public class Lexer {
         pos++;
         int parenthesisCount = 1;
         int current;
-        while (pos < numRead) {
+        while (pos < numRead || fill()) {
             current = streamBytes[pos] & 0xff;
             if (current != '\\' && current != ')' && current != '(') {
                 captured.append((char) current);
@@ -230,7 +353,7 @@ public class Lexer {
                  *
                  * Note: (\0053) denotes a string containing two characters,
                  */
-                lookAhead = (streamBytes[pos + 1] & 0xff);
+                lookAhead = (peek(1) & 0xff);
                 // capture the horizontal tab (HT), tab character is hard
                 // to find, only appears in files with font substitution and
                 // as a result we have better luck drawing a space character.
@@ -261,7 +384,7 @@ public class Lexer {
                     // have one, so there can be up 2 more digits.
                     int offset = 1;
                     for (int j = 1; j <= 2; j++) {
-                        lookAhead = streamBytes[pos + j + 1];
+                        lookAhead = peek(j + 1);
                         if (Character.isDigit(lookAhead)) {
                             digit[j] = (byte) lookAhead;
                             offset++;
@@ -329,7 +452,7 @@ public class Lexer {
     private Name startName() {
         // skip first / of name
         startTokenPos = pos++;
-        while (pos < numRead) {
+        while (pos < numRead || fill()) {
             // look for a natural break                          ``
             if (isDelimiter(streamBytes[pos]) || isTextDelimiter(streamBytes[pos])) {
                 break;
@@ -339,7 +462,7 @@ public class Lexer {
         if (pos <= numRead) {
             // return the name object
             startTokenPos++;
-            return new Name(new String(streamBytes, startTokenPos, pos - startTokenPos));
+            return Name.intern(streamBytes, startTokenPos, pos - startTokenPos);
         } else {
             return null;
         }
@@ -347,7 +470,7 @@ public class Lexer {
 
     private Boolean startBoolean() {
         startTokenPos = pos;
-        while (pos < numRead) {
+        while (pos < numRead || fill()) {
             // look for a natural break
             if (isDelimiter(streamBytes[pos]) || isTextDelimiter(streamBytes[pos])) {
                 break;
@@ -362,18 +485,18 @@ public class Lexer {
         }
     }
 
-    private Integer startComment() {
+    private int startComment() {
         do {
             pos++;
         }
-        while (pos < numRead && streamBytes[pos] != 13 && streamBytes[pos] != 10);
+        while ((pos < numRead || fill()) && streamBytes[pos] != 13 && streamBytes[pos] != 10);
         return Operands.OP;
     }
 
     private HashMap startDictionary() throws IOException {
         startTokenPos = pos;
 
-        HashMap<Object, Object> h = new HashMap<Object, Object>();
+        HashMap<Object, Object> h = Parser.createDictionary();
 
         // skip past the starting <<
         pos += 2;
@@ -383,7 +506,7 @@ public class Lexer {
         Object key = null;
         Object value;
         int count = 1;
-        while (!(streamBytes[pos] == '>' && streamBytes[pos + 1] == '>')) {
+        while (!(peek(0) == '>' && peek(1) == '>')) {
             if (count == 1) {
                 key = next();
                 // double check we don't have an empty dictionary << >>
@@ -399,7 +522,7 @@ public class Lexer {
             }
 
             // check the buffer
-            while (pos < numRead) {
+            while (pos < numRead || fill()) {
                 // look for a natural break
                 if (!isDelimiter(streamBytes[pos])) {
                     break;
@@ -412,25 +535,123 @@ public class Lexer {
         }
         // skip the trailing >>
         pos += 2;
+        Parser.completeDictionary(h);
         return h;
     }
 
     private void checkLength() {
-        if (pos == numRead) {
-            if (streamCount < streamsBytes.length - 1) {
+        if (pos == numRead && !fill() && nextStream()) {
+            fill();
+        }
+    }
+
+    /**
+     * Moves on to the next content stream.
+     *
+     * @return true if there is another stream, false at the end of the content.
+     */
+    private boolean nextStream() {
+        // image data doesn't span content streams.
+        if (nesting > 0) {
+            return false;
+        }
+        if (contentStreams != null) {
+            close();
+            while (streamCount < contentStreams.size() - 1) {
                 streamCount++;
-                // assign next byte array, but skip over the corner
-                // case of an zero length content stream.
-                if (streamsBytes[streamCount].length == 0 &&
-                        streamCount + 1 < streamsBytes.length) {
-                    streamCount++;
+                input = contentStreams.get(streamCount).getDecodedInputStream();
+                if (input != null) {
+                    // reset the  pointers, the window is filled as it's read.
+                    pos = numRead = startTokenPos = 0;
+                    return true;
                 }
-                streamBytes = streamsBytes[streamCount];
-                // reset the  pointers.
-                pos = 0;
-                numRead = streamBytes.length;
             }
+            return false;
         }
+        if (streamCount < streamsBytes.length - 1) {
+            streamCount++;
+            // assign next byte array, but skip over the corner
+            // case of an zero length content stream.
+            if (streamsBytes[streamCount].length == 0 &&
+                    streamCount + 1 < streamsBytes.length) {
+                streamCount++;
+            }
+            streamBytes = streamsBytes[streamCount];
+            // reset the  pointers.
+            pos = 0;
+            numRead = streamBytes.length;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads more of the current content stream into the window.  Bytes before
+     * the start of the current token are dropped to make room, unless the
+     * token doesn't leave room, in which case the window grows.
+     *
+     * @return true if more bytes were read, false at the end of the stream.
+     */
+    private boolean fill() {
+        if (input == null) {
+            return false;
+        }
+        try {
+            if (numRead == streamBytes.length) {
+                int keep = nesting == 0 ? Math.min(startTokenPos, pos) : 0;
+                int length = numRead - keep;
+                byte[] window = streamBytes;
+                if (length > WINDOW_SIZE / 2) {
+                    window = new byte[Math.max(WINDOW_SIZE, length * 2)];
+                } else if (streamBytes.length > WINDOW_SIZE) {
+                    // back to the normal size after a large token.
+                    window = new byte[WINDOW_SIZE];
+                }
+                System.arraycopy(streamBytes, keep, window, 0, length);
+                streamBytes = window;
+                numRead = length;
+                pos -= keep;
+                startTokenPos -= keep;
+            }
+            int read = input.read(streamBytes, numRead, streamBytes.length - numRead);
+            if (read > 0) {
+                numRead += read;
+                return true;
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error decoding content stream.", e);
+        }
+        close();
+        return false;
+    }
+
+    /**
+     * Makes sure a byte ahead of the current position has been read.
+     *
+     * @param offset offset from the current position.
+     * @return true if the byte is available, false if the stream ends first.
+     */
+    private boolean available(int offset) {
+        while (pos + offset >= numRead) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets a byte ahead of the current position, reading it if needed.
+     *
+     * @param offset offset from the current position.
+     * @return byte at the offset.
+     * @throws ArrayIndexOutOfBoundsException if the stream ends first.
+     */
+    private byte peek(int offset) {
+        if (!available(offset)) {
+            throw new ArrayIndexOutOfBoundsException(pos + offset);
+        }
+        return streamBytes[pos + offset];
     }
 
     private List startArray() throws IOException {
@@ -443,12 +664,12 @@ public class Lexer {
         if (pos == numRead) {
             // check for in very odd  corner cases. end
             checkLength();
-            if (pos == streamBytes.length) {
+            if (pos == numRead) {
                 return array;
             }
         }
         Object token;
-        while (streamBytes[pos] != ']' && pos < numRead) {
+        while (peek(0) != ']' && pos < numRead) {
             // add the tokens as we get them.
             token = next();
             if (token instanceof Integer) {
@@ -463,7 +684,7 @@ public class Lexer {
                 break;
             }
             // push past any white space
-            while (pos < numRead) {
+            while (pos < numRead || fill()) {
                 // look for a natural break
                 if (!isDelimiter(streamBytes[pos])) {
                     break;
@@ -478,9 +699,9 @@ public class Lexer {
         return array;
     }
 
-    private Object startNumber() {
+    private float startNumber() {
         startTokenPos = pos;
-        while (pos < numRead) {
+        while (pos < numRead || fill()) {
             if (streamBytes[pos] < '+' || streamBytes[pos] > '9' || streamBytes[pos] == '/') {
                 break;
             }
@@ -492,9 +713,9 @@ public class Lexer {
     /**
      * Utility for processing the operand state.
      */
-    private Object startOperand() {
+    private int startOperand() {
         startTokenPos = pos;
-        while (pos < numRead) {
+        while (pos < numRead || fill()) {
             // check for delimiters just encase the encoder didn't use spaces.
             if (isDelimiter(streamBytes[pos]) ||
                     isTextDelimiter(streamBytes[pos])) {
@@ -506,7 +727,7 @@ public class Lexer {
             int[] tmp = Operands.parseOperand(streamBytes, startTokenPos, pos - startTokenPos);
             // check for 'null' token which maybe picked up as an operator.
             if (tmp == null) {
-                return null;
+                return END;
             }
             // adjust for any potential parsing compensation.
             if (tmp[1] > 0) {
@@ -515,7 +736,7 @@ public class Lexer {
             return tmp[0];
         } else {
             // copy and fill the buffer so we cn continue parsing
-            return null;
+            return END;
         }
     }
 
@@ -523,18 +744,9 @@ public class Lexer {
         // skip the white space
         while (pos <= numRead) {
             if (pos == numRead) {
-                if (streamCount < streamsBytes.length - 1) {
-                    streamCount++;
-                    // skip zero length stream
-                    if (streamsBytes[streamCount].length == 0 &&
-                            streamCount + 1 < streamsBytes.length) {
-                        streamCount++;
-                    }
-                    // assign next byte array
-                    streamBytes = streamsBytes[streamCount];
-                    // reset the  pointers.
-                    pos = 0;
-                    numRead = streamBytes.length;
+                // only the white space skipped so far can be dropped.
+                startTokenPos = pos;
+                if (fill() || nextStream()) {
                     continue;
                 } else {
                     tokenType = NO_MORE;
@@ -542,7 +754,7 @@ public class Lexer {
                 }
             }
             // find the next space
-            if (pos < streamBytes.length && streamBytes[pos] > 32) {//!isDelimiter(streamBytes[pos])) {
+            if (streamBytes[pos] > 32) {//!isDelimiter(streamBytes[pos])) {
                 break;
             }
             pos++;
@@ -563,7 +775,7 @@ public class Lexer {
                     tokenType = ARRAY;
                     break;
                 case '<':
-                    byte c2 = streamBytes[pos + 1];
+                    byte c2 = peek(1);
                     if (c2 == '<') {
                         tokenType = DICTIONARY;
                     } else {
@@ -578,7 +790,7 @@ public class Lexer {
                     tokenType = BOOLEAN;
                     break;
                 case 'f':
-                    if (pos + 1 < numRead) {
+                    if (available(1)) {
                         c2 = streamBytes[pos + 1];
                         if (c2 == 'a') {
                             tokenType = BOOLEAN;
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2006-2019 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.util.parser.content;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * Operand stack used when parsing content streams.  Numbers, by far the most
+ * common operands, are held in a primitive float lane and everything else,
+ * names, strings, arrays and dictionaries, in an object lane.  Both lanes
+ * share the same slot index so the order of mixed operands is kept, a slot
+ * with no object is a number.
+ * <br>
+ * Path and colour operators read their operands with {@link #popFloat()} so a
+ * page made up of millions of path segments doesn't box a Float for every
+ * coordinate.  The stack isn't synchronized, it's only ever used by the
+ * thread parsing the content stream.
+ *
+ * @since 6.3.3
+ */
+public class OperandStack {
+
+    private float[] numbers;
+    private Object[] objects;
+    private int size;
+
+    public OperandStack() {
+        numbers = new float[32];
+        objects = new Object[32];
+    }
+
+    /**
+     * Pushes a number onto the stack.
+     *
+     * @param number number operand.
+     */
+    public void push(float number) {
+        ensureCapacity();
+        numbers[size] = number;
+        objects[size++] = null;
+    }
+
+    /**
+     * Pushes an operand onto the stack, numbers are stored unboxed.
+     *
+     * @param object operand, null values are ignored.
+     */
+    public void push(Object object) {
+        if (object instanceof Number) {
+            push(((Number) object).floatValue());
+        } else if (object != null) {
+            ensureCapacity();
+            objects[size++] = object;
+        }
+    }
+
+    /**
+     * Pops a number off the stack.
+     *
+     * @return number on the top of the stack.
+     * @throws EmptyStackException if the stack is empty.
+     * @throws ClassCastException  if the operand on the top of the stack isn't a
+     *                             number, the operand is still popped.
+     */
+    public float popFloat() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        Object object = objects[--size];
+        if (object != null) {
+            objects[size] = null;
+            throw new ClassCastException(object.getClass().getName() + " operand found, expected a number");
+        }
+        return numbers[size];
+    }
+
+    /**
+     * Pops the operand on the top of the stack, numbers are returned as a
+     * Float.
+     *
+     * @return operand on the top of the stack.
+     * @throws EmptyStackException if the stack is empty.
+     */
+    public Object pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        Object object = objects[--size];
+        if (object == null) {
+            return numbers[size];
+        }
+        objects[size] = null;
+        return object;
+    }
+
+    /**
+     * Gets the operand on the top of the stack without removing it, numbers
+     * are returned as a Float.  Use {@link #isNumber()} to test for a number
+     * without boxing it.
+     *
+     * @return operand on the top of the stack.
+     * @throws EmptyStackException if the stack is empty.
+     */
+    public Object peek() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        Object object = objects[size - 1];
+        return object != null ? object : numbers[size - 1];
+    }
+
+    /**
+     * @return true if the operand on the top of the stack is a number, false
+     * if it's another type of operand or the stack is empty.
+     */
+    public boolean isNumber() {
+        return size > 0 && objects[size - 1] == null;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(objects, 0, size, null);
+        size = 0;
+    }
+
+    private void ensureCapacity() {
+        if (size == numbers.length) {
+            numbers = Arrays.copyOf(numbers, size * 2);
+            objects = Arrays.copyOf(objects, size * 2);
+        }
+    }
+
+    public String toString() {
+        StringBuilder operands = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                operands.append(", ");
+            }
+            operands.append(objects[i] != null ? objects[i] : numbers[i]);
+        }
+        return operands.append(']').toString();
+    }
+}
@@ -0,0 +1,106 @@
+package org.icepdf.os.examples.dictionaryFootprint;
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+import org.icepdf.core.exceptions.PDFException;
+import org.icepdf.core.exceptions.PDFSecurityException;
+import org.icepdf.core.pobjects.Document;
+import org.icepdf.core.pobjects.Reference;
+import org.icepdf.core.util.Library;
+import org.icepdf.core.util.Parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The <code>DictionaryFootprint</code> class measures the heap retained by a
+ * document's parsed objects with dictionaries held in HashMaps and with them
+ * held in compact array backed maps.  Every object in the document is loaded
+ * and held, dictionaries make up most of them in annotation and font heavy
+ * documents.
+ * <p/>
+ * The measurement relies on System.gc() so it's only approximate, running
+ * with a fixed heap size, -Xms equal to -Xmx, gives steadier numbers.
+ * <p/>
+ * Usage: DictionaryFootprint file.pdf [file.pdf ...]
+ *
+ * @since 6.3.3
+ */
+public class DictionaryFootprint {
+
+    public static void main(String[] args) {
+        DictionaryFootprint footprint = new DictionaryFootprint();
+        for (String file : args) {
+            // first pass loads classes and warms up caches, it isn't counted.
+            footprint.measure(file, true);
+            long hashMapBytes = footprint.measure(file, false);
+            long compactBytes = footprint.measure(file, true);
+            if (hashMapBytes > 0 && compactBytes > 0) {
+                System.out.println(file + ": HashMap " + hashMapBytes / 1024 + "KB, compact " +
+                        compactBytes / 1024 + "KB, saved " + (100 - compactBytes * 100 / hashMapBytes) + "%");
+            }
+        }
+    }
+
+    /**
+     * Loads every object of the document and measures the heap they retain.
+     *
+     * @return retained bytes, or -1 if the document couldn't be loaded.
+     */
+    public long measure(String file, boolean compactDictionaries) {
+        Parser.setCompactDictionaryEnabled(compactDictionaries);
+        Document document = new Document();
+        try {
+            document.setFile(file);
+            Library library = document.getCatalog().getLibrary();
+            int objectCount = document.getStateManager().getNewReferenceNumber().getObjectNumber();
+
+            long before = usedMemory();
+            List<Object> objects = new ArrayList<>(objectCount);
+            for (int i = 1; i < objectCount; i++) {
+                Object object = library.getObject(new Reference(i, 0));
+                if (object != null) {
+                    objects.add(object);
+                }
+            }
+            long after = usedMemory();
+            System.out.println((compactDictionaries ? "compact: " : "HashMap: ") + objects.size() + " objects");
+            return after - before;
+        } catch (PDFException ex) {
+            System.out.println("Error parsing PDF document " + ex);
+        } catch (PDFSecurityException ex) {
+            System.out.println("Error encryption not supported " + ex);
+        } catch (IOException ex) {
+            System.out.println("Error handling PDF document " + ex);
+        } finally {
+            document.dispose();
+        }
+        return -1;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
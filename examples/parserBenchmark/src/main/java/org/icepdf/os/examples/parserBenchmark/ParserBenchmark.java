@@ -0,0 +1,168 @@
+package org.icepdf.os.examples.parserBenchmark;
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+import org.icepdf.core.exceptions.PDFException;
+import org.icepdf.core.exceptions.PDFSecurityException;
+import org.icepdf.core.io.SeekableByteArrayInputStream;
+import org.icepdf.core.io.SeekableInput;
+import org.icepdf.core.pobjects.Document;
+import org.icepdf.core.pobjects.ObjectStream;
+import org.icepdf.core.pobjects.Reference;
+import org.icepdf.core.util.Library;
+import org.icepdf.core.util.Parser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The <code>ParserBenchmark</code> class is a JMH benchmark of the object
+ * parser on the two kinds of input it sees most when a document is opened;
+ * the last cross reference section, a table or a stream, and the
+ * dictionaries packed into object streams.  Each benchmark method returns
+ * the number of objects it parsed, which JMH consumes so the work can't be
+ * optimized away.
+ * <p/>
+ * The documents are read and their object streams decoded once per trial,
+ * in the setup, so only parsing is measured.
+ * <p/>
+ * Usage: ParserBenchmark file.pdf [file.pdf ...]
+ *
+ * @since 6.3.3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    /**
+     * Document to parse, set from the command line arguments.
+     */
+    @Param({""})
+    public String file;
+
+    private byte[] data;
+    private long startXRef;
+    private List<byte[]> decodedObjectStreams;
+
+    public static void main(String[] args) throws RunnerException {
+        if (args.length == 0) {
+            System.out.println("Usage: ParserBenchmark file.pdf [file.pdf ...]");
+            return;
+        }
+        Options options = new OptionsBuilder()
+                .include(ParserBenchmark.class.getSimpleName())
+                .param("file", args)
+                .build();
+        new Runner(options).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = Files.readAllBytes(Paths.get(file));
+        startXRef = findStartXRef(data);
+        decodedObjectStreams = decodeObjectStreams(file);
+    }
+
+    /**
+     * Parses the cross reference section startxref points to.
+     */
+    @Benchmark
+    public int crossReference() throws Exception {
+        if (startXRef <= 0) {
+            return 0;
+        }
+        SeekableInput input = new SeekableByteArrayInputStream(data);
+        input.seekAbsolute(startXRef);
+        Parser parser = new Parser(input);
+        return parser.getObject(new Library()) != null ? 1 : 0;
+    }
+
+    /**
+     * Parses every object of the document's decoded object streams.
+     */
+    @Benchmark
+    public int objectStreams() throws Exception {
+        Library library = new Library();
+        int objects = 0;
+        for (byte[] objectStream : decodedObjectStreams) {
+            SeekableInput input = new SeekableByteArrayInputStream(objectStream);
+            Parser parser = new Parser(input, Parser.PARSE_MODE_OBJECT_STREAM);
+            while (parser.getObject(library) != null) {
+                objects++;
+            }
+        }
+        return objects;
+    }
+
+    private static long findStartXRef(byte[] data) {
+        int tailLength = Math.min(data.length, 1024);
+        String tail = new String(data, data.length - tailLength, tailLength, StandardCharsets.ISO_8859_1);
+        int startxref = tail.lastIndexOf("startxref");
+        if (startxref < 0) {
+            return -1;
+        }
+        String offset = tail.substring(startxref + "startxref".length()).trim().split("\\s+")[0];
+        try {
+            return Long.parseLong(offset);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Opens the document and decodes all of its object streams.
+     */
+    private static List<byte[]> decodeObjectStreams(String file) {
+        List<byte[]> objectStreams = new ArrayList<>();
+        Document document = new Document();
+        try {
+            document.setFile(file);
+            Library library = document.getCatalog().getLibrary();
+            int objectCount = document.getStateManager().getNewReferenceNumber().getObjectNumber();
+            for (int i = 1; i < objectCount; i++) {
+                Object object = library.getObject(new Reference(i, 0));
+                if (object instanceof ObjectStream) {
+                    byte[] decoded = ((ObjectStream) object).getDecodedStreamBytes();
+                    if (decoded != null) {
+                        objectStreams.add(decoded);
+                    }
+                }
+            }
+        } catch (PDFException ex) {
+            System.out.println("Error parsing PDF document " + ex);
+        } catch (PDFSecurityException ex) {
+            System.out.println("Error encryption not supported " + ex);
+        } catch (IOException ex) {
+            System.out.println("Error handling PDF document " + ex);
+        } finally {
+            document.dispose();
+        }
+        return objectStreams;
+    }
+}
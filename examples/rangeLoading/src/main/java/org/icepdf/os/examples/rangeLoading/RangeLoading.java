@@ -0,0 +1,95 @@
+package org.icepdf.os.examples.rangeLoading;
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+import org.icepdf.core.exceptions.PDFException;
+import org.icepdf.core.exceptions.PDFSecurityException;
+import org.icepdf.core.pobjects.Document;
+import org.icepdf.core.pobjects.PDimension;
+import org.icepdf.core.pobjects.Page;
+import org.icepdf.core.util.GraphicsRenderingHints;
+import org.icepdf.ri.util.FontPropertiesManager;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The <code>RangeLoading</code> class is an example of how to open a document
+ * whose bytes are fetched on demand with a RangeFetcher.  A file specified at
+ * the command line is served by a {@link SimulatedLatencyFetcher}, the first
+ * page is captured to disk and the number of fetches and bytes transferred
+ * are displayed on the console.  For a linearized file only the first page
+ * section and the cross reference data should be transferred.
+ * <p/>
+ * Usage: RangeLoading file.pdf [latencyMillis] [bytesPerSecond]
+ *
+ * @since 6.3.3
+ */
+public class RangeLoading {
+    public static void main(String[] args) {
+
+        // Get a file from the command line to open
+        File file = new File(args[0]);
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 50;
+        long bandwidth = args.length > 2 ? Long.parseLong(args[2]) : 10 * 1024 * 1024;
+
+        // read/store the font cache.
+        FontPropertiesManager.getInstance().loadOrReadSystemFonts();
+
+        RangeLoading rangeLoading = new RangeLoading();
+        rangeLoading.capturePage(file, latency, bandwidth);
+    }
+
+    public void capturePage(File file, long latency, long bandwidth) {
+        Document document = new Document();
+        try {
+            SimulatedLatencyFetcher fetcher = new SimulatedLatencyFetcher(file, latency, bandwidth);
+            long start = System.currentTimeMillis();
+
+            document.setRangeFetcher(fetcher, file.getAbsolutePath());
+            System.out.println("Opened document in " + (System.currentTimeMillis() - start) + "ms, " +
+                    fetcher.getFetchCount() + " fetches, " + fetcher.getFetchedBytes() + " bytes");
+
+            Page page = document.getPageTree().getPage(0);
+            page.init();
+            PDimension sz = page.getSize(Page.BOUNDARY_CROPBOX, 0, 1f);
+            BufferedImage image = new BufferedImage((int) sz.getWidth(), (int) sz.getHeight(),
+                    BufferedImage.TYPE_INT_RGB);
+            Graphics g = image.createGraphics();
+            page.paint(g, GraphicsRenderingHints.PRINT, Page.BOUNDARY_CROPBOX, 0, 1f);
+            g.dispose();
+
+            System.out.println("First page painted after " + (System.currentTimeMillis() - start) + "ms, " +
+                    fetcher.getFetchCount() + " fetches, " + fetcher.getFetchedBytes() + " of " +
+                    file.length() + " bytes");
+
+            ImageIO.write(image, "png", new File("rangeLoading_0.png"));
+            image.flush();
+        } catch (InterruptedException e) {
+            System.out.println("Error parsing PDF document " + e);
+        } catch (PDFException ex) {
+            System.out.println("Error parsing PDF document " + ex);
+        } catch (PDFSecurityException ex) {
+            System.out.println("Error encryption not supported " + ex);
+        } catch (IOException ex) {
+            System.out.println("Error handling PDF document " + ex);
+        } finally {
+            document.dispose();
+        }
+    }
+}
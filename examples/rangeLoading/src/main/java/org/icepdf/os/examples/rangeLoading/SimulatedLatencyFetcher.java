@@ -0,0 +1,94 @@
+package org.icepdf.os.examples.rangeLoading;
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+import org.icepdf.core.io.RangeFetcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The <code>SimulatedLatencyFetcher</code> class is a local stand in for a
+ * remote range source.  Ranges are read from a local file but every fetch is
+ * delayed by a fixed round trip latency plus the transfer time at the given
+ * bandwidth, which makes it easy to see how much of a document has to be
+ * transferred before a page can be shown.
+ *
+ * @since 6.3.3
+ */
+public class SimulatedLatencyFetcher implements RangeFetcher {
+
+    private RandomAccessFile file;
+    private long latencyMillis;
+    private long bytesPerSecond;
+
+    private AtomicLong fetchCount = new AtomicLong();
+    private AtomicLong fetchedBytes = new AtomicLong();
+
+    /**
+     * @param file           local file to serve ranges from.
+     * @param latencyMillis  round trip delay added to every fetch.
+     * @param bytesPerSecond simulated bandwidth, zero or less for unlimited.
+     * @throws IOException if the file can't be opened.
+     */
+    public SimulatedLatencyFetcher(File file, long latencyMillis, long bytesPerSecond) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        this.latencyMillis = latencyMillis;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public long getLength() throws IOException {
+        return file.length();
+    }
+
+    public int fetch(long position, byte[] buffer, int offset, int length) throws IOException {
+        long delay = latencyMillis;
+        if (bytesPerSecond > 0) {
+            delay += (length * 1000L) / bytesPerSecond;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Fetch interrupted");
+        }
+        int read;
+        synchronized (file) {
+            file.seek(position);
+            read = file.read(buffer, offset, length);
+        }
+        fetchCount.incrementAndGet();
+        if (read > 0) {
+            fetchedBytes.addAndGet(read);
+        }
+        System.out.println("  fetch " + position + "-" + (position + length - 1) + " (" + delay + "ms)");
+        return read;
+    }
+
+    public void close() throws IOException {
+        file.close();
+    }
+
+    public long getFetchCount() {
+        return fetchCount.get();
+    }
+
+    public long getFetchedBytes() {
+        return fetchedBytes.get();
+    }
+}
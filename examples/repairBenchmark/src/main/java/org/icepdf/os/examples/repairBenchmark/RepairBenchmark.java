@@ -0,0 +1,126 @@
+package org.icepdf.os.examples.repairBenchmark;
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+import org.icepdf.core.exceptions.PDFException;
+import org.icepdf.core.exceptions.PDFSecurityException;
+import org.icepdf.core.pobjects.Document;
+import org.icepdf.core.pobjects.Page;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The <code>RepairBenchmark</code> class compares the two ways a document
+ * with a damaged cross reference can be loaded; the linear traversal, which
+ * parses every object in the file with a single parser, and the parallel
+ * scan, which finds the object markers on all cores and loads objects lazily.
+ * <p/>
+ * The file given on the command line is copied and the startxref offset of
+ * the copy is overwritten, so any PDF can be used.  For each mode the time to
+ * open the document and initialize the first page is displayed along with the
+ * page count, which should be the same for both.
+ * <p/>
+ * Usage: RepairBenchmark file.pdf [iterations]
+ *
+ * @since 6.3.3
+ */
+public class RepairBenchmark {
+
+    public static void main(String[] args) {
+        File file = new File(args[0]);
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        RepairBenchmark benchmark = new RepairBenchmark();
+        File damaged = null;
+        try {
+            damaged = benchmark.createDamagedCopy(file);
+            for (int i = 0; i < iterations; i++) {
+                benchmark.load(damaged, "linear traversal", false);
+                benchmark.load(damaged, "parallel scan   ", true);
+            }
+        } catch (IOException e) {
+            System.out.println("Error creating damaged copy " + e);
+        } finally {
+            if (damaged != null && !damaged.delete()) {
+                damaged.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Copies the file and breaks the offset following the last startxref
+     * keyword so the cross reference can't be found.
+     */
+    public File createDamagedCopy(File file) throws IOException {
+        File damaged = File.createTempFile("repairBenchmark", ".pdf");
+        Files.copy(file.toPath(), damaged.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        try (RandomAccessFile access = new RandomAccessFile(damaged, "rw")) {
+            int tailLength = (int) Math.min(access.length(), 1024);
+            byte[] tail = new byte[tailLength];
+            access.seek(access.length() - tailLength);
+            access.readFully(tail);
+            String text = new String(tail, StandardCharsets.ISO_8859_1);
+            int startxref = text.lastIndexOf("startxref");
+            if (startxref < 0) {
+                throw new IOException("No startxref found in " + file);
+            }
+            // overwrite the digits of the offset with nines, keeping the file length.
+            long position = access.length() - tailLength;
+            for (int i = startxref + "startxref".length(); i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (Character.isDigit(c)) {
+                    access.seek(position + i);
+                    access.write('9');
+                } else if (c == '%') {
+                    break;
+                }
+            }
+        }
+        return damaged;
+    }
+
+    public void load(File file, String label, boolean parallelRepair) {
+        Document.setParallelRepairEnabled(parallelRepair, 0);
+        Document document = new Document();
+        try {
+            long start = System.nanoTime();
+            document.setFile(file.getAbsolutePath());
+            long opened = System.nanoTime();
+            int pages = document.getNumberOfPages();
+            if (pages > 0) {
+                Page page = document.getPageTree().getPage(0);
+                page.init();
+            }
+            long firstPage = System.nanoTime();
+            System.out.println(label + ": opened in " + (opened - start) / 1000000 + "ms, first page after " +
+                    (firstPage - start) / 1000000 + "ms, " + pages + " pages");
+        } catch (InterruptedException e) {
+            System.out.println("Error parsing PDF document " + e);
+        } catch (PDFException ex) {
+            System.out.println("Error parsing PDF document " + ex);
+        } catch (PDFSecurityException ex) {
+            System.out.println("Error encryption not supported " + ex);
+        } catch (IOException ex) {
+            System.out.println("Error handling PDF document " + ex);
+        } finally {
+            document.dispose();
+        }
+    }
+}
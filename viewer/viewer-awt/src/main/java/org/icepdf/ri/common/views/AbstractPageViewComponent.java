@@ -407,11 +407,17 @@ public abstract class AbstractPageViewComponent
             // page loading progress
             PageViewLoadingListener pageLoadingListener = new DefaultPageViewLoadingListener(parent, documentViewController);
             boolean isFirstProgressivePaint = false;
+            FutureTask<Object> pageInitTask = null;
             try {
                 if (documentViewController != null) page.addPageProcessingListener(pageLoadingListener);
-                // page init, interruptable
-                page.init();
-                pageInitializedCallback(page);
+                // page init, interruptable.  If the page's display list can be painted while it's
+                // being parsed the page is initialized on another thread and painted as it's parsed.
+                if (progressivePaint && Page.isProgressivePaintEnabled() && !page.isInitiated()) {
+                    pageInitTask = page.initInBackground();
+                } else {
+                    page.init();
+                    pageInitializedCallback(page);
+                }
 
                 BufferedImage pageBufferImage = graphicsConfiguration.createCompatibleImage(
                         imageLocation.width, imageLocation.height,
@@ -432,11 +438,16 @@ public abstract class AbstractPageViewComponent
                 page.paint(g2d, GraphicsRenderingHints.SCREEN, pageBoundaryBox, rotation, zoom,
                         paintAnnotations, paintSearchHighlight);
                 g2d.dispose();
+                if (pageInitTask != null) {
+                    pageInitTask.get();
+                    pageInitializedCallback(page);
+                }
                 // init and paint thread went under interrupted, we can move the back pageBufferPadding to the front.
                 pageBufferStore.setState(pageBufferImage, imageLocation, imageClipLocation, pageSize,
                         zoom, rotation, false);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
+                if (pageInitTask != null) pageInitTask.cancel(true);
                 logger.finer("Interrupted page capture task: " + e.getMessage() + " " + pageIndex);
                 // flush the buffer if this is our first paint.
                 if (isFirstProgressivePaint) pageBufferStore.setImageReference(null);